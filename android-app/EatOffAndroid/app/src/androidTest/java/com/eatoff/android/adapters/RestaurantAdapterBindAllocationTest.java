@@ -0,0 +1,97 @@
+package com.eatoff.android.adapters;
+
+import android.content.Context;
+import android.os.Debug;
+import android.widget.FrameLayout;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.eatoff.android.catalog.CatalogSnapshot;
+import com.eatoff.android.catalog.RestaurantCatalog;
+import com.eatoff.android.models.Restaurant;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Rebinds real restaurant cards through {@link RestaurantAdapter#onBindViewHolder} and checks
+ * that binding a position again allocates nothing beyond a fixed budget, for both the
+ * network list and the mapped catalog snapshot.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RestaurantAdapterBindAllocationTest {
+    
+    // Below the description layout cache size, so every description stays measured
+    private static final int ROWS = 100;
+    private static final int PASSES = 20;
+    // Headroom for allocations by the measurement itself, not per bind
+    private static final long BUDGET_BYTES = 4 * 1024;
+    
+    @Test
+    public void listRebindsStayWithinAllocationBudget() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            RestaurantAdapter adapter = new RestaurantAdapter(context());
+            adapter.updateRestaurants(generate(ROWS));
+            assertWithinBudget(adapter);
+        });
+    }
+    
+    @Test
+    public void snapshotRebindsStayWithinAllocationBudget() throws IOException {
+        File file = new File(context().getCacheDir(), "bind_test.snapshot");
+        CatalogSnapshot.write(file, RestaurantCatalog.from(generate(ROWS)));
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+        assertNotNull(snapshot);
+        
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            RestaurantAdapter adapter = new RestaurantAdapter(context());
+            adapter.updateCatalog(snapshot, snapshot.allRows());
+            assertWithinBudget(adapter);
+        });
+        file.delete();
+    }
+    
+    private static void assertWithinBudget(RestaurantAdapter adapter) {
+        FrameLayout parent = new FrameLayout(context());
+        List<RestaurantAdapter.RestaurantViewHolder> holders = new ArrayList<>(ROWS);
+        for (int position = 0; position < ROWS; position++) {
+            RestaurantAdapter.RestaurantViewHolder holder = adapter.onCreateViewHolder(parent, RestaurantAdapter.VIEW_TYPE);
+            adapter.onBindViewHolder(holder, position);
+            holders.add(holder);
+        }
+        
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocSize();
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int position = 0; position < ROWS; position++) {
+                adapter.onBindViewHolder(holders.get(position), position);
+            }
+        }
+        long allocated = Debug.getThreadAllocSize();
+        Debug.stopAllocCounting();
+        
+        assertTrue("binds allocated " + allocated + " bytes", allocated <= BUDGET_BYTES);
+    }
+    
+    private static Context context() {
+        return InstrumentationRegistry.getInstrumentation().getTargetContext();
+    }
+    
+    // No image URLs: the budget covers the bind path, not Glide's own request bookkeeping
+    private static List<Restaurant> generate(int count) {
+        List<Restaurant> restaurants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Restaurant restaurant = new Restaurant(i, "Restaurant " + i, "Italian", "Downtown");
+            restaurant.setDescription("Description " + i);
+            restaurant.setPriceRange("$$");
+            restaurant.setRating(String.valueOf(4.0 + (i % 10) / 10.0));
+            restaurants.add(restaurant);
+        }
+        return restaurants;
+    }
+}
\ No newline at end of file
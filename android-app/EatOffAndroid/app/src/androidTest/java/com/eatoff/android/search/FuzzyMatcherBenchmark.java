@@ -0,0 +1,93 @@
+package com.eatoff.android.search;
+
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.eatoff.android.models.MenuItem;
+import com.eatoff.android.models.Restaurant;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * On-device query latency of {@link FuzzyMatcher} on a 50k-name corpus. The p50/p95 are
+ * logged under the {@code FuzzyMatcherBenchmark} tag; p95 must stay within a 60 Hz frame.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FuzzyMatcherBenchmark {
+    
+    private static final String TAG = "FuzzyMatcherBenchmark";
+    private static final int CORPUS_SIZE = 50_000;
+    private static final int QUERIES = 200;
+    private static final long FRAME_BUDGET_MICROS = 16_000;
+    private static final String[] SYLLABLES = {"ca", "sa", "mi", "ci", "or", "ba", "to", "ri", "na", "le",
+            "pi", "za", "bu", "ra", "te", "lu", "ma", "do", "ve", "ni"};
+    
+    @Test
+    public void typoQueriesAnswerWithinAFrameAtP95() {
+        Random random = new Random(42);
+        FuzzyMatcher.Builder builder = new FuzzyMatcher.Builder();
+        String[] corpus = new String[CORPUS_SIZE];
+        for (int i = 0; i < corpus.length; i++) {
+            corpus[i] = word(random) + " " + word(random);
+            if (i % 2 == 0) {
+                Restaurant restaurant = new Restaurant(i, corpus[i], "Romanian", "Centru");
+                restaurant.setRating(String.valueOf(random.nextInt(50) / 10.0));
+                builder.addRestaurant(restaurant);
+            } else {
+                MenuItem item = new MenuItem(i, corpus[i], 20.0, "Main");
+                item.setRestaurantId(i - 1);
+                builder.addMenuItem(item, 4.0);
+            }
+        }
+        FuzzyMatcher matcher = builder.build();
+        
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = typo(corpus[random.nextInt(corpus.length)], random);
+        }
+        
+        for (int i = 0; i < QUERIES; i++) {
+            matcher.search(queries[i], 20);
+        }
+        
+        long[] micros = new long[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            long start = System.nanoTime();
+            assertFalse(queries[i], matcher.search(queries[i], 20).isEmpty());
+            micros[i] = (System.nanoTime() - start) / 1000;
+        }
+        Arrays.sort(micros);
+        long p50 = micros[micros.length / 2];
+        long p95 = micros[micros.length * 95 / 100];
+        
+        Log.i(TAG, "Fuzzy search over " + CORPUS_SIZE + " names: p50 " + p50 + " us, p95 " + p95
+                + " us, max " + micros[micros.length - 1] + " us");
+        assertTrue("p95 " + p95 + " us", p95 < FRAME_BUDGET_MICROS);
+    }
+    
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+    
+    // Swaps two adjacent letters in the longer word, a typical fat-finger typo
+    private static String typo(String name, Random random) {
+        String[] words = name.split(" ");
+        int w = words[0].length() >= words[1].length() ? 0 : 1;
+        char[] letters = words[w].toCharArray();
+        int i = 1 + random.nextInt(letters.length - 2);
+        char swap = letters[i];
+        letters[i] = letters[i + 1];
+        letters[i + 1] = swap;
+        words[w] = new String(letters);
+        return words[0] + " " + words[1];
+    }
+}
@@ -0,0 +1,21 @@
+package com.eatoff.android;
+
+import android.app.Application;
+import com.eatoff.android.api.ApiClient;
+import com.eatoff.android.repository.SessionCleanup;
+import com.eatoff.android.utils.AuthManager;
+
+public class EatOffApplication extends Application {
+    
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        
+        // Load the stored session in the background so the splash screen's login check is a field read
+        AuthManager.getInstance(this).preload();
+        SessionCleanup.register(this);
+        
+        // OkHttp, Gson and the Retrofit proxy are built off the main thread before the first screen needs them
+        ApiClient.preload();
+    }
+}
\ No newline at end of file
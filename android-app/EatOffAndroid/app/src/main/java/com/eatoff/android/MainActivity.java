@@ -1,39 +1,83 @@
 package com.eatoff.android;
 
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.graphics.Bitmap;
+import android.view.View;
+import android.widget.ImageView;
 import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import com.eatoff.android.activities.LoginActivity;
 import com.eatoff.android.adapters.RestaurantAdapter;
-import com.eatoff.android.api.ApiClient;
-import com.eatoff.android.api.ApiService;
+import com.eatoff.android.adapters.ViewHolderPool;
+import com.eatoff.android.api.CallScope;
+import com.eatoff.android.cache.ResourceCache;
+import com.eatoff.android.cart.Cart;
+import com.eatoff.android.cart.CartManager;
+import com.eatoff.android.catalog.CatalogSnapshot;
+import com.eatoff.android.catalog.PackageValueIndex;
+import com.eatoff.android.catalog.RestaurantCatalog;
+import com.eatoff.android.catalog.RestaurantRanker;
+import com.eatoff.android.catalog.StringDictionary;
+import com.eatoff.android.metrics.CallMetrics;
+import com.eatoff.android.metrics.FrameMetricsRecorder;
 import com.eatoff.android.models.Restaurant;
+import com.eatoff.android.models.Voucher;
+import com.eatoff.android.orders.OrderSummary;
+import com.eatoff.android.repository.OrderHistoryRepository;
+import com.eatoff.android.repository.ResourceRepository;
+import com.eatoff.android.repository.VoucherDealsRepository;
+import com.eatoff.android.utils.AddressGeocoder;
+import com.eatoff.android.utils.AppExecutors;
 import com.eatoff.android.utils.AuthManager;
+import com.eatoff.android.viewmodels.RestaurantListViewModel;
+import com.eatoff.android.vouchers.QrCodeRenderer;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
+import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.Locale;
 
 public class MainActivity extends AppCompatActivity {
     
+    private static final String TAG = "MainActivity";
+    // Roughly the cards visible on a tall phone plus one being scrolled in
+    private static final int PREINFLATED_RESTAURANT_CARDS = 4;
+    private static final String SCREEN_NAME = "home";
+    private static final String FRAME_METRICS_FILE = "frame_metrics.csv";
+    private static final String CACHE_METRICS_FILE = "cache_metrics.csv";
+    private static final String CALL_METRICS_FILE = "call_metrics.csv";
+    
     private RecyclerView restaurantRecyclerView;
     private RestaurantAdapter restaurantAdapter;
+    // Shared with the vouchers and orders lists once they exist
+    private final ViewHolderPool viewHolderPool = new ViewHolderPool();
     private SwipeRefreshLayout swipeRefreshLayout;
     private FloatingActionButton cartFab;
     private BottomNavigationView bottomNavigation;
+    private ChipGroup sortChipGroup;
     private MaterialToolbar toolbar;
     
-    private ApiService apiService;
+    private RestaurantListViewModel viewModel;
+    private CallScope callScope;
+    
+    private long createdAtMs;
+    private boolean firstRowLogged;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        createdAtMs = SystemClock.uptimeMillis();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
         
@@ -43,13 +87,24 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
         
+        callScope = CallScope.bindTo(this);
         initializeViews();
         setupRecyclerView();
         setupListeners();
         
-        apiService = ApiClient.getInstance().getApiService();
+        FrameMetricsRecorder frameMetrics = FrameMetricsRecorder.getInstance();
+        frameMetrics.attach(this, SCREEN_NAME);
+        frameMetrics.trackScrolling(this, restaurantRecyclerView);
+        
+        viewModel = new ViewModelProvider(this).get(RestaurantListViewModel.class);
+        boolean retained = viewModel.hasRestaurants();
+        observeViewModel(retained ? "retained" : "network");
         
-        loadRestaurants();
+        // A recreated activity finds the list already in the ViewModel and skips both steps
+        if (!retained) {
+            showCatalogSnapshot();
+            viewModel.loadRestaurants();
+        }
     }
     
     private void initializeViews() {
@@ -58,14 +113,19 @@ public class MainActivity extends AppCompatActivity {
         swipeRefreshLayout = findViewById(R.id.swipe_refresh_layout);
         cartFab = findViewById(R.id.cart_fab);
         bottomNavigation = findViewById(R.id.bottom_navigation);
+        sortChipGroup = findViewById(R.id.sort_chip_group);
         
         setSupportActionBar(toolbar);
     }
     
     private void setupRecyclerView() {
         restaurantAdapter = new RestaurantAdapter(this);
+        restaurantAdapter.setViewHolderPool(viewHolderPool);
         restaurantRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        restaurantRecyclerView.setRecycledViewPool(viewHolderPool);
         restaurantRecyclerView.setAdapter(restaurantAdapter);
+        viewHolderPool.preinflate(this, RestaurantAdapter.VIEW_TYPE, PREINFLATED_RESTAURANT_CARDS);
+        restaurantRecyclerView.addOnScrollListener(restaurantAdapter.createImagePreloader());
         
         restaurantAdapter.setOnRestaurantClickListener(new RestaurantAdapter.OnRestaurantClickListener() {
             @Override
@@ -79,6 +139,8 @@ public class MainActivity extends AppCompatActivity {
             
             @Override
             public void onViewMenuClick(Restaurant restaurant) {
+                // Items are added from the menu, so that is where the restaurant's cart starts
+                CartManager.getInstance(MainActivity.this).startCart(restaurant, Cart.ORDER_TYPE_DELIVERY);
                 // Navigate to restaurant menu
                 // Intent intent = new Intent(MainActivity.this, RestaurantMenuActivity.class);
                 // intent.putExtra("restaurant_id", restaurant.getId());
@@ -89,11 +151,31 @@ public class MainActivity extends AppCompatActivity {
     }
     
     private void setupListeners() {
-        swipeRefreshLayout.setOnRefreshListener(this::loadRestaurants);
+        swipeRefreshLayout.setOnRefreshListener(() -> viewModel.loadRestaurants());
+        
+        sortChipGroup.setOnCheckedStateChangeListener((group, checkedIds) -> {
+            int chipId = checkedIds.isEmpty() ? View.NO_ID : checkedIds.get(0);
+            if (chipId == R.id.sort_recommended) {
+                viewModel.sortBy(RestaurantRanker.Weights.RECOMMENDED, 0);
+            } else if (chipId == R.id.sort_rating) {
+                viewModel.sortBy(RestaurantRanker.Weights.BY_RATING, 0);
+            } else if (chipId == R.id.sort_delivery_fee) {
+                // Fees and minimum orders only mean something for restaurants that deliver
+                viewModel.sortBy(RestaurantRanker.Weights.BY_DELIVERY_FEE, RestaurantCatalog.FLAG_DELIVERY);
+            } else if (chipId == R.id.sort_minimum_order) {
+                viewModel.sortBy(RestaurantRanker.Weights.BY_MINIMUM_ORDER, RestaurantCatalog.FLAG_DELIVERY);
+            } else {
+                viewModel.sortBy(null, 0);
+            }
+        });
         
         cartFab.setOnClickListener(v -> {
             // Navigate to cart
-            Toast.makeText(this, "Shopping cart", Toast.LENGTH_SHORT).show();
+            Cart cart = CartManager.getInstance(this).getCart();
+            String summary = cart == null || cart.isEmpty()
+                    ? "Your cart is empty"
+                    : cart.getItemCount() + " items · " + cart.getFormattedTotal();
+            Toast.makeText(this, summary, Toast.LENGTH_SHORT).show();
         });
         
         bottomNavigation.setOnItemSelectedListener(item -> {
@@ -102,12 +184,10 @@ public class MainActivity extends AppCompatActivity {
                 // Already on home
                 return true;
             } else if (itemId == R.id.navigation_vouchers) {
-                // Navigate to vouchers
-                Toast.makeText(this, "My vouchers", Toast.LENGTH_SHORT).show();
+                showVouchers();
                 return true;
             } else if (itemId == R.id.navigation_orders) {
-                // Navigate to orders
-                Toast.makeText(this, "My orders", Toast.LENGTH_SHORT).show();
+                showOrderHistory();
                 return true;
             } else if (itemId == R.id.navigation_profile) {
                 // Navigate to profile
@@ -122,35 +202,193 @@ public class MainActivity extends AppCompatActivity {
         });
     }
     
-    private void loadRestaurants() {
-        swipeRefreshLayout.setRefreshing(true);
+    private void observeViewModel(String firstRowSource) {
+        viewModel.getRestaurants().observe(this, restaurants -> {
+            // A selected sort chip re-ranks the new list and shows it through getRanked
+            if (!viewModel.isSorted()) restaurantAdapter.updateRestaurants(restaurants);
+            logTimeToFirstRow(firstRowSource);
+        });
+        
+        viewModel.getRanked().observe(this, ranked -> {
+            if (ranked != null) {
+                restaurantAdapter.updateCatalog(ranked.catalog, ranked.rows);
+            } else if (viewModel.hasRestaurants()) {
+                restaurantAdapter.updateRestaurants(viewModel.getRestaurants().getValue());
+            }
+        });
+        
+        viewModel.getDeliveringToUser().observe(this, delivering -> toolbar.setSubtitle(delivering == null
+                ? null
+                : getResources().getQuantityString(R.plurals.restaurants_delivering_to_you,
+                        delivering.size(), delivering.size())));
         
-        Call<List<Restaurant>> call = apiService.getRestaurants();
-        call.enqueue(new Callback<List<Restaurant>>() {
+        viewModel.isLoading().observe(this, loading -> swipeRefreshLayout.setRefreshing(loading));
+        
+        viewModel.getMessages().observe(this, message -> {
+            if (message == null) return;
+            Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+            viewModel.onMessageShown();
+        });
+    }
+    
+    // The first active voucher's code, ready to scan at the restaurant; without one, the best deal on offer
+    private void showVouchers() {
+        int customerId = AuthManager.getInstance(this).getCurrentUserId();
+        ResourceRepository.getInstance(this).getCustomerVouchers(customerId, new ResourceCache.Callback<List<Voucher>>() {
+            private boolean shown;
+            
+            @Override
+            public void onResult(List<Voucher> vouchers, boolean stale) {
+                // The revalidated list only refreshes the prefetched codes
+                if (shown || isDestroyed()) return;
+                shown = true;
+                for (Voucher voucher : vouchers) {
+                    if (voucher.isActive()) {
+                        showVoucherCode(voucher);
+                        return;
+                    }
+                }
+                showBestDeal();
+            }
+            
+            @Override
+            public void onError(String message) {
+                // A failed revalidation after the cached list has nothing more to show
+                if (shown || isDestroyed()) return;
+                shown = true;
+                showBestDeal();
+            }
+        });
+    }
+    
+    private void showVoucherCode(Voucher voucher) {
+        ImageView code = new ImageView(this);
+        code.setAdjustViewBounds(true);
+        AlertDialog dialog = new AlertDialog.Builder(this)
+                .setTitle(voucher.getRestaurantName())
+                .setMessage(voucher.getRemainingMealsText())
+                .setView(code)
+                .setPositiveButton(android.R.string.ok, null)
+                .show();
+        
+        // Usually prefetched with the voucher list, so the code is there on the first frame
+        Bitmap cached = QrCodeRenderer.getInstance(this).getCached(voucher);
+        if (cached != null) {
+            code.setImageBitmap(cached);
+            return;
+        }
+        QrCodeRenderer.getInstance(this).render(voucher, new QrCodeRenderer.Callback() {
+            @Override
+            public void onQrCode(Bitmap bitmap) {
+                if (dialog.isShowing()) code.setImageBitmap(bitmap);
+            }
+            
+            @Override
+            public void onError(String message) {
+                if (!dialog.isShowing()) return;
+                dialog.dismiss();
+                Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+    
+    // Best savings at a restaurant delivering to the user, or anywhere when the address is unknown
+    private void showBestDeal() {
+        VoucherDealsRepository deals = VoucherDealsRepository.getInstance(this);
+        deals.load(new VoucherDealsRepository.IndexCallback() {
+            private boolean shown;
+            
             @Override
-            public void onResponse(Call<List<Restaurant>> call, Response<List<Restaurant>> response) {
-                swipeRefreshLayout.setRefreshing(false);
-                
-                if (response.isSuccessful() && response.body() != null) {
-                    List<Restaurant> restaurants = response.body();
-                    restaurantAdapter.updateRestaurants(restaurants);
+            public void onIndex(PackageValueIndex index, boolean stale) {
+                // A revalidated answer after the cached one only refreshes the index for next time
+                if (shown) return;
+                shown = true;
+                String address = AddressGeocoder.formatAddress(AuthManager.getInstance(MainActivity.this).getUserData());
+                AddressGeocoder.getInstance(MainActivity.this).resolve(address, new AddressGeocoder.Callback() {
+                    @Override
+                    public void onLocation(double latitude, double longitude) {
+                        viewModel.getRepository().whenIndexed(() -> showDeal(deals.getIndex(),
+                                deals.bestDealsNear(latitude, longitude, PackageValueIndex.Order.SAVINGS, null, 1)));
+                    }
                     
-                    if (restaurants.isEmpty()) {
-                        Toast.makeText(MainActivity.this, "No restaurants found", Toast.LENGTH_SHORT).show();
+                    @Override
+                    public void onUnavailable() {
+                        showDeal(index, index.query(PackageValueIndex.Order.SAVINGS, StringDictionary.NO_CODE,
+                                StringDictionary.NO_CODE, null, 1));
                     }
-                } else {
-                    Toast.makeText(MainActivity.this, "Failed to load restaurants", Toast.LENGTH_SHORT).show();
+                });
+            }
+            
+            @Override
+            public void onError(String message) {
+                if (!isDestroyed()) Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+    
+    private void showDeal(PackageValueIndex index, int[] rows) {
+        if (isDestroyed()) return;
+        if (rows.length == 0) {
+            Toast.makeText(this, "No voucher deals yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        
+        int row = rows[0];
+        // Packages of restaurants missing from the last synced catalog have no name
+        String name = index.getRestaurantName(row);
+        String restaurant = name != null ? name : "Restaurant #" + index.getRestaurantId(row);
+        String summary = String.format(Locale.US, "Best deal: %s · %d%% off · €%.2f a meal", restaurant,
+                index.getSavingsBasisPoints(row) / 100, index.getPricePerMealCents(row) / 100.0);
+        Toast.makeText(this, summary, Toast.LENGTH_SHORT).show();
+    }
+    
+    // Shows the stored history right away, then again if the sync brought new orders
+    private void showOrderHistory() {
+        int customerId = AuthManager.getInstance(this).getCurrentUserId();
+        OrderHistoryRepository orders = OrderHistoryRepository.getInstance(this);
+        orders.loadPage(customerId, 0, 1, this::showLatestOrder);
+        orders.sync(callScope, customerId, new OrderHistoryRepository.SyncCallback() {
+            @Override
+            public void onSynced(int newOrders) {
+                if (newOrders > 0 && !callScope.isClosed()) {
+                    orders.loadPage(customerId, 0, 1, MainActivity.this::showLatestOrder);
                 }
             }
             
             @Override
-            public void onFailure(Call<List<Restaurant>> call, Throwable t) {
-                swipeRefreshLayout.setRefreshing(false);
-                Toast.makeText(MainActivity.this, "Network error: " + t.getMessage(), Toast.LENGTH_SHORT).show();
+            public void onError(String message) {
+                Log.w(TAG, "Order history sync failed: " + message);
             }
         });
     }
     
+    private void showLatestOrder(List<OrderSummary> page, int totalCount) {
+        if (isDestroyed()) return;
+        String summary = page.isEmpty()
+                ? "No orders yet"
+                : totalCount + " orders · latest " + page.get(0).getOrderNumber() + " "
+                        + page.get(0).getStatusText() + " · " + page.get(0).getFormattedTotal();
+        Toast.makeText(this, summary, Toast.LENGTH_SHORT).show();
+    }
+    
+    // Renders the last synced catalog straight from the mapped snapshot while the network request runs
+    private void showCatalogSnapshot() {
+        CatalogSnapshot snapshot = viewModel.getRepository().openCatalogSnapshot();
+        if (snapshot != null && snapshot.size() > 0) {
+            restaurantAdapter.updateCatalog(snapshot, snapshot.allRows());
+            logTimeToFirstRow("snapshot");
+        }
+    }
+    
+    private void logTimeToFirstRow(String source) {
+        if (firstRowLogged) return;
+        firstRowLogged = true;
+        
+        // Posted so the measurement includes the layout pass that binds the first rows
+        restaurantRecyclerView.post(() -> Log.i(TAG, "Time to first row from " + source + ": "
+                + (SystemClock.uptimeMillis() - createdAtMs) + " ms"));
+    }
+    
     private void navigateToLogin() {
         Intent intent = new Intent(this, LoginActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
@@ -158,6 +396,33 @@ public class MainActivity extends AppCompatActivity {
         finish();
     }
     
+    @Override
+    protected void onStop() {
+        super.onStop();
+        
+        // Debug builds keep scroll histograms, cache and call counters on disk so test runs can pull and compare them
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            File file = new File(getFilesDir(), FRAME_METRICS_FILE);
+            File cacheFile = new File(getFilesDir(), CACHE_METRICS_FILE);
+            File callFile = new File(getFilesDir(), CALL_METRICS_FILE);
+            AppExecutors.getInstance().diskIO().execute(() -> {
+                try {
+                    FrameMetricsRecorder.getInstance().exportTo(file);
+                    ResourceCache.getInstance(this).getMetrics().exportTo(cacheFile);
+                    CallMetrics.getInstance().exportTo(callFile);
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to export metrics", e);
+                }
+            });
+        }
+    }
+    
+    @Override
+    protected void onDestroy() {
+        FrameMetricsRecorder.getInstance().detach(this);
+        super.onDestroy();
+    }
+    
     @Override
     protected void onResume() {
         super.onResume();
@@ -11,6 +11,7 @@ import com.eatoff.android.MainActivity;
 import com.eatoff.android.R;
 import com.eatoff.android.api.ApiClient;
 import com.eatoff.android.api.ApiService;
+import com.eatoff.android.api.CallScope;
 import com.eatoff.android.api.LoginRequest;
 import com.eatoff.android.api.LoginResponse;
 import com.eatoff.android.models.Customer;
@@ -31,6 +32,8 @@ public class LoginActivity extends AppCompatActivity {
     private TextView statusTextView;
     
     private ApiService apiService;
+    // Cancels login and connection checks still running when the activity is destroyed
+    private CallScope callScope;
     private boolean isLoggingIn = false;
     
     @Override
@@ -48,6 +51,7 @@ public class LoginActivity extends AppCompatActivity {
         setupListeners();
         
         apiService = ApiClient.getInstance().getApiService();
+        callScope = CallScope.bindTo(this);
     }
     
     private void initializeViews() {
@@ -91,9 +95,7 @@ public class LoginActivity extends AppCompatActivity {
         setLoadingState(true, "Logging in...");
         
         LoginRequest loginRequest = new LoginRequest(email, password);
-        Call<LoginResponse> call = apiService.login(loginRequest);
-        
-        call.enqueue(new Callback<LoginResponse>() {
+        callScope.enqueue(apiService.login(loginRequest), new Callback<LoginResponse>() {
             @Override
             public void onResponse(Call<LoginResponse> call, Response<LoginResponse> response) {
                 isLoggingIn = false;
@@ -132,8 +134,7 @@ public class LoginActivity extends AppCompatActivity {
     private void testServerConnection() {
         setLoadingState(true, "Testing connection...");
         
-        Call<List<Restaurant>> call = apiService.testConnection(1);
-        call.enqueue(new Callback<List<Restaurant>>() {
+        callScope.enqueue(apiService.testConnection(1), new Callback<List<Restaurant>>() {
             @Override
             public void onResponse(Call<List<Restaurant>> call, Response<List<Restaurant>> response) {
                 setLoadingState(false, null);
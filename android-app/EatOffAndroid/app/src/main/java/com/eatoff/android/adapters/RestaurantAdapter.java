@@ -1,6 +1,7 @@
 package com.eatoff.android.adapters;
 
 import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -8,19 +9,69 @@ import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.GlideException;
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.ViewPreloadSizeProvider;
 import com.eatoff.android.R;
+import com.eatoff.android.catalog.RestaurantRows;
+import com.eatoff.android.metrics.FrameMetricsRecorder;
 import com.eatoff.android.models.Restaurant;
-import java.util.ArrayList;
+import com.eatoff.android.utils.AppExecutors;
+import com.eatoff.android.utils.TextLayoutCache;
+import java.util.Collections;
 import java.util.List;
 
-public class RestaurantAdapter extends RecyclerView.Adapter<RestaurantAdapter.RestaurantViewHolder> {
+public class RestaurantAdapter extends RecyclerView.Adapter<RestaurantAdapter.RestaurantViewHolder>
+        implements ListPreloader.PreloadModelProvider<String> {
     
-    private List<Restaurant> restaurants;
+    private static final String TAG = "RestaurantAdapter";
+    // Cards are tall, so a few rows ahead already covers more than a screen of flinging
+    private static final int PRELOAD_ROWS = 4;
+    // Descriptions are measured in a window around the last bound row, mostly ahead of it
+    private static final int PRECOMPUTE_ROWS_AHEAD = 30;
+    private static final int PRECOMPUTE_ROWS_BEHIND = 10;
+    // Several windows' worth, so rows scrolled back to are usually still measured
+    private static final int TEXT_CACHE_ENTRIES = 200;
+    
+    // The layout id doubles as the view type so holders can share a pool with other lists
+    public static final int VIEW_TYPE = R.layout.item_restaurant;
+    
+    // Shared by every card so binds never rebuild request or transition options. The explicit
+    // centerCrop matches what the ImageView would apply, so preloads and binds share cache keys,
+    // and the disk cache keeps the card-sized variant rather than the full-size source.
+    private static final RequestOptions CARD_IMAGE_OPTIONS = new RequestOptions()
+            .centerCrop()
+            .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
+            .placeholder(R.drawable.ic_restaurant_placeholder)
+            .error(R.drawable.ic_restaurant_placeholder);
+    private static final DrawableTransitionOptions CROSS_FADE = DrawableTransitionOptions.withCrossFade();
+    
+    private RestaurantListSnapshot items = RestaurantListSnapshot.EMPTY;
+    // Bumped on every update so a diff that finishes after a newer update is dropped
+    private int generation;
     private Context context;
+    private RequestManager glide;
+    // Takes its size from the first measured restaurant_image, so preloads decode at the exact card size
+    private final ViewPreloadSizeProvider<String> imageSizeProvider = new ViewPreloadSizeProvider<>();
+    private final TextLayoutCache descriptionLayouts = new TextLayoutCache(TEXT_CACHE_ENTRIES);
+    // Rows [precomputeFrom, precomputeTo) of items were last queued for measurement
+    private int precomputeFrom;
+    private int precomputeTo;
     private OnRestaurantClickListener listener;
+    private ViewHolderPool viewHolderPool;
+    private final FrameMetricsRecorder frameMetrics = FrameMetricsRecorder.getInstance();
     
     public interface OnRestaurantClickListener {
         void onRestaurantClick(Restaurant restaurant);
@@ -29,37 +80,171 @@ public class RestaurantAdapter extends RecyclerView.Adapter<RestaurantAdapter.Re
     
     public RestaurantAdapter(Context context) {
         this.context = context;
-        this.restaurants = new ArrayList<>();
+        this.glide = Glide.with(context);
+        setHasStableIds(true);
     }
     
     public void setOnRestaurantClickListener(OnRestaurantClickListener listener) {
         this.listener = listener;
     }
     
+    // Lets onCreateViewHolder use cards the pool inflated in the background
+    public void setViewHolderPool(ViewHolderPool viewHolderPool) {
+        this.viewHolderPool = viewHolderPool;
+    }
+    
+    /**
+     * Scroll listener that loads images for the rows about to appear in the current scroll
+     * direction and cancels preloads for rows the list has moved away from.
+     */
+    public RecyclerView.OnScrollListener createImagePreloader() {
+        return new RecyclerViewPreloader<>(glide, this, imageSizeProvider, PRELOAD_ROWS);
+    }
+    
+    @NonNull
+    @Override
+    public List<String> getPreloadItems(int position) {
+        if (position >= items.size()) return Collections.emptyList();
+        
+        String imageUrl = items.getImageUrl(position);
+        return imageUrl != null && !imageUrl.isEmpty()
+                ? Collections.singletonList(imageUrl)
+                : Collections.<String>emptyList();
+    }
+    
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull String imageUrl) {
+        return imageRequest(imageUrl);
+    }
+    
+    private RequestBuilder<Drawable> imageRequest(String imageUrl) {
+        return glide.load(imageUrl)
+                .apply(CARD_IMAGE_OPTIONS)
+                .transition(CROSS_FADE);
+    }
+    
     public void updateRestaurants(List<Restaurant> newRestaurants) {
-        this.restaurants.clear();
-        if (newRestaurants != null) {
-            this.restaurants.addAll(newRestaurants);
+        submit(RestaurantListSnapshot.ofRestaurants(newRestaurants));
+    }
+    
+    // Binds straight from a columnar catalog or mapped snapshot; rows is the filtered/sorted view to show
+    public void updateCatalog(RestaurantRows catalog, int[] rows) {
+        submit(RestaurantListSnapshot.ofCatalog(catalog, rows));
+    }
+    
+    private void submit(RestaurantListSnapshot newItems) {
+        RestaurantListSnapshot oldItems = items;
+        int submitted = ++generation;
+        
+        // Nothing to diff against: apply right away so the first rows show without a hop
+        if (oldItems.size() == 0 || newItems.size() == 0) {
+            items = newItems;
+            if (oldItems.size() > 0) notifyItemRangeRemoved(0, oldItems.size());
+            if (newItems.size() > 0) notifyItemRangeInserted(0, newItems.size());
+            resetPrecomputeWindow();
+            return;
         }
-        notifyDataSetChanged();
+        
+        AppExecutors executors = AppExecutors.getInstance();
+        executors.computation().execute(() -> {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new RestaurantDiffCallback(oldItems, newItems));
+            executors.mainThread().execute(() -> {
+                if (submitted != generation) return;
+                items = newItems;
+                result.dispatchUpdatesTo(this);
+                resetPrecomputeWindow();
+            });
+        });
+    }
+    
+    // New rows: measure from the top again; binds move the window to wherever the list is
+    private void resetPrecomputeWindow() {
+        precomputeFrom = 0;
+        precomputeTo = 0;
+        precomputeAround(0);
+    }
+    
+    /**
+     * Queues the descriptions of the rows around a bound position that the previous window did
+     * not cover. Binds inside the window queue nothing; the cache evicts in FIFO order, so rows
+     * left far behind go first.
+     */
+    private void precomputeAround(int position) {
+        if (!descriptionLayouts.hasParams()) return;
+        
+        int from = Math.max(0, position - PRECOMPUTE_ROWS_BEHIND);
+        int to = Math.min(items.size(), position + PRECOMPUTE_ROWS_AHEAD + 1);
+        if (from >= precomputeFrom && to <= precomputeTo) return;
+        
+        for (int row = from; row < to; row++) {
+            if (row < precomputeFrom || row >= precomputeTo) {
+                descriptionLayouts.precompute(items.getId(row), items.getDescription(row));
+            }
+        }
+        precomputeFrom = from;
+        precomputeTo = to;
     }
     
     @NonNull
     @Override
     public RestaurantViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(context).inflate(R.layout.item_restaurant, parent, false);
-        return new RestaurantViewHolder(view);
+        View view = viewHolderPool != null ? viewHolderPool.obtainView(R.layout.item_restaurant) : null;
+        if (view == null) {
+            view = LayoutInflater.from(context).inflate(R.layout.item_restaurant, parent, false);
+        }
+        RestaurantViewHolder holder = new RestaurantViewHolder(view);
+        imageSizeProvider.setView(holder.restaurantImage);
+        if (!descriptionLayouts.hasParams()) {
+            // Text metrics are only known once a card exists; catch up on the rows already submitted
+            descriptionLayouts.setParams(holder.restaurantDescription);
+            resetPrecomputeWindow();
+        }
+        return holder;
     }
     
     @Override
     public void onBindViewHolder(@NonNull RestaurantViewHolder holder, int position) {
-        Restaurant restaurant = restaurants.get(position);
-        holder.bind(restaurant);
+        frameMetrics.markBind(TAG);
+        precomputeAround(position);
+        items.readCard(position, holder.content);
+        holder.bind();
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull RestaurantViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        
+        frameMetrics.markBind(TAG);
+        int changes = 0;
+        for (Object payload : payloads) {
+            changes |= (Integer) payload;
+        }
+        items.readCard(position, holder.content);
+        holder.bindChanges(changes);
+    }
+    
+    // A recycled holder may be rebound to its old row after its image was cleared, so it loads again
+    @Override
+    public void onViewRecycled(@NonNull RestaurantViewHolder holder) {
+        holder.boundImageUrl = null;
     }
     
     @Override
     public int getItemCount() {
-        return restaurants.size();
+        return items.size();
+    }
+    
+    @Override
+    public int getItemViewType(int position) {
+        return VIEW_TYPE;
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        return items.getId(position);
     }
     
     class RestaurantViewHolder extends RecyclerView.ViewHolder {
@@ -73,6 +258,26 @@ public class RestaurantAdapter extends RecyclerView.Adapter<RestaurantAdapter.Re
         private TextView restaurantDescription;
         private Button voucherPackagesButton;
         private Button viewMenuButton;
+        private final RestaurantCardContent content = new RestaurantCardContent();
+        // URL of the request in flight or shown; null when the next bind must load again
+        private String boundImageUrl;
+        
+        // One per holder, so binds never allocate a listener. A failed load forgets its URL
+        // and the next bind of the card retries it.
+        private final RequestListener<Drawable> imageListener = new RequestListener<Drawable>() {
+            @Override
+            public boolean onLoadFailed(GlideException e, Object model, @NonNull Target<Drawable> target,
+                                        boolean isFirstResource) {
+                if (model != null && model.equals(boundImageUrl)) boundImageUrl = null;
+                return false;
+            }
+            
+            @Override
+            public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model, Target<Drawable> target,
+                                           @NonNull DataSource dataSource, boolean isFirstResource) {
+                return false;
+            }
+        };
         
         public RestaurantViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -86,51 +291,63 @@ public class RestaurantAdapter extends RecyclerView.Adapter<RestaurantAdapter.Re
             restaurantDescription = itemView.findViewById(R.id.restaurant_description);
             voucherPackagesButton = itemView.findViewById(R.id.voucher_packages_button);
             viewMenuButton = itemView.findViewById(R.id.view_menu_button);
-        }
-        
-        public void bind(Restaurant restaurant) {
-            // Set basic information
-            restaurantName.setText(restaurant.getName());
-            restaurantCuisine.setText(restaurant.getCuisine());
-            restaurantPriceRange.setText(restaurant.getPriceRange());
-            restaurantLocation.setText(restaurant.getLocation());
-            restaurantDescription.setText(restaurant.getDescription());
             
-            // Set rating
-            String rating = restaurant.getFormattedRating();
-            restaurantRating.setText(rating);
-            
-            // Load restaurant image
-            if (restaurant.getImageUrl() != null && !restaurant.getImageUrl().isEmpty()) {
-                Glide.with(context)
-                    .load(restaurant.getImageUrl())
-                    .placeholder(R.drawable.ic_restaurant_placeholder)
-                    .error(R.drawable.ic_restaurant_placeholder)
-                    .transition(DrawableTransitionOptions.withCrossFade())
-                    .into(restaurantImage);
-            } else {
-                restaurantImage.setImageResource(R.drawable.ic_restaurant_placeholder);
-            }
-            
-            // Set click listeners
-            voucherPackagesButton.setOnClickListener(v -> {
-                if (listener != null) {
+            // Listeners are created once per holder and resolve the restaurant at click time;
+            // catalog rows are only materialized into Restaurant objects here
+            View.OnClickListener openRestaurant = v -> {
+                Restaurant restaurant = boundRestaurant();
+                if (restaurant != null && listener != null) {
                     listener.onRestaurantClick(restaurant);
                 }
-            });
+            };
+            voucherPackagesButton.setOnClickListener(openRestaurant);
+            // Make entire card clickable for voucher packages
+            itemView.setOnClickListener(openRestaurant);
             
             viewMenuButton.setOnClickListener(v -> {
-                if (listener != null) {
+                Restaurant restaurant = boundRestaurant();
+                if (restaurant != null && listener != null) {
                     listener.onViewMenuClick(restaurant);
                 }
             });
+        }
+        
+        void bind() {
+            // Set basic information
+            restaurantName.setText(content.name);
+            restaurantCuisine.setText(content.cuisine);
+            restaurantPriceRange.setText(content.priceRange);
+            restaurantLocation.setText(content.location);
+            descriptionLayouts.apply(restaurantDescription, content.id, content.description);
             
-            // Make entire card clickable for voucher packages
-            itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onRestaurantClick(restaurant);
+            // Set rating
+            restaurantRating.setText(content.ratingLabel);
+            
+            // Load restaurant image; a rebind of the same card keeps the request already in flight.
+            // Recorded before starting the request, which may fail synchronously.
+            String imageUrl = content.imageUrl;
+            String previousUrl = boundImageUrl;
+            boundImageUrl = imageUrl;
+            if (imageUrl != null && !imageUrl.isEmpty()) {
+                if (!imageUrl.equals(previousUrl)) {
+                    imageRequest(imageUrl).listener(imageListener).into(restaurantImage);
                 }
-            });
+            } else if (previousUrl != null || restaurantImage.getDrawable() == null) {
+                glide.clear(restaurantImage);
+                restaurantImage.setImageResource(R.drawable.ic_restaurant_placeholder);
+            }
+        }
+        
+        // Rebinds only what a diff payload reports as changed
+        void bindChanges(int changes) {
+            if ((changes & RestaurantDiffCallback.PAYLOAD_RATING) != 0) {
+                restaurantRating.setText(content.ratingLabel);
+            }
+        }
+        
+        private Restaurant boundRestaurant() {
+            int position = getBindingAdapterPosition();
+            return position != RecyclerView.NO_POSITION ? items.toRestaurant(position) : null;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.eatoff.android.adapters;
+
+/**
+ * Display values of one restaurant card. Each view holder owns a single instance that is
+ * refilled on every bind, so reading a row never allocates a per-bind object.
+ */
+final class RestaurantCardContent {
+    
+    int id;
+    String name;
+    String cuisine;
+    String priceRange;
+    String location;
+    String description;
+    String ratingLabel;
+    String imageUrl;
+}
\ No newline at end of file
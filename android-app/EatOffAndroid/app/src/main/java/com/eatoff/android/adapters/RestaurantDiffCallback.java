@@ -0,0 +1,64 @@
+package com.eatoff.android.adapters;
+
+import androidx.recyclerview.widget.DiffUtil;
+import java.util.Objects;
+
+/**
+ * Diffs two {@link RestaurantListSnapshot}s by restaurant id. When only the rating changed,
+ * the change carries a payload so the card rebinds that field alone instead of reloading
+ * its image and relaying out its text.
+ */
+class RestaurantDiffCallback extends DiffUtil.Callback {
+    
+    static final int PAYLOAD_RATING = 1;
+    
+    private final RestaurantListSnapshot oldItems;
+    private final RestaurantListSnapshot newItems;
+    
+    RestaurantDiffCallback(RestaurantListSnapshot oldItems, RestaurantListSnapshot newItems) {
+        this.oldItems = oldItems;
+        this.newItems = newItems;
+    }
+    
+    @Override
+    public int getOldListSize() {
+        return oldItems.size();
+    }
+    
+    @Override
+    public int getNewListSize() {
+        return newItems.size();
+    }
+    
+    @Override
+    public boolean areItemsTheSame(int oldPosition, int newPosition) {
+        return oldItems.getId(oldPosition) == newItems.getId(newPosition);
+    }
+    
+    @Override
+    public boolean areContentsTheSame(int oldPosition, int newPosition) {
+        return displayedFieldsEqual(oldPosition, newPosition)
+                && Float.compare(oldItems.getRating(oldPosition), newItems.getRating(newPosition)) == 0;
+    }
+    
+    @Override
+    public Object getChangePayload(int oldPosition, int newPosition) {
+        // Anything beyond the rating needs a full rebind
+        if (!displayedFieldsEqual(oldPosition, newPosition)) return null;
+        
+        int changes = 0;
+        if (Float.compare(oldItems.getRating(oldPosition), newItems.getRating(newPosition)) != 0) {
+            changes |= PAYLOAD_RATING;
+        }
+        return changes;
+    }
+    
+    private boolean displayedFieldsEqual(int oldPosition, int newPosition) {
+        return Objects.equals(oldItems.getName(oldPosition), newItems.getName(newPosition))
+                && Objects.equals(oldItems.getCuisine(oldPosition), newItems.getCuisine(newPosition))
+                && Objects.equals(oldItems.getLocation(oldPosition), newItems.getLocation(newPosition))
+                && Objects.equals(oldItems.getPriceRange(oldPosition), newItems.getPriceRange(newPosition))
+                && Objects.equals(oldItems.getDescription(oldPosition), newItems.getDescription(newPosition))
+                && Objects.equals(oldItems.getImageUrl(oldPosition), newItems.getImageUrl(newPosition));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.eatoff.android.adapters;
+
+import com.eatoff.android.catalog.RestaurantCatalog;
+import com.eatoff.android.catalog.RestaurantRows;
+import com.eatoff.android.models.Restaurant;
+import com.eatoff.android.utils.RatingFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable contents of {@link RestaurantAdapter}: either a list of {@link Restaurant}
+ * objects or a set of rows in a {@link RestaurantRows} source. Both shapes expose the same
+ * per-position accessors so a diff can run across a snapshot-to-network switch.
+ */
+final class RestaurantListSnapshot {
+    
+    static final RestaurantListSnapshot EMPTY =
+            new RestaurantListSnapshot(Collections.<Restaurant>emptyList(), null, null);
+    
+    // Ratings are never negative, so this marks a list rating that has not been parsed yet
+    private static final float UNPARSED = -1f;
+    
+    private final List<Restaurant> restaurants;
+    private final RestaurantRows catalog;
+    private final int[] rows;
+    // Parsed once per position; Restaurant.rating is a String or Number straight from JSON
+    private final float[] ratings;
+    
+    private RestaurantListSnapshot(List<Restaurant> restaurants, RestaurantRows catalog, int[] rows) {
+        this.restaurants = restaurants;
+        this.catalog = catalog;
+        this.rows = rows;
+        if (restaurants != null) {
+            ratings = new float[restaurants.size()];
+            Arrays.fill(ratings, UNPARSED);
+        } else {
+            ratings = null;
+        }
+    }
+    
+    static RestaurantListSnapshot ofRestaurants(List<Restaurant> restaurants) {
+        if (restaurants == null || restaurants.isEmpty()) return EMPTY;
+        // Copied so callers can keep mutating their list while a diff runs
+        return new RestaurantListSnapshot(new ArrayList<>(restaurants), null, null);
+    }
+    
+    static RestaurantListSnapshot ofCatalog(RestaurantRows catalog, int[] rows) {
+        return new RestaurantListSnapshot(null, catalog, rows);
+    }
+    
+    int size() {
+        return catalog != null ? rows.length : restaurants.size();
+    }
+    
+    Restaurant toRestaurant(int position) {
+        return catalog != null ? catalog.toRestaurant(rows[position]) : restaurants.get(position);
+    }
+    
+    void readCard(int position, RestaurantCardContent into) {
+        float rating = getRating(position);
+        
+        if (catalog != null) {
+            into.ratingLabel = RatingFormatter.format(rating);
+            int row = rows[position];
+            into.id = catalog.getId(row);
+            into.name = catalog.getName(row);
+            into.cuisine = catalog.getCuisine(row);
+            into.priceRange = catalog.getPriceRange(row);
+            into.location = catalog.getLocation(row);
+            into.description = catalog.getDescription(row);
+            into.imageUrl = catalog.getImageUrl(row);
+            return;
+        }
+        
+        Restaurant restaurant = restaurants.get(position);
+        // A rating that does not parse is shown as sent
+        into.ratingLabel = Float.isNaN(rating) ? restaurant.getFormattedRating() : RatingFormatter.format(rating);
+        into.id = restaurant.getId();
+        into.name = restaurant.getName();
+        into.cuisine = restaurant.getCuisine();
+        into.priceRange = restaurant.getPriceRange();
+        into.location = restaurant.getLocation();
+        into.description = restaurant.getDescription();
+        into.imageUrl = restaurant.getImageUrl();
+    }
+    
+    int getId(int position) {
+        return catalog != null ? catalog.getId(rows[position]) : restaurants.get(position).getId();
+    }
+    
+    String getName(int position) {
+        return catalog != null ? catalog.getName(rows[position]) : restaurants.get(position).getName();
+    }
+    
+    String getCuisine(int position) {
+        return catalog != null ? catalog.getCuisine(rows[position]) : restaurants.get(position).getCuisine();
+    }
+    
+    String getLocation(int position) {
+        return catalog != null ? catalog.getLocation(rows[position]) : restaurants.get(position).getLocation();
+    }
+    
+    String getPriceRange(int position) {
+        return catalog != null ? catalog.getPriceRange(rows[position]) : restaurants.get(position).getPriceRange();
+    }
+    
+    String getDescription(int position) {
+        return catalog != null ? catalog.getDescription(rows[position]) : restaurants.get(position).getDescription();
+    }
+    
+    String getImageUrl(int position) {
+        return catalog != null ? catalog.getImageUrl(rows[position]) : restaurants.get(position).getImageUrl();
+    }
+    
+    // Float precision, which is what the catalog stores; NaN when the restaurant has no rating
+    float getRating(int position) {
+        if (catalog != null) {
+            return catalog.getRating(rows[position]);
+        }
+        
+        // Racing writers (bind and diff threads) store the same value, so no locking is needed
+        float rating = ratings[position];
+        if (rating == UNPARSED) {
+            rating = RestaurantCatalog.parseRating(restaurants.get(position).getRating());
+            ratings[position] = rating;
+        }
+        return rating;
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.eatoff.android.adapters;
+
+import android.content.Context;
+import android.os.Looper;
+import android.util.Log;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import androidx.annotation.LayoutRes;
+import androidx.recyclerview.widget.RecyclerView;
+import com.eatoff.android.utils.AppExecutors;
+import java.util.ArrayDeque;
+
+/**
+ * Recycled view pool shared by the lists of one screen, plus a queue of item layouts that
+ * were inflated on a background thread while the main thread was idle.
+ *
+ * Adapters using the pool build their holders around {@link #obtainView(int)} in
+ * {@code onCreateViewHolder} and return their layout id from {@code getItemViewType}, so
+ * view types stay unique across lists. The pool holds activity-context views and must not
+ * outlive its screen.
+ */
+public class ViewHolderPool extends RecyclerView.RecycledViewPool {
+    
+    private static final String TAG = "ViewHolderPool";
+    
+    // Main-thread only
+    private final SparseArray<ArrayDeque<View>> inflatedViews = new SparseArray<>();
+    
+    /**
+     * Once the main thread goes idle, inflates {@code count} copies of the layout in the
+     * background and queues them for {@link #obtainView(int)}.
+     */
+    public void preinflate(Context context, @LayoutRes int layout, int count) {
+        if (count <= 0) return;
+        
+        // Cloned so the background thread keeps the AppCompat/Material view factories
+        LayoutInflater inflater = LayoutInflater.from(context).cloneInContext(context);
+        // Never attached: it only supplies layout params, so the live list is not touched off the main thread
+        ViewGroup parent = new FrameLayout(context);
+        AppExecutors executors = AppExecutors.getInstance();
+        
+        Looper.myQueue().addIdleHandler(() -> {
+            executors.computation().execute(() -> {
+                for (int i = 0; i < count; i++) {
+                    View view;
+                    try {
+                        view = inflater.inflate(layout, parent, false);
+                    } catch (RuntimeException e) {
+                        // Some view refused background construction; the list inflates on demand
+                        Log.w(TAG, "Background inflation failed", e);
+                        return;
+                    }
+                    executors.mainThread().execute(() -> park(layout, view));
+                }
+            });
+            return false;
+        });
+    }
+    
+    /**
+     * Returns a pre-inflated view of the layout, or null when none is waiting.
+     */
+    public View obtainView(@LayoutRes int layout) {
+        ArrayDeque<View> views = inflatedViews.get(layout);
+        return views != null ? views.poll() : null;
+    }
+    
+    private void park(int layout, View view) {
+        ArrayDeque<View> views = inflatedViews.get(layout);
+        if (views == null) {
+            views = new ArrayDeque<>();
+            inflatedViews.put(layout, views);
+        }
+        views.add(view);
+    }
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.eatoff.android.api;
 
+import com.eatoff.android.utils.AppExecutors;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
@@ -9,7 +10,8 @@ import java.util.concurrent.TimeUnit;
 public class ApiClient {
     private static final String BASE_URL = "https://0c90c681-c530-48b5-a772-aad7086fccf3-00-225nal1mjdpuu.kirk.replit.dev/api/";
     
-    private static ApiClient instance;
+    // Written once; after that every access is a plain volatile read
+    private static volatile ApiClient instance;
     private Retrofit retrofit;
     private ApiService apiService;
     
@@ -31,12 +33,28 @@ public class ApiClient {
                 .baseUrl(BASE_URL)
                 .client(client)
                 .addConverterFactory(GsonConverterFactory.create())
+                // Parse every ApiService method now, on the preloading thread, instead of on first call
+                .validateEagerly(true)
                 .build();
         
         apiService = retrofit.create(ApiService.class);
     }
     
-    public static synchronized ApiClient getInstance() {
+    /**
+     * Builds the client on a background thread. Called at application start so that the
+     * activities' first {@link #getInstance()} finds it ready.
+     */
+    public static void preload() {
+        AppExecutors.getInstance().computation().execute(ApiClient::getInstance);
+    }
+    
+    public static ApiClient getInstance() {
+        ApiClient client = instance;
+        if (client != null) return client;
+        return create();
+    }
+    
+    private static synchronized ApiClient create() {
         if (instance == null) {
             instance = new ApiClient();
         }
@@ -6,6 +6,7 @@ import com.eatoff.android.models.Order;
 import com.eatoff.android.models.OrderRequest;
 import com.eatoff.android.models.Restaurant;
 import com.eatoff.android.models.Voucher;
+import com.eatoff.android.models.VoucherRedemption;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
@@ -13,6 +14,7 @@ import retrofit2.http.POST;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
 import java.util.List;
+import java.util.Map;
 
 public interface ApiService {
     
@@ -36,6 +38,10 @@ public interface ApiService {
     @GET("restaurants/{id}/packages")
     Call<List<VoucherPackage>> getRestaurantPackages(@Path("id") int restaurantId);
     
+    // Active packages of every restaurant in one response
+    @GET("voucher-packages")
+    Call<List<VoucherPackage>> getAllVoucherPackages();
+    
     // Test connection
     @GET("restaurants")
     Call<List<Restaurant>> testConnection(@Query("limit") int limit);
@@ -50,6 +56,14 @@ public interface ApiService {
     @GET("customers/{id}/orders")
     Call<List<Order>> getCustomerOrders(@Path("id") int customerId);
     
+    // Oldest first, only orders with an id above sinceId
+    @GET("customers/{id}/orders")
+    Call<List<Order>> getCustomerOrdersSince(
+        @Path("id") int customerId,
+        @Query("sinceId") int sinceId,
+        @Query("limit") int limit
+    );
+    
     // Orders
     @POST("orders")
     Call<Order> createOrder(@Body OrderRequest orderRequest);
@@ -61,9 +75,22 @@ public interface ApiService {
     @GET("vouchers/{id}")
     Call<Voucher> getVoucher(@Path("id") int voucherId);
     
+    // Vouchers carry their payload in Voucher.getQrCode(); QrCodeRenderer draws it on the device
+    @Deprecated
     @GET("vouchers/{id}/qr-code")
     Call<QRCodeResponse> getVoucherQRCode(@Path("id") int voucherId);
     
+    // Offline validation at the restaurant
+    @GET("vouchers/signing-keys")
+    Call<List<SigningKey>> getVoucherSigningKeys();
+    
+    // Revocations and meal counts changed after sinceVersion; 0 for the full list
+    @GET("vouchers/revocations")
+    Call<VoucherRevocations> getVoucherRevocations(@Query("sinceVersion") long sinceVersion);
+    
+    @POST("vouchers/redemptions")
+    Call<RedemptionReceipt> submitRedemptions(@Body List<VoucherRedemption> redemptions);
+    
     // Voucher package purchase
     @POST("vouchers/purchase")
     Call<VoucherPurchaseResponse> purchaseVoucher(@Body VoucherPurchaseRequest request);
@@ -257,4 +284,43 @@ public interface ApiService {
         public String getMessage() { return message; }
         public void setMessage(String message) { this.message = message; }
     }
+    
+    class SigningKey {
+        private String keyId;
+        // Base64 X.509 EC public key
+        private String publicKey;
+        
+        public String getKeyId() { return keyId; }
+        public void setKeyId(String keyId) { this.keyId = keyId; }
+        
+        public String getPublicKey() { return publicKey; }
+        public void setPublicKey(String publicKey) { this.publicKey = publicKey; }
+    }
+    
+    class VoucherRevocations {
+        private long version;
+        private List<Integer> revokedVoucherIds;
+        // Voucher id to meals used so far, for vouchers redeemed since the requested version
+        private Map<Integer, Integer> usedMeals;
+        
+        public long getVersion() { return version; }
+        public void setVersion(long version) { this.version = version; }
+        
+        public List<Integer> getRevokedVoucherIds() { return revokedVoucherIds; }
+        public void setRevokedVoucherIds(List<Integer> revokedVoucherIds) { this.revokedVoucherIds = revokedVoucherIds; }
+        
+        public Map<Integer, Integer> getUsedMeals() { return usedMeals; }
+        public void setUsedMeals(Map<Integer, Integer> usedMeals) { this.usedMeals = usedMeals; }
+    }
+    
+    class RedemptionReceipt {
+        private List<String> acceptedIds;
+        private List<String> rejectedIds;
+        
+        public List<String> getAcceptedIds() { return acceptedIds; }
+        public void setAcceptedIds(List<String> acceptedIds) { this.acceptedIds = acceptedIds; }
+        
+        public List<String> getRejectedIds() { return rejectedIds; }
+        public void setRejectedIds(List<String> rejectedIds) { this.rejectedIds = rejectedIds; }
+    }
 }
\ No newline at end of file
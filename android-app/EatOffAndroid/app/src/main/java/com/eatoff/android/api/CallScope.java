@@ -0,0 +1,110 @@
+package com.eatoff.android.api;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import com.eatoff.android.metrics.CallMetrics;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Owns the Retrofit calls a screen starts. Closing the scope cancels whatever is still in
+ * flight and releases the callbacks, so a response that races the cancel is dropped instead
+ * of reaching a destroyed activity, and OkHttp no longer keeps that activity reachable.
+ *
+ * Used from the main thread only, which is where Retrofit delivers callbacks on Android.
+ */
+public class CallScope implements DefaultLifecycleObserver {
+    
+    private final Map<Call<?>, ScopedCallback<?>> outstanding = new HashMap<>();
+    private final CallMetrics metrics = CallMetrics.getInstance();
+    private boolean closed;
+    
+    // Closes the scope when the owner is destroyed
+    public static CallScope bindTo(LifecycleOwner owner) {
+        CallScope scope = new CallScope();
+        owner.getLifecycle().addObserver(scope);
+        return scope;
+    }
+    
+    public <T> Call<T> enqueue(Call<T> call, Callback<T> callback) {
+        if (closed) {
+            call.cancel();
+            return call;
+        }
+        
+        ScopedCallback<T> scoped = new ScopedCallback<>(this, callback);
+        outstanding.put(call, scoped);
+        metrics.recordEnqueued();
+        call.enqueue(scoped);
+        return call;
+    }
+    
+    public boolean isClosed() {
+        return closed;
+    }
+    
+    public void close() {
+        if (closed) return;
+        closed = true;
+        
+        for (Map.Entry<Call<?>, ScopedCallback<?>> entry : outstanding.entrySet()) {
+            entry.getValue().release();
+            entry.getKey().cancel();
+            metrics.recordCancelled();
+        }
+        outstanding.clear();
+    }
+    
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        owner.getLifecycle().removeObserver(this);
+        close();
+    }
+    
+    private static final class ScopedCallback<T> implements Callback<T> {
+        private final CallScope scope;
+        // Cleared on close so the pending call stops referencing the screen's callback
+        private Callback<T> delegate;
+        
+        ScopedCallback(CallScope scope, Callback<T> delegate) {
+            this.scope = scope;
+            this.delegate = delegate;
+        }
+        
+        void release() {
+            delegate = null;
+        }
+        
+        @Override
+        public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+            Callback<T> target = delegate;
+            if (target == null) {
+                // Retrofit keeps the raw body's length after conversion
+                ResponseBody body = response.raw().body();
+                scope.metrics.recordLateResult(body != null ? body.contentLength() : -1);
+                return;
+            }
+            scope.outstanding.remove(call);
+            scope.metrics.recordCompleted();
+            target.onResponse(call, response);
+        }
+        
+        @Override
+        public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+            Callback<T> target = delegate;
+            if (target == null) {
+                // The expected outcome of our own cancel is not a late result
+                if (!call.isCanceled()) scope.metrics.recordLateResult(-1);
+                return;
+            }
+            scope.outstanding.remove(call);
+            scope.metrics.recordCompleted();
+            target.onFailure(call, t);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,152 @@
+package com.eatoff.android.cache;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hit, miss and staleness counters per {@link CachePolicy}, for tuning TTLs from real use.
+ */
+public class CacheMetrics {
+    
+    // Guarded by this
+    private final Map<String, Counters> counters = new HashMap<>();
+    
+    public static final class Counters {
+        private long memoryHits;
+        private long diskHits;
+        private long staleHits;
+        private long misses;
+        // Entries found but too old to serve at all
+        private long expired;
+        private long fetches;
+        private long fetchFailures;
+        // Requests that joined a fetch already in flight for the same key
+        private long coalesced;
+        private long totalStalenessMs;
+        private long maxStalenessMs;
+        
+        private Counters copy() {
+            Counters copy = new Counters();
+            copy.memoryHits = memoryHits;
+            copy.diskHits = diskHits;
+            copy.staleHits = staleHits;
+            copy.misses = misses;
+            copy.expired = expired;
+            copy.fetches = fetches;
+            copy.fetchFailures = fetchFailures;
+            copy.coalesced = coalesced;
+            copy.totalStalenessMs = totalStalenessMs;
+            copy.maxStalenessMs = maxStalenessMs;
+            return copy;
+        }
+        
+        public long getMemoryHits() { return memoryHits; }
+        public long getDiskHits() { return diskHits; }
+        public long getStaleHits() { return staleHits; }
+        public long getMisses() { return misses; }
+        public long getExpired() { return expired; }
+        public long getFetches() { return fetches; }
+        public long getFetchFailures() { return fetchFailures; }
+        public long getCoalesced() { return coalesced; }
+        public long getMaxStalenessMs() { return maxStalenessMs; }
+        
+        public long getRequests() {
+            return memoryHits + diskHits + misses;
+        }
+        
+        // Share of requests answered from either tier, fresh or stale
+        public double getHitRate() {
+            long requests = getRequests();
+            return requests > 0 ? (double) (memoryHits + diskHits) / requests : 0;
+        }
+        
+        // Average time past the TTL of the stale entries that were served
+        public long getAverageStalenessMs() {
+            return staleHits > 0 ? totalStalenessMs / staleHits : 0;
+        }
+        
+        public String toCsvRow(String policy) {
+            return String.format(Locale.US, "%s,%d,%d,%d,%d,%d,%d,%d,%d,%.3f,%d,%d",
+                    policy, memoryHits, diskHits, staleHits, misses, expired, fetches, fetchFailures,
+                    coalesced, getHitRate(), getAverageStalenessMs(), maxStalenessMs);
+        }
+    }
+    
+    public static String csvHeader() {
+        return "policy,memory_hits,disk_hits,stale_hits,misses,expired,fetches,fetch_failures,"
+                + "coalesced,hit_rate,avg_staleness_ms,max_staleness_ms";
+    }
+    
+    synchronized void recordHit(CachePolicy policy, boolean fromDisk, long stalenessMs) {
+        Counters entry = counters(policy);
+        if (fromDisk) {
+            entry.diskHits++;
+        } else {
+            entry.memoryHits++;
+        }
+        if (stalenessMs > 0) {
+            entry.staleHits++;
+            entry.totalStalenessMs += stalenessMs;
+            entry.maxStalenessMs = Math.max(entry.maxStalenessMs, stalenessMs);
+        }
+    }
+    
+    synchronized void recordMiss(CachePolicy policy, boolean expired) {
+        Counters entry = counters(policy);
+        entry.misses++;
+        if (expired) entry.expired++;
+    }
+    
+    synchronized void recordFetch(CachePolicy policy, boolean succeeded) {
+        Counters entry = counters(policy);
+        entry.fetches++;
+        if (!succeeded) entry.fetchFailures++;
+    }
+    
+    synchronized void recordCoalesced(CachePolicy policy) {
+        counters(policy).coalesced++;
+    }
+    
+    public synchronized Map<String, Counters> snapshot() {
+        Map<String, Counters> copy = new TreeMap<>();
+        for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().copy());
+        }
+        return copy;
+    }
+    
+    public void exportTo(File file) throws IOException {
+        Map<String, Counters> current = snapshot();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new FileWriter(tmp)) {
+            writer.write(csvHeader());
+            writer.write('\n');
+            for (Map.Entry<String, Counters> entry : current.entrySet()) {
+                writer.write(entry.getValue().toCsvRow(entry.getKey()));
+                writer.write('\n');
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Failed to move " + tmp + " to " + file);
+        }
+    }
+    
+    public synchronized void reset() {
+        counters.clear();
+    }
+    
+    private Counters counters(CachePolicy policy) {
+        Counters entry = counters.get(policy.getName());
+        if (entry == null) {
+            entry = new Counters();
+            counters.put(policy.getName(), entry);
+        }
+        return entry;
+    }
+}
\ No newline at end of file
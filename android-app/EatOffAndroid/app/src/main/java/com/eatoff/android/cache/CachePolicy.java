@@ -0,0 +1,48 @@
+package com.eatoff.android.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Freshness rules for one kind of cached resource. An entry younger than the TTL is served
+ * as is; for up to {@code maxStale} past the TTL it is served and revalidated in the
+ * background; after that it is dropped and the caller waits for the network.
+ */
+public final class CachePolicy {
+    
+    // Restaurant details and menus change a few times a week at most
+    public static final CachePolicy RESTAURANT = new CachePolicy("restaurant",
+            TimeUnit.MINUTES.toMillis(30), TimeUnit.DAYS.toMillis(3));
+    public static final CachePolicy MENU = new CachePolicy("menu",
+            TimeUnit.HOURS.toMillis(6), TimeUnit.DAYS.toMillis(7));
+    public static final CachePolicy VOUCHER_PACKAGES = new CachePolicy("packages",
+            TimeUnit.HOURS.toMillis(1), TimeUnit.DAYS.toMillis(2));
+    public static final CachePolicy CUSTOMER = new CachePolicy("customer",
+            TimeUnit.MINUTES.toMillis(10), TimeUnit.DAYS.toMillis(7));
+    // Balances and order states change with every purchase, so they are kept close to live
+    public static final CachePolicy VOUCHERS = new CachePolicy("vouchers",
+            TimeUnit.MINUTES.toMillis(1), TimeUnit.HOURS.toMillis(12));
+    public static final CachePolicy ORDERS = new CachePolicy("orders",
+            TimeUnit.SECONDS.toMillis(30), TimeUnit.HOURS.toMillis(6));
+    
+    private final String name;
+    private final long ttlMs;
+    private final long maxStaleMs;
+    
+    public CachePolicy(String name, long ttlMs, long maxStaleMs) {
+        this.name = name;
+        this.ttlMs = ttlMs;
+        this.maxStaleMs = maxStaleMs;
+    }
+    
+    public String getName() { return name; }
+    public long getTtlMs() { return ttlMs; }
+    public long getMaxStaleMs() { return maxStaleMs; }
+    
+    boolean isFresh(long ageMs) {
+        return ageMs <= ttlMs;
+    }
+    
+    boolean isServable(long ageMs) {
+        return ageMs <= ttlMs + maxStaleMs;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.eatoff.android.cache;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import java.util.function.Supplier;
+
+/**
+ * Adapts an {@code ApiService} call to a {@link ResourceCache.Fetcher}. A new call is created
+ * for every fetch since Retrofit calls can only be executed once.
+ */
+public class CallFetcher<T> implements ResourceCache.Fetcher<T> {
+    
+    private final Supplier<Call<T>> calls;
+    
+    public CallFetcher(Supplier<Call<T>> calls) {
+        this.calls = calls;
+    }
+    
+    @Override
+    public void fetch(ResourceCache.FetchCallback<T> callback) {
+        calls.get().enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+                if (response.isSuccessful() && response.body() != null) {
+                    callback.onSuccess(response.body());
+                } else {
+                    callback.onFailure("Request failed with HTTP " + response.code());
+                }
+            }
+            
+            @Override
+            public void onFailure(Call<T> call, Throwable t) {
+                callback.onFailure("Network error: " + t.getMessage());
+            }
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,272 @@
+package com.eatoff.android.cache;
+
+import android.content.Context;
+import com.eatoff.android.utils.AppExecutors;
+import com.google.gson.Gson;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+
+/**
+ * Stale-while-revalidate cache for API reads, with an in-memory LRU over one JSON file per
+ * entry on disk.
+ *
+ * {@link #get} answers from the first tier holding a servable entry. A fresh entry is the
+ * only result; a stale one is delivered with {@code stale = true} and followed by a second
+ * result once the background fetch returns. Concurrent requests for the same key share one
+ * fetch. Callbacks run on the callback executor (the main thread in the app).
+ *
+ * {@link #clear} starts a new epoch: reads and fetches begun before it neither store their
+ * result nor call back, so nothing of the previous session comes back after a logout.
+ */
+public class ResourceCache {
+    
+    private static final String CACHE_DIR = "resource_cache";
+    private static final int MEMORY_ENTRIES = 64;
+    
+    private static ResourceCache instance;
+    
+    public interface Callback<T> {
+        void onResult(T value, boolean stale);
+        // Only called when nothing was delivered from the cache
+        void onError(String message);
+    }
+    
+    public interface Fetcher<T> {
+        void fetch(FetchCallback<T> callback);
+    }
+    
+    public interface FetchCallback<T> {
+        void onSuccess(T value);
+        void onFailure(String message);
+    }
+    
+    private static final class Entry {
+        final Object value;
+        final long storedAtMs;
+        
+        Entry(Object value, long storedAtMs) {
+            this.value = value;
+            this.storedAtMs = storedAtMs;
+        }
+    }
+    
+    private static final class Waiter {
+        final Callback<Object> callback;
+        final boolean delivered;
+        
+        Waiter(Callback<Object> callback, boolean delivered) {
+            this.callback = callback;
+            this.delivered = delivered;
+        }
+    }
+    
+    private final File directory;
+    private final Executor diskExecutor;
+    private final Executor callbackExecutor;
+    private final LongSupplier clock;
+    private final Gson gson = new Gson();
+    private final CacheMetrics metrics = new CacheMetrics();
+    
+    // Access-ordered, so the eldest entry is the least recently used; guarded by this
+    private final Map<String, Entry> memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MEMORY_ENTRIES;
+        }
+    };
+    // Guarded by this
+    private final Map<String, List<Waiter>> inFlight = new HashMap<>();
+    // Bumped by clear(); guarded by this
+    private int epoch;
+    
+    ResourceCache(File directory, Executor diskExecutor, Executor callbackExecutor, LongSupplier clock) {
+        this.directory = directory;
+        this.diskExecutor = diskExecutor;
+        this.callbackExecutor = callbackExecutor;
+        this.clock = clock;
+    }
+    
+    public static synchronized ResourceCache getInstance(Context context) {
+        if (instance == null) {
+            AppExecutors executors = AppExecutors.getInstance();
+            instance = new ResourceCache(new File(context.getApplicationContext().getCacheDir(), CACHE_DIR),
+                    executors.diskIO(), executors.mainThread(), System::currentTimeMillis);
+        }
+        return instance;
+    }
+    
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * @param type the type Gson should read the disk copy back as, e.g. a {@code TypeToken} type
+     *             for lists
+     */
+    public <T> void get(CachePolicy policy, String key, Type type, Fetcher<T> fetcher, Callback<T> callback) {
+        String cacheKey = policy.getName() + "/" + key;
+        Entry cached;
+        int readEpoch;
+        synchronized (this) {
+            cached = memory.get(cacheKey);
+            readEpoch = epoch;
+        }
+        if (cached != null) {
+            serve(policy, cacheKey, cached, false, fetcher, callback);
+            return;
+        }
+        
+        diskExecutor.execute(() -> {
+            Entry stored = readFromDisk(cacheKey, type);
+            synchronized (this) {
+                if (epoch != readEpoch) return;
+                // A fetch that finished meanwhile is newer than the disk copy
+                if (stored != null && !memory.containsKey(cacheKey)) memory.put(cacheKey, stored);
+            }
+            callbackExecutor.execute(() -> serve(policy, cacheKey, stored, true, fetcher, callback));
+        });
+    }
+    
+    public void invalidate(CachePolicy policy, String key) {
+        String cacheKey = policy.getName() + "/" + key;
+        synchronized (this) {
+            memory.remove(cacheKey);
+        }
+        diskExecutor.execute(() -> fileFor(cacheKey).delete());
+    }
+    
+    // Drops every entry, e.g. on logout so the next user never sees the previous user's data
+    public void clear() {
+        synchronized (this) {
+            memory.clear();
+            // Fetches still running finish into the old epoch and are dropped
+            inFlight.clear();
+            epoch++;
+        }
+        diskExecutor.execute(() -> {
+            File[] files = directory.listFiles();
+            if (files == null) return;
+            for (File file : files) {
+                file.delete();
+            }
+        });
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <T> void serve(CachePolicy policy, String cacheKey, Entry entry, boolean fromDisk,
+                           Fetcher<T> fetcher, Callback<T> callback) {
+        long ageMs = entry != null ? clock.getAsLong() - entry.storedAtMs : -1;
+        if (entry != null && policy.isFresh(ageMs)) {
+            metrics.recordHit(policy, fromDisk, 0);
+            callback.onResult((T) entry.value, false);
+            return;
+        }
+        
+        boolean delivered = entry != null && policy.isServable(ageMs);
+        if (delivered) {
+            metrics.recordHit(policy, fromDisk, ageMs - policy.getTtlMs());
+            callback.onResult((T) entry.value, true);
+        } else {
+            metrics.recordMiss(policy, entry != null);
+        }
+        fetch(policy, cacheKey, fetcher, callback, delivered);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <T> void fetch(CachePolicy policy, String cacheKey, Fetcher<T> fetcher, Callback<T> callback,
+                           boolean delivered) {
+        int fetchEpoch;
+        synchronized (this) {
+            List<Waiter> waiters = inFlight.get(cacheKey);
+            if (waiters != null) {
+                waiters.add(new Waiter((Callback<Object>) callback, delivered));
+                metrics.recordCoalesced(policy);
+                return;
+            }
+            waiters = new ArrayList<>();
+            waiters.add(new Waiter((Callback<Object>) callback, delivered));
+            inFlight.put(cacheKey, waiters);
+            fetchEpoch = epoch;
+        }
+        
+        fetcher.fetch(new FetchCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                metrics.recordFetch(policy, true);
+                Entry entry = new Entry(value, clock.getAsLong());
+                List<Waiter> waiters;
+                synchronized (ResourceCache.this) {
+                    if (epoch != fetchEpoch) return;
+                    memory.put(cacheKey, entry);
+                    waiters = inFlight.remove(cacheKey);
+                }
+                diskExecutor.execute(() -> writeToDisk(cacheKey, entry));
+                for (Waiter waiter : waiters) {
+                    waiter.callback.onResult(value, false);
+                }
+            }
+            
+            @Override
+            public void onFailure(String message) {
+                metrics.recordFetch(policy, false);
+                List<Waiter> waiters;
+                synchronized (ResourceCache.this) {
+                    if (epoch != fetchEpoch) return;
+                    waiters = inFlight.remove(cacheKey);
+                }
+                for (Waiter waiter : waiters) {
+                    if (!waiter.delivered) waiter.callback.onError(message);
+                }
+            }
+        });
+    }
+    
+    private Entry readFromDisk(String cacheKey, Type type) {
+        File file = fileFor(cacheKey);
+        if (!file.exists()) return null;
+        
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            long storedAtMs = in.readLong();
+            byte[] json = new byte[(int) file.length() - Long.BYTES];
+            in.readFully(json);
+            Object value = gson.fromJson(new String(json, StandardCharsets.UTF_8), type);
+            return value != null ? new Entry(value, storedAtMs) : null;
+        } catch (Exception e) {
+            // Unreadable or written by an older model version; the next fetch replaces it
+            file.delete();
+            return null;
+        }
+    }
+    
+    private void writeToDisk(String cacheKey, Entry entry) {
+        File file = fileFor(cacheKey);
+        File tmp = new File(file.getPath() + ".tmp");
+        if (!directory.isDirectory() && !directory.mkdirs()) return;
+        
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeLong(entry.storedAtMs);
+            out.write(gson.toJson(entry.value).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) tmp.delete();
+    }
+    
+    private File fileFor(String cacheKey) {
+        return new File(directory, cacheKey.replaceAll("[^A-Za-z0-9_-]", "_"));
+    }
+}
\ No newline at end of file
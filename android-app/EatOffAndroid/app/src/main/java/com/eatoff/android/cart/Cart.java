@@ -0,0 +1,244 @@
+package com.eatoff.android.cart;
+
+import com.eatoff.android.models.MenuItem;
+import com.eatoff.android.models.OrderRequest;
+import com.eatoff.android.models.Restaurant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local cart for one restaurant. Amounts are kept in cents and adjusted by the delta of each
+ * change, so totals never re-walk the lines; the server reprices the order at checkout.
+ * Menu prices include VAT, so the tax shown is the share of the subtotal that is VAT and
+ * the total is the subtotal plus the delivery fee.
+ *
+ * Items are checked against the restaurant's cached menu when one has been supplied with
+ * {@link #setMenu}; until then the {@link MenuItem} being added is trusted as is.
+ */
+public class Cart {
+    
+    public static final String ORDER_TYPE_DELIVERY = "delivery";
+    public static final String ORDER_TYPE_PICKUP = "pickup";
+    
+    // Reduced Romanian VAT rate for restaurant and catering services
+    public static final int DEFAULT_TAX_BASIS_POINTS = 1100;
+    
+    public enum AddResult { ADDED, NOT_ON_MENU, UNAVAILABLE, OTHER_RESTAURANT }
+    
+    private static final class Line {
+        final int menuItemId;
+        final String name;
+        long unitCents;
+        int quantity;
+        boolean available = true;
+        String specialInstructions;
+        
+        Line(int menuItemId, String name, long unitCents) {
+            this.menuItemId = menuItemId;
+            this.name = name;
+            this.unitCents = unitCents;
+        }
+    }
+    
+    private final int restaurantId;
+    private final long deliveryFeeCents;
+    private final long minimumOrderCents;
+    private final int taxBasisPoints;
+    private String orderType;
+    
+    // Insertion-ordered so the cart lists items in the order they were added
+    private final Map<Integer, Line> lines = new LinkedHashMap<>();
+    private Map<Integer, MenuItem> menu;
+    
+    private long subtotalCents;
+    private int itemCount;
+    private int unavailableLines;
+    
+    public Cart(Restaurant restaurant, String orderType, int taxBasisPoints) {
+        this.restaurantId = restaurant.getId();
+        this.deliveryFeeCents = toCents(restaurant.getDeliveryFee());
+        this.minimumOrderCents = toCents(restaurant.getMinimumDeliveryOrder());
+        this.orderType = orderType;
+        this.taxBasisPoints = taxBasisPoints;
+    }
+    
+    public Cart(Restaurant restaurant, String orderType) {
+        this(restaurant, orderType, DEFAULT_TAX_BASIS_POINTS);
+    }
+    
+    public int getRestaurantId() { return restaurantId; }
+    
+    public String getOrderType() { return orderType; }
+    public void setOrderType(String orderType) { this.orderType = orderType; }
+    
+    /**
+     * Supplies the cached menu. Lines whose item left the menu or became unavailable are
+     * flagged, and changed prices are applied as deltas.
+     */
+    public void setMenu(List<MenuItem> items) {
+        Map<Integer, MenuItem> byId = new HashMap<>(items.size() * 2);
+        for (MenuItem item : items) {
+            byId.put(item.getId(), item);
+        }
+        menu = byId;
+        
+        for (Line line : lines.values()) {
+            MenuItem item = byId.get(line.menuItemId);
+            setAvailable(line, item != null && item.isAvailable());
+            if (item != null) {
+                long unitCents = toCents(item.getPrice());
+                subtotalCents += (unitCents - line.unitCents) * line.quantity;
+                line.unitCents = unitCents;
+            }
+        }
+    }
+    
+    public AddResult add(MenuItem item, int quantity) {
+        if (quantity <= 0) throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        if (item.getRestaurantId() != restaurantId) return AddResult.OTHER_RESTAURANT;
+        
+        MenuItem current = item;
+        if (menu != null) {
+            current = menu.get(item.getId());
+            if (current == null) return AddResult.NOT_ON_MENU;
+        }
+        if (!current.isAvailable()) return AddResult.UNAVAILABLE;
+        
+        Line line = lines.get(current.getId());
+        if (line == null) {
+            line = new Line(current.getId(), current.getName(), toCents(current.getPrice()));
+            lines.put(line.menuItemId, line);
+        }
+        line.quantity += quantity;
+        itemCount += quantity;
+        subtotalCents += line.unitCents * quantity;
+        return AddResult.ADDED;
+    }
+    
+    // Removes up to quantity units; the line goes away when none are left
+    public void remove(int menuItemId, int quantity) {
+        if (quantity <= 0) throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        Line line = lines.get(menuItemId);
+        if (line == null) return;
+        
+        int removed = Math.min(quantity, line.quantity);
+        line.quantity -= removed;
+        itemCount -= removed;
+        subtotalCents -= line.unitCents * removed;
+        if (line.quantity == 0) {
+            setAvailable(line, true);
+            lines.remove(menuItemId);
+        }
+    }
+    
+    public void removeAll(int menuItemId) {
+        Line line = lines.get(menuItemId);
+        if (line != null) remove(menuItemId, line.quantity);
+    }
+    
+    public void setSpecialInstructions(int menuItemId, String instructions) {
+        Line line = lines.get(menuItemId);
+        if (line != null) line.specialInstructions = instructions;
+    }
+    
+    public void clear() {
+        lines.clear();
+        subtotalCents = 0;
+        itemCount = 0;
+        unavailableLines = 0;
+    }
+    
+    public boolean isEmpty() {
+        return itemCount == 0;
+    }
+    
+    public int getItemCount() {
+        return itemCount;
+    }
+    
+    public int getQuantity(int menuItemId) {
+        Line line = lines.get(menuItemId);
+        return line != null ? line.quantity : 0;
+    }
+    
+    public int getUnavailableLineCount() {
+        return unavailableLines;
+    }
+    
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+    
+    public long getDeliveryFeeCents() {
+        return isDelivery() && !isEmpty() ? deliveryFeeCents : 0;
+    }
+    
+    // VAT contained in the subtotal, rounded half up to the cent on the subtotal as a whole
+    public long getTaxCents() {
+        long divisor = 10_000 + taxBasisPoints;
+        return (subtotalCents * taxBasisPoints + divisor / 2) / divisor;
+    }
+    
+    public long getTotalCents() {
+        return subtotalCents + getDeliveryFeeCents();
+    }
+    
+    // How much more the customer has to add before delivery can be ordered
+    public long getAmountToMinimumCents() {
+        return isDelivery() ? Math.max(0, minimumOrderCents - subtotalCents) : 0;
+    }
+    
+    public boolean isReadyForCheckout() {
+        return !isEmpty() && unavailableLines == 0 && getAmountToMinimumCents() == 0;
+    }
+    
+    public OrderRequest toOrderRequest(int customerId) {
+        List<OrderRequest.OrderItemRequest> items = new ArrayList<>(lines.size());
+        for (Line line : lines.values()) {
+            OrderRequest.OrderItemRequest item = new OrderRequest.OrderItemRequest(line.menuItemId, line.quantity);
+            item.setSpecialInstructions(line.specialInstructions);
+            items.add(item);
+        }
+        
+        OrderRequest request = new OrderRequest(customerId, restaurantId, orderType);
+        request.setItems(items);
+        return request;
+    }
+    
+    public String getFormattedSubtotal() {
+        return formatCents(subtotalCents);
+    }
+    
+    public String getFormattedDeliveryFee() {
+        return formatCents(getDeliveryFeeCents());
+    }
+    
+    public String getFormattedTax() {
+        return formatCents(getTaxCents());
+    }
+    
+    public String getFormattedTotal() {
+        return formatCents(getTotalCents());
+    }
+    
+    public static String formatCents(long cents) {
+        return String.format("€%.2f", cents / 100.0);
+    }
+    
+    private boolean isDelivery() {
+        return ORDER_TYPE_DELIVERY.equals(orderType);
+    }
+    
+    private void setAvailable(Line line, boolean available) {
+        if (line.available == available) return;
+        line.available = available;
+        unavailableLines += available ? -1 : 1;
+    }
+    
+    private static long toCents(Double amount) {
+        return amount != null ? Math.round(amount * 100) : 0;
+    }
+}
\ No newline at end of file
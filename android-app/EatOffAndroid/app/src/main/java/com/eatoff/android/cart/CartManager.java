@@ -0,0 +1,101 @@
+package com.eatoff.android.cart;
+
+import android.content.Context;
+import com.eatoff.android.api.ApiClient;
+import com.eatoff.android.api.CallScope;
+import com.eatoff.android.cache.ResourceCache;
+import com.eatoff.android.models.MenuItem;
+import com.eatoff.android.models.Order;
+import com.eatoff.android.models.Restaurant;
+import com.eatoff.android.repository.ResourceRepository;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import java.util.List;
+
+/**
+ * Holds the cart the user is filling. Everything up to checkout is local; {@link #checkout}
+ * is the only call that reaches the server.
+ */
+public class CartManager {
+    
+    private static CartManager instance;
+    private final ResourceRepository resources;
+    private Cart cart;
+    
+    public interface CheckoutCallback {
+        void onOrderPlaced(Order order);
+        void onError(String message);
+    }
+    
+    private CartManager(Context context) {
+        resources = ResourceRepository.getInstance(context);
+    }
+    
+    public static synchronized CartManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new CartManager(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    // Null until the user starts an order
+    public Cart getCart() {
+        return cart;
+    }
+    
+    /**
+     * Returns the cart for the restaurant, starting a new one if the current cart belongs to
+     * another restaurant. The cached menu is attached as soon as it is available.
+     */
+    public Cart startCart(Restaurant restaurant, String orderType) {
+        if (cart != null && cart.getRestaurantId() == restaurant.getId()) return cart;
+        
+        Cart started = new Cart(restaurant, orderType);
+        cart = started;
+        resources.getMenu(restaurant.getId(), new ResourceCache.Callback<List<MenuItem>>() {
+            @Override
+            public void onResult(List<MenuItem> menu, boolean stale) {
+                started.setMenu(menu);
+            }
+            
+            @Override
+            public void onError(String message) {
+                // Items are checked against what the menu screen showed until the menu loads
+            }
+        });
+        return started;
+    }
+    
+    public void discardCart() {
+        cart = null;
+    }
+    
+    public void checkout(CallScope scope, int customerId, CheckoutCallback callback) {
+        Cart current = cart;
+        if (current == null || !current.isReadyForCheckout()) {
+            callback.onError("Cart is not ready for checkout");
+            return;
+        }
+        
+        scope.enqueue(ApiClient.getInstance().getApiService().createOrder(current.toOrderRequest(customerId)),
+                new Callback<Order>() {
+                    @Override
+                    public void onResponse(Call<Order> call, Response<Order> response) {
+                        if (response.isSuccessful() && response.body() != null) {
+                            if (cart == current) cart = null;
+                            // The new order changes the customer's order list and balances
+                            resources.invalidateCustomerData(customerId);
+                            callback.onOrderPlaced(response.body());
+                        } else {
+                            callback.onError("Checkout failed: Server error (" + response.code() + ")");
+                        }
+                    }
+                    
+                    @Override
+                    public void onFailure(Call<Order> call, Throwable t) {
+                        callback.onError("Checkout failed: " + t.getMessage());
+                    }
+                });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.search.TextNormalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bit flags for the 14 EU-declarable allergens and a parser for the free-text
+ * {@code MenuItem.allergens} field, which restaurants fill in English or Romanian.
+ */
+public final class Allergens {
+    
+    public static final int GLUTEN = 1;
+    public static final int CRUSTACEANS = 1 << 1;
+    public static final int EGGS = 1 << 2;
+    public static final int FISH = 1 << 3;
+    public static final int PEANUTS = 1 << 4;
+    public static final int SOY = 1 << 5;
+    public static final int MILK = 1 << 6;
+    public static final int TREE_NUTS = 1 << 7;
+    public static final int CELERY = 1 << 8;
+    public static final int MUSTARD = 1 << 9;
+    public static final int SESAME = 1 << 10;
+    public static final int SULPHITES = 1 << 11;
+    public static final int LUPIN = 1 << 12;
+    public static final int MOLLUSCS = 1 << 13;
+    
+    public static final int COUNT = 14;
+    public static final int NUTS = PEANUTS | TREE_NUTS;
+    
+    private static final Map<String, Integer> KEYWORDS = new HashMap<>();
+    // "fara gluten" negates the keyword after it, "gluten free" the one before it
+    private static final Set<String> NEGATE_NEXT = new HashSet<>(Arrays.asList("fara", "without", "no"));
+    private static final Set<String> NEGATE_PREVIOUS = new HashSet<>(Arrays.asList("free"));
+    
+    static {
+        register(GLUTEN, "gluten", "wheat", "grau", "faina", "barley", "orz", "rye", "secara", "oats", "ovaz");
+        register(CRUSTACEANS, "crustaceans", "crustacean", "shrimp", "prawn", "crab", "lobster", "creveti", "crustacee");
+        register(EGGS, "egg", "eggs", "oua", "ou");
+        register(FISH, "fish", "peste", "ton", "tuna", "salmon", "somon");
+        register(PEANUTS, "peanut", "peanuts", "arahide");
+        register(SOY, "soy", "soya", "soia");
+        register(MILK, "milk", "dairy", "lactose", "lapte", "lactoza", "lactate", "cheese", "branza", "cream", "smantana");
+        register(TREE_NUTS, "nuts", "nut", "nuci", "nuca", "almond", "almonds", "migdale", "hazelnut", "hazelnuts",
+                "walnut", "walnuts", "cashew", "pistachio", "fistic", "alune");
+        register(CELERY, "celery", "telina");
+        register(MUSTARD, "mustard", "mustar");
+        register(SESAME, "sesame", "susan");
+        register(SULPHITES, "sulphites", "sulfites", "sulphite", "sulfite", "sulfiti");
+        register(LUPIN, "lupin", "lupine");
+        register(MOLLUSCS, "molluscs", "mollusks", "mussels", "squid", "octopus", "moluste", "midii", "calamar");
+    }
+    
+    private Allergens() {}
+    
+    public static int parse(String allergens) {
+        if (allergens == null || allergens.isEmpty()) return 0;
+        
+        int mask = 0;
+        List<String> tokens = TextNormalizer.tokenize(allergens);
+        for (int i = 0; i < tokens.size(); i++) {
+            Integer bit = KEYWORDS.get(tokens.get(i));
+            if (bit == null) continue;
+            if (i > 0 && NEGATE_NEXT.contains(tokens.get(i - 1))) continue;
+            if (i + 1 < tokens.size() && NEGATE_PREVIOUS.contains(tokens.get(i + 1))) continue;
+            mask |= bit;
+        }
+        return mask;
+    }
+    
+    private static void register(int bit, String... keywords) {
+        for (String keyword : keywords) {
+            KEYWORDS.put(keyword, bit);
+        }
+    }
+}
\ No newline at end of file
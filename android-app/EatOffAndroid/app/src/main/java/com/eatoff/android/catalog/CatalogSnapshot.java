@@ -0,0 +1,289 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.models.Restaurant;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Versioned binary snapshot of the restaurant catalog.
+ *
+ * The file is written after every sync and memory-mapped on launch. Rows are fixed-width
+ * records read directly from the mapped buffer, and strings are only decoded for the rows
+ * that are actually bound, so the first screen renders without parsing the whole catalog.
+ * Menus are not part of the snapshot; the resource cache keeps them on disk per restaurant.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * header   magic, version, savedAt, rowCount, stringsOffset
+ * rows     rowCount x ROW_BYTES
+ * strings  int length + UTF-8 bytes, referenced by offset from stringsOffset
+ * </pre>
+ */
+public class CatalogSnapshot implements RestaurantRows {
+    
+    // 2 dropped the menu section and added the contact, location and audit fields
+    public static final int VERSION = 2;
+    
+    private static final int MAGIC = 0x454F4353; // "EOCS"
+    private static final int HEADER_BYTES = 32;
+    private static final int ROW_BYTES = 92;
+    private static final int NO_STRING = -1;
+    
+    // Row record offsets
+    private static final int ROW_ID = 0;
+    private static final int ROW_RATING = 4;
+    private static final int ROW_DELIVERY_FEE = 8;
+    private static final int ROW_DELIVERY_RADIUS = 12;
+    private static final int ROW_MINIMUM_ORDER = 16;
+    private static final int ROW_FLAGS = 20;
+    private static final int ROW_OWNER_ID = 24;
+    private static final int ROW_LATITUDE = 28;
+    private static final int ROW_LONGITUDE = 36;
+    private static final int ROW_NAME = 44;
+    private static final int ROW_CUISINE = 48;
+    private static final int ROW_LOCATION = 52;
+    private static final int ROW_PRICE_RANGE = 56;
+    private static final int ROW_DESCRIPTION = 60;
+    private static final int ROW_IMAGE_URL = 64;
+    private static final int ROW_ADDRESS = 68;
+    private static final int ROW_PHONE = 72;
+    private static final int ROW_EMAIL = 76;
+    private static final int ROW_OPERATING_HOURS = 80;
+    private static final int ROW_CREATED_AT = 84;
+    private static final int ROW_UPDATED_AT = 88;
+    // Name through image URL are the card fields; they sit next to each other in the row
+    private static final int CARD_FIELDS = (ROW_IMAGE_URL - ROW_NAME) / 4 + 1;
+    
+    private final MappedByteBuffer buffer;
+    private final long savedAt;
+    private final int rowCount;
+    private final int stringsOffset;
+    // Card strings decoded on first bind, so scrolling back over a row does not decode it again
+    private String[] cardStrings;
+    
+    private CatalogSnapshot(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.savedAt = buffer.getLong(8);
+        this.rowCount = buffer.getInt(16);
+        this.stringsOffset = buffer.getInt(20);
+    }
+    
+    /**
+     * Maps an existing snapshot. Returns null when the file is missing, truncated or was
+     * written by a different snapshot version, in which case callers fall back to the network.
+     * Only the header is checked here; string references are checked as rows are read.
+     */
+    public static CatalogSnapshot open(File file) {
+        if (!file.exists() || file.length() < HEADER_BYTES) return null;
+        
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return null;
+            }
+            
+            CatalogSnapshot snapshot = new CatalogSnapshot(buffer);
+            long rowsEnd = HEADER_BYTES + (long) snapshot.rowCount * ROW_BYTES;
+            if (snapshot.rowCount < 0 || rowsEnd > snapshot.stringsOffset || snapshot.stringsOffset > buffer.limit()) {
+                return null;
+            }
+            snapshot.cardStrings = new String[snapshot.rowCount * CARD_FIELDS];
+            return snapshot;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Writes the catalog next to the target and renames it into place so readers never
+     * map a half-written snapshot.
+     */
+    public static void write(File file, RestaurantCatalog catalog) throws IOException {
+        StringTable strings = new StringTable();
+        ByteArrayOutputStream rowBytes = new ByteArrayOutputStream(catalog.size() * ROW_BYTES);
+        DataOutputStream rowsOut = new DataOutputStream(rowBytes);
+        
+        for (int row = 0; row < catalog.size(); row++) {
+            rowsOut.writeInt(catalog.getId(row));
+            rowsOut.writeFloat(catalog.getRating(row));
+            rowsOut.writeFloat(catalog.getDeliveryFee(row));
+            rowsOut.writeFloat(catalog.getDeliveryRadius(row));
+            rowsOut.writeFloat(catalog.getMinimumOrder(row));
+            rowsOut.writeInt(catalog.getFlags(row));
+            rowsOut.writeInt(catalog.getOwnerId(row));
+            rowsOut.writeDouble(catalog.getLatitude(row));
+            rowsOut.writeDouble(catalog.getLongitude(row));
+            rowsOut.writeInt(strings.add(catalog.getName(row)));
+            rowsOut.writeInt(strings.add(catalog.getCuisine(row)));
+            rowsOut.writeInt(strings.add(catalog.getLocation(row)));
+            rowsOut.writeInt(strings.add(catalog.getPriceRange(row)));
+            rowsOut.writeInt(strings.add(catalog.getDescription(row)));
+            rowsOut.writeInt(strings.add(catalog.getImageUrl(row)));
+            rowsOut.writeInt(strings.add(catalog.getAddress(row)));
+            rowsOut.writeInt(strings.add(catalog.getPhone(row)));
+            rowsOut.writeInt(strings.add(catalog.getEmail(row)));
+            rowsOut.writeInt(strings.add(catalog.getOperatingHours(row)));
+            rowsOut.writeInt(strings.add(catalog.getCreatedAt(row)));
+            rowsOut.writeInt(strings.add(catalog.getUpdatedAt(row)));
+        }
+        
+        int stringsOffset = HEADER_BYTES + rowBytes.size();
+        File temp = new File(file.getPath() + ".tmp");
+        
+        try (FileOutputStream fileOut = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(fileOut);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(catalog.size());
+            out.writeInt(stringsOffset);
+            out.writeLong(0); // reserved
+            rowBytes.writeTo(out);
+            strings.writeTo(out);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not move catalog snapshot into place");
+        }
+    }
+    
+    public long getSavedAt() {
+        return savedAt;
+    }
+    
+    @Override
+    public int size() {
+        return rowCount;
+    }
+    
+    public int getId(int row) { return buffer.getInt(rowOffset(row) + ROW_ID); }
+    public float getRating(int row) { return buffer.getFloat(rowOffset(row) + ROW_RATING); }
+    public float getDeliveryFee(int row) { return buffer.getFloat(rowOffset(row) + ROW_DELIVERY_FEE); }
+    public float getDeliveryRadius(int row) { return buffer.getFloat(rowOffset(row) + ROW_DELIVERY_RADIUS); }
+    public float getMinimumOrder(int row) { return buffer.getFloat(rowOffset(row) + ROW_MINIMUM_ORDER); }
+    public int getFlags(int row) { return buffer.getInt(rowOffset(row) + ROW_FLAGS); }
+    public String getName(int row) { return cardString(row, ROW_NAME); }
+    public String getCuisine(int row) { return cardString(row, ROW_CUISINE); }
+    public String getLocation(int row) { return cardString(row, ROW_LOCATION); }
+    public String getPriceRange(int row) { return cardString(row, ROW_PRICE_RANGE); }
+    public String getDescription(int row) { return cardString(row, ROW_DESCRIPTION); }
+    public String getImageUrl(int row) { return cardString(row, ROW_IMAGE_URL); }
+    public double getLatitude(int row) { return buffer.getDouble(rowOffset(row) + ROW_LATITUDE); }
+    public double getLongitude(int row) { return buffer.getDouble(rowOffset(row) + ROW_LONGITUDE); }
+    
+    @Override
+    public Restaurant toRestaurant(int row) {
+        Restaurant restaurant = new Restaurant(getId(row), getName(row), getCuisine(row), getLocation(row));
+        restaurant.setDescription(getDescription(row));
+        restaurant.setImageUrl(getImageUrl(row));
+        restaurant.setPriceRange(getPriceRange(row));
+        
+        float rating = getRating(row);
+        float deliveryFee = getDeliveryFee(row);
+        float deliveryRadius = getDeliveryRadius(row);
+        float minimumOrder = getMinimumOrder(row);
+        if (!Float.isNaN(rating)) restaurant.setRating((double) rating);
+        if (!Float.isNaN(deliveryFee)) restaurant.setDeliveryFee((double) deliveryFee);
+        if (!Float.isNaN(deliveryRadius)) restaurant.setDeliveryRadius((double) deliveryRadius);
+        if (!Float.isNaN(minimumOrder)) restaurant.setMinimumDeliveryOrder((double) minimumOrder);
+        
+        int flags = getFlags(row);
+        restaurant.setActive((flags & RestaurantCatalog.FLAG_ACTIVE) != 0);
+        restaurant.setOffersDelivery((flags & RestaurantCatalog.FLAG_DELIVERY) != 0);
+        restaurant.setOffersTakeout((flags & RestaurantCatalog.FLAG_TAKEOUT) != 0);
+        restaurant.setDineInAvailable((flags & RestaurantCatalog.FLAG_DINE_IN) != 0);
+        
+        int ownerId = buffer.getInt(rowOffset(row) + ROW_OWNER_ID);
+        double latitude = getLatitude(row);
+        double longitude = getLongitude(row);
+        if (ownerId != RestaurantCatalog.NO_OWNER) restaurant.setOwnerId(ownerId);
+        if (!Double.isNaN(latitude)) restaurant.setLatitude(latitude);
+        if (!Double.isNaN(longitude)) restaurant.setLongitude(longitude);
+        restaurant.setAddress(rowString(row, ROW_ADDRESS));
+        restaurant.setPhone(rowString(row, ROW_PHONE));
+        restaurant.setEmail(rowString(row, ROW_EMAIL));
+        restaurant.setOperatingHours(rowString(row, ROW_OPERATING_HOURS));
+        restaurant.setCreatedAt(rowString(row, ROW_CREATED_AT));
+        restaurant.setUpdatedAt(rowString(row, ROW_UPDATED_AT));
+        return restaurant;
+    }
+    
+    private int rowOffset(int row) {
+        return HEADER_BYTES + row * ROW_BYTES;
+    }
+    
+    // Racing binds and diffs decode the same value, so no locking is needed
+    private String cardString(int row, int field) {
+        int slot = row * CARD_FIELDS + (field - ROW_NAME) / 4;
+        String value = cardStrings[slot];
+        if (value == null) {
+            value = rowString(row, field);
+            cardStrings[slot] = value;
+        }
+        return value;
+    }
+    
+    private String rowString(int row, int field) {
+        return string(buffer.getInt(rowOffset(row) + field));
+    }
+    
+    // Null as well for a reference that is negative or runs past the end of a truncated file
+    private String string(int ref) {
+        if (ref == NO_STRING) return null;
+        
+        long limit = buffer.limit();
+        long offset = (long) stringsOffset + ref;
+        if (ref < 0 || offset + 4 > limit) return null;
+        int length = buffer.getInt((int) offset);
+        if (length < 0 || offset + 4 + length > limit) return null;
+        
+        byte[] bytes = new byte[length];
+        // A duplicate has its own position, so concurrent reads need no lock. Positioned through
+        // Buffer: ByteBuffer.position(int) only exists from Java 9 and API 28.
+        ByteBuffer view = buffer.duplicate();
+        ((Buffer) view).position((int) offset + 4);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    // Deduplicated string region; cuisines, locations and price ranges repeat heavily
+    private static class StringTable {
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        
+        int add(String value) throws IOException {
+            if (value == null) return NO_STRING;
+            
+            Integer existing = offsets.get(value);
+            if (existing != null) return existing;
+            
+            int offset = bytes.size();
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(encoded.length);
+            out.write(encoded);
+            offsets.put(value, offset);
+            return offset;
+        }
+        
+        void writeTo(DataOutputStream target) throws IOException {
+            bytes.writeTo(target);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,242 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.models.Restaurant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Grid-bucketed spatial index answering "who delivers to me".
+ *
+ * Delivering restaurants with coordinates are bucketed into fixed lat/lon cells. A lookup
+ * only scans the ring of cells that the largest delivery radius can reach, then checks each
+ * restaurant's own {@code deliveryRadius} (km) with an equirectangular distance, which is
+ * accurate to well under a percent at city scale.
+ */
+public class DeliveryIndex {
+    
+    private static final double CELL_DEGREES = 0.05;     // roughly 5.5 km north-south
+    private static final double KM_PER_DEGREE = 111.195;
+    private static final double DEFAULT_RADIUS_KM = 5.0;  // used when a restaurant has no radius
+    
+    private static DeliveryIndex instance;
+    
+    public static class Hit {
+        private final int restaurantId;
+        private final float distanceKm;
+        private final float minimumOrder;
+        
+        Hit(int restaurantId, float distanceKm, float minimumOrder) {
+            this.restaurantId = restaurantId;
+            this.distanceKm = distanceKm;
+            this.minimumOrder = minimumOrder;
+        }
+        
+        public int getRestaurantId() { return restaurantId; }
+        public float getDistanceKm() { return distanceKm; }
+        // NaN when the restaurant has no minimum order
+        public float getMinimumOrder() { return minimumOrder; }
+    }
+    
+    // Per-restaurant entry; cells hold entry slots so moves and removals are O(1) per cell
+    private final Map<Integer, Integer> slotsByRestaurantId = new HashMap<>();
+    private final Map<Long, int[]> cells = new HashMap<>();
+    private final Map<Long, Integer> cellSizes = new HashMap<>();
+    private int[] ids = new int[64];
+    private double[] latitudes = new double[64];
+    private double[] longitudes = new double[64];
+    private float[] radii = new float[64];
+    private float[] minimumOrders = new float[64];
+    private long[] cellOfSlot = new long[64];
+    private final List<Integer> freeSlots = new ArrayList<>();
+    private int slotCount;
+    private float maxRadiusKm;
+    
+    public static synchronized DeliveryIndex getInstance() {
+        if (instance == null) {
+            instance = new DeliveryIndex();
+        }
+        return instance;
+    }
+    
+    /**
+     * Applies a catalog sync. Restaurants that stop delivering or lose their coordinates are
+     * removed; with a full catalog, restaurants absent from it are removed as well.
+     */
+    public synchronized void sync(List<Restaurant> restaurants, boolean fullCatalog) {
+        Set<Integer> seen = fullCatalog ? new HashSet<Integer>() : null;
+        for (Restaurant restaurant : restaurants) {
+            update(restaurant);
+            if (seen != null) seen.add(restaurant.getId());
+        }
+        
+        if (fullCatalog) {
+            for (Integer id : new ArrayList<>(slotsByRestaurantId.keySet())) {
+                if (!seen.contains(id)) remove(id);
+            }
+        }
+    }
+    
+    public synchronized void update(Restaurant restaurant) {
+        if (!restaurant.isOffersDelivery() || !restaurant.hasCoordinates()) {
+            remove(restaurant.getId());
+            return;
+        }
+        
+        Integer existing = slotsByRestaurantId.get(restaurant.getId());
+        int slot;
+        if (existing != null) {
+            slot = existing;
+            removeFromCell(cellOfSlot[slot], slot);
+        } else {
+            slot = allocateSlot();
+            slotsByRestaurantId.put(restaurant.getId(), slot);
+        }
+        
+        double latitude = restaurant.getLatitude();
+        double longitude = restaurant.getLongitude();
+        Double radius = restaurant.getDeliveryRadius();
+        Double minimumOrder = restaurant.getMinimumDeliveryOrder();
+        
+        ids[slot] = restaurant.getId();
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        radii[slot] = radius != null && radius > 0 ? radius.floatValue() : (float) DEFAULT_RADIUS_KM;
+        minimumOrders[slot] = minimumOrder != null ? minimumOrder.floatValue() : Float.NaN;
+        cellOfSlot[slot] = cellKey(cellIndex(latitude), cellIndex(longitude));
+        addToCell(cellOfSlot[slot], slot);
+        
+        // Only ever grows; a stale larger bound just scans a few extra empty cells
+        if (radii[slot] > maxRadiusKm) maxRadiusKm = radii[slot];
+    }
+    
+    public synchronized void remove(int restaurantId) {
+        Integer slot = slotsByRestaurantId.remove(restaurantId);
+        if (slot == null) return;
+        
+        removeFromCell(cellOfSlot[slot], slot);
+        freeSlots.add(slot);
+    }
+    
+    public synchronized int size() {
+        return slotsByRestaurantId.size();
+    }
+    
+    /**
+     * Restaurants whose delivery radius covers the point, nearest first.
+     */
+    public synchronized List<Hit> deliveringTo(double latitude, double longitude) {
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        int latitudeCell = cellIndex(latitude);
+        int longitudeCell = cellIndex(longitude);
+        int latitudeReach = (int) Math.ceil(maxRadiusKm / (KM_PER_DEGREE * CELL_DEGREES));
+        int longitudeReach = (int) Math.ceil(maxRadiusKm / (KM_PER_DEGREE * CELL_DEGREES * Math.max(cosLatitude, 0.01)));
+        
+        int[] hitSlots = new int[16];
+        float[] hitDistances = new float[16];
+        int hitCount = 0;
+        
+        for (int dLat = -latitudeReach; dLat <= latitudeReach; dLat++) {
+            for (int dLon = -longitudeReach; dLon <= longitudeReach; dLon++) {
+                long key = cellKey(latitudeCell + dLat, longitudeCell + dLon);
+                int[] slots = cells.get(key);
+                if (slots == null) continue;
+                
+                int count = cellSizes.get(key);
+                for (int i = 0; i < count; i++) {
+                    int slot = slots[i];
+                    double dy = (latitudes[slot] - latitude) * KM_PER_DEGREE;
+                    double dx = (longitudes[slot] - longitude) * KM_PER_DEGREE * cosLatitude;
+                    float distance = (float) Math.sqrt(dx * dx + dy * dy);
+                    if (distance > radii[slot]) continue;
+                    
+                    if (hitCount == hitSlots.length) {
+                        hitSlots = Arrays.copyOf(hitSlots, hitCount * 2);
+                        hitDistances = Arrays.copyOf(hitDistances, hitCount * 2);
+                    }
+                    hitSlots[hitCount] = slot;
+                    hitDistances[hitCount] = distance;
+                    hitCount++;
+                }
+            }
+        }
+        
+        // Distances are non-negative, so their raw float bits sort in numeric order
+        long[] packed = new long[hitCount];
+        for (int i = 0; i < hitCount; i++) {
+            packed[i] = ((long) Float.floatToIntBits(hitDistances[i]) << 32) | i;
+        }
+        Arrays.sort(packed);
+        
+        List<Hit> hits = new ArrayList<>(hitCount);
+        for (long key : packed) {
+            int i = (int) key;
+            int slot = hitSlots[i];
+            hits.add(new Hit(ids[slot], hitDistances[i], minimumOrders[slot]));
+        }
+        return hits;
+    }
+    
+    private int allocateSlot() {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.remove(freeSlots.size() - 1);
+        }
+        
+        if (slotCount == ids.length) {
+            int capacity = slotCount * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            radii = Arrays.copyOf(radii, capacity);
+            minimumOrders = Arrays.copyOf(minimumOrders, capacity);
+            cellOfSlot = Arrays.copyOf(cellOfSlot, capacity);
+        }
+        return slotCount++;
+    }
+    
+    private void addToCell(long key, int slot) {
+        int[] slots = cells.get(key);
+        int count = slots != null ? cellSizes.get(key) : 0;
+        if (slots == null) {
+            slots = new int[4];
+        } else if (count == slots.length) {
+            slots = Arrays.copyOf(slots, count * 2);
+        }
+        slots[count] = slot;
+        cells.put(key, slots);
+        cellSizes.put(key, count + 1);
+    }
+    
+    private void removeFromCell(long key, int slot) {
+        int[] slots = cells.get(key);
+        if (slots == null) return;
+        
+        int count = cellSizes.get(key);
+        for (int i = 0; i < count; i++) {
+            if (slots[i] == slot) {
+                slots[i] = slots[count - 1];
+                count--;
+                break;
+            }
+        }
+        
+        if (count == 0) {
+            cells.remove(key);
+            cellSizes.remove(key);
+        } else {
+            cellSizes.put(key, count);
+        }
+    }
+    
+    private static int cellIndex(double degrees) {
+        return (int) Math.floor(degrees / CELL_DEGREES);
+    }
+    
+    private static long cellKey(int latitudeCell, int longitudeCell) {
+        return ((long) latitudeCell << 32) | (longitudeCell & 0xFFFFFFFFL);
+    }
+}
\ No newline at end of file
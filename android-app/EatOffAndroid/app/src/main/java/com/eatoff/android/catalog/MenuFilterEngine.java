@@ -0,0 +1,310 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.models.MenuItem;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dietary and allergen filtering over cached menus.
+ *
+ * Each menu is decoded once into per-facet bitsets (one bit per item), so a query such as
+ * "vegan AND no nuts AND spicy &lt;= 1 AND calories &lt; 600" is a handful of word-level
+ * AND/ANDNOT operations over the whole menu. A second layer of bitsets over restaurant
+ * slots records which restaurants have at least one item per facet, which lets
+ * "where can I eat" queries skip most restaurants without touching their menus.
+ */
+public class MenuFilterEngine {
+    
+    public static final int DIET_VEGETARIAN = 1;
+    public static final int DIET_VEGAN = 1 << 1;
+    public static final int DIET_GLUTEN_FREE = 1 << 2;
+    public static final int DIET_AVAILABLE = 1 << 3;
+    private static final int DIET_FACETS = 4;
+    
+    public static final int MAX_SPICY_LEVEL = 3;
+    
+    private static MenuFilterEngine instance;
+    
+    private final Map<Integer, MenuBitsets> menus = new HashMap<>();
+    private final Map<Integer, Integer> slotsByRestaurantId = new HashMap<>();
+    private int[] restaurantIds = new int[16];
+    private int slotCount;
+    // Restaurant-level summaries: bit r is set when restaurant slot r has any item with the facet
+    private long[][] restaurantsWithDiet = new long[DIET_FACETS][1];
+    
+    public static synchronized MenuFilterEngine getInstance() {
+        if (instance == null) {
+            instance = new MenuFilterEngine();
+        }
+        return instance;
+    }
+    
+    /**
+     * Immutable multi-facet query. Required diet flags are ANDed, "any" flags are ORed,
+     * excluded allergens are removed with ANDNOT.
+     */
+    public static class Query {
+        final int requiredDiet;
+        final int anyDiet;
+        final int excludedAllergens;
+        final int maxSpicyLevel;
+        final int maxCaloriesExclusive;
+        
+        private Query(Builder builder) {
+            this.requiredDiet = builder.requiredDiet;
+            this.anyDiet = builder.anyDiet;
+            this.excludedAllergens = builder.excludedAllergens;
+            this.maxSpicyLevel = builder.maxSpicyLevel;
+            this.maxCaloriesExclusive = builder.maxCaloriesExclusive;
+        }
+        
+        public static class Builder {
+            private int requiredDiet = DIET_AVAILABLE;
+            private int anyDiet;
+            private int excludedAllergens;
+            private int maxSpicyLevel = Integer.MAX_VALUE;
+            private int maxCaloriesExclusive = Integer.MAX_VALUE;
+            
+            public Builder require(int dietFlags) { requiredDiet |= dietFlags; return this; }
+            public Builder anyOf(int dietFlags) { anyDiet |= dietFlags; return this; }
+            public Builder exclude(int allergenMask) { excludedAllergens |= allergenMask; return this; }
+            public Builder maxSpicyLevel(int level) { maxSpicyLevel = level; return this; }
+            public Builder caloriesBelow(int calories) { maxCaloriesExclusive = calories; return this; }
+            public Builder includeUnavailable() { requiredDiet &= ~DIET_AVAILABLE; return this; }
+            public Query build() { return new Query(this); }
+        }
+    }
+    
+    public synchronized void syncMenu(int restaurantId, List<MenuItem> items) {
+        MenuBitsets bitsets = new MenuBitsets(items);
+        menus.put(restaurantId, bitsets);
+        
+        Integer slot = slotsByRestaurantId.get(restaurantId);
+        if (slot == null) {
+            slot = slotCount++;
+            if (slot == restaurantIds.length) {
+                restaurantIds = Arrays.copyOf(restaurantIds, slot * 2);
+            }
+            restaurantIds[slot] = restaurantId;
+            slotsByRestaurantId.put(restaurantId, slot);
+            
+            int words = wordsFor(slotCount);
+            if (words > restaurantsWithDiet[0].length) {
+                for (int f = 0; f < DIET_FACETS; f++) {
+                    restaurantsWithDiet[f] = Arrays.copyOf(restaurantsWithDiet[f], words * 2);
+                }
+            }
+        }
+        
+        for (int f = 0; f < DIET_FACETS; f++) {
+            setBit(restaurantsWithDiet[f], slot, !isEmpty(bitsets.diet[f]));
+        }
+    }
+    
+    public synchronized void removeMenu(int restaurantId) {
+        menus.remove(restaurantId);
+        Integer slot = slotsByRestaurantId.get(restaurantId);
+        if (slot != null) {
+            for (int f = 0; f < DIET_FACETS; f++) {
+                setBit(restaurantsWithDiet[f], slot, false);
+            }
+        }
+    }
+    
+    public synchronized boolean hasMenu(int restaurantId) {
+        return menus.containsKey(restaurantId);
+    }
+    
+    public synchronized List<MenuItem> filterMenu(int restaurantId, Query query) {
+        MenuBitsets bitsets = menus.get(restaurantId);
+        if (bitsets == null) return Collections.emptyList();
+        
+        long[] matches = bitsets.match(query);
+        List<MenuItem> items = new ArrayList<>();
+        for (int w = 0; w < matches.length; w++) {
+            long word = matches[w];
+            while (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                items.add(bitsets.items[(w << 6) + bit]);
+                word &= word - 1;
+            }
+        }
+        return items;
+    }
+    
+    public synchronized int countMatches(int restaurantId, Query query) {
+        MenuBitsets bitsets = menus.get(restaurantId);
+        if (bitsets == null) return 0;
+        
+        long[] matches = bitsets.match(query);
+        int count = 0;
+        for (long word : matches) count += Long.bitCount(word);
+        return count;
+    }
+    
+    /**
+     * "Where can I eat": ids of cached restaurants with at least one item matching the query.
+     */
+    public synchronized List<Integer> restaurantsMatching(Query query) {
+        int words = wordsFor(slotCount);
+        long[] candidates = new long[words];
+        Arrays.fill(candidates, -1L);
+        clearTail(candidates, slotCount);
+        
+        // Restaurant-level prefilter: required facets must each appear somewhere on the menu
+        for (int f = 0; f < DIET_FACETS; f++) {
+            if ((query.requiredDiet & (1 << f)) != 0) and(candidates, restaurantsWithDiet[f]);
+        }
+        if (query.anyDiet != 0) {
+            long[] any = new long[words];
+            for (int f = 0; f < DIET_FACETS; f++) {
+                if ((query.anyDiet & (1 << f)) != 0) or(any, restaurantsWithDiet[f]);
+            }
+            and(candidates, any);
+        }
+        
+        List<Integer> result = new ArrayList<>();
+        for (int w = 0; w < words; w++) {
+            long word = candidates[w];
+            while (word != 0) {
+                int slot = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                
+                MenuBitsets bitsets = menus.get(restaurantIds[slot]);
+                if (bitsets != null && !isEmpty(bitsets.match(query))) {
+                    result.add(restaurantIds[slot]);
+                }
+            }
+        }
+        return result;
+    }
+    
+    // Facet bitsets for one menu; bit i refers to items[i]
+    private static class MenuBitsets {
+        final MenuItem[] items;
+        final int words;
+        final long[][] diet = new long[DIET_FACETS][];
+        final long[][] allergen = new long[Allergens.COUNT][];
+        final long[][] spicyAtMost = new long[MAX_SPICY_LEVEL + 1][];
+        final int[] calories;   // Integer.MAX_VALUE when unknown
+        
+        MenuBitsets(List<MenuItem> menu) {
+            items = menu.toArray(new MenuItem[0]);
+            words = wordsFor(items.length);
+            for (int f = 0; f < DIET_FACETS; f++) diet[f] = new long[words];
+            for (int a = 0; a < Allergens.COUNT; a++) allergen[a] = new long[words];
+            for (int s = 0; s <= MAX_SPICY_LEVEL; s++) spicyAtMost[s] = new long[words];
+            calories = new int[items.length];
+            
+            for (int i = 0; i < items.length; i++) {
+                MenuItem item = items[i];
+                int word = i >>> 6;
+                long bit = 1L << i;
+                
+                if (item.isVegetarian() || item.isVegan()) diet[0][word] |= bit;
+                if (item.isVegan()) diet[1][word] |= bit;
+                if (item.isGlutenFree()) diet[2][word] |= bit;
+                if (item.isAvailable()) diet[3][word] |= bit;
+                
+                int mask = Allergens.parse(item.getAllergens());
+                while (mask != 0) {
+                    int a = Integer.numberOfTrailingZeros(mask);
+                    allergen[a][word] |= bit;
+                    mask &= mask - 1;
+                }
+                
+                // Cumulative: an item with level 1 is also in the "at most 2" and "at most 3" sets
+                for (int s = Math.max(item.getSpicyLevel(), 0); s <= MAX_SPICY_LEVEL; s++) {
+                    spicyAtMost[s][word] |= bit;
+                }
+                
+                calories[i] = item.getCalories() != null ? item.getCalories() : Integer.MAX_VALUE;
+            }
+        }
+        
+        long[] match(Query query) {
+            long[] result = new long[words];
+            Arrays.fill(result, -1L);
+            clearTail(result, items.length);
+            
+            for (int f = 0; f < DIET_FACETS; f++) {
+                if ((query.requiredDiet & (1 << f)) != 0) and(result, diet[f]);
+            }
+            if (query.anyDiet != 0) {
+                long[] any = new long[words];
+                for (int f = 0; f < DIET_FACETS; f++) {
+                    if ((query.anyDiet & (1 << f)) != 0) or(any, diet[f]);
+                }
+                and(result, any);
+            }
+            
+            int excluded = query.excludedAllergens;
+            while (excluded != 0) {
+                int a = Integer.numberOfTrailingZeros(excluded);
+                if (a < Allergens.COUNT) andNot(result, allergen[a]);
+                excluded &= excluded - 1;
+            }
+            
+            if (query.maxSpicyLevel < MAX_SPICY_LEVEL) {
+                if (query.maxSpicyLevel < 0) return new long[words];
+                and(result, spicyAtMost[query.maxSpicyLevel]);
+            }
+            
+            // Calories are a range, so they are checked per surviving item rather than bucketed;
+            // unknown calories never pass an upper bound
+            if (query.maxCaloriesExclusive != Integer.MAX_VALUE) {
+                for (int w = 0; w < words; w++) {
+                    long word = result[w];
+                    while (word != 0) {
+                        int bit = Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                        if (calories[(w << 6) + bit] >= query.maxCaloriesExclusive) {
+                            result[w] &= ~(1L << bit);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+    }
+    
+    private static int wordsFor(int bits) {
+        return Math.max(1, (bits + 63) >>> 6);
+    }
+    
+    private static void clearTail(long[] bits, int size) {
+        int word = size >>> 6;
+        if (word >= bits.length) return;
+        
+        bits[word] &= (1L << (size & 63)) - 1;
+        for (int i = word + 1; i < bits.length; i++) bits[i] = 0L;
+    }
+    
+    private static void setBit(long[] bits, int index, boolean value) {
+        if (value) bits[index >>> 6] |= 1L << index;
+        else bits[index >>> 6] &= ~(1L << index);
+    }
+    
+    private static void and(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) target[i] &= i < other.length ? other[i] : 0L;
+    }
+    
+    private static void or(long[] target, long[] other) {
+        for (int i = 0; i < target.length && i < other.length; i++) target[i] |= other[i];
+    }
+    
+    private static void andNot(long[] target, long[] other) {
+        for (int i = 0; i < target.length && i < other.length; i++) target[i] &= ~other[i];
+    }
+    
+    private static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+}
\ No newline at end of file
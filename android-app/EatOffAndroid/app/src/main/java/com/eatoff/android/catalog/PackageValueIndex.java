@@ -0,0 +1,156 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.api.ApiService;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Voucher packages from every restaurant, ranked by value for the "best deals" view.
+ *
+ * Each package is reduced once to its effective price per meal and its savings against
+ * the undiscounted price, and joined with its restaurant's cuisine and location from the
+ * catalog. Both rankings are sorted at build time, so a query walks the presorted order,
+ * skips rows that fail the filters and stops at the limit. Build a new index after each
+ * package or catalog sync.
+ */
+public class PackageValueIndex {
+    
+    public enum Order { PRICE_PER_MEAL, SAVINGS }
+    
+    // Keeps the price within its bits of the packed sort keys; no real meal comes close
+    private static final int MAX_PRICE_CENTS = (1 << 23) - 1;
+    
+    private final int size;
+    private final ApiService.VoucherPackage[] packages;
+    private final int[] restaurantIds;
+    private final String[] restaurantNames;
+    private final int[] pricePerMealCents;
+    private final int[] savingsBasisPoints;   // 0..10000 of the undiscounted price
+    private final int[] cuisineCodes;
+    private final int[] locationCodes;
+    private final StringDictionary cuisines = new StringDictionary();
+    private final StringDictionary locations = new StringDictionary();
+    // Rows best first for each order
+    private final int[] byPricePerMeal;
+    private final int[] bySavings;
+    
+    /**
+     * @param restaurants catalog used for cuisine, location and name; packages whose
+     *                    restaurant is missing from it never match a cuisine or location
+     *                    filter, and packages of closed restaurants are left out
+     */
+    public PackageValueIndex(List<ApiService.VoucherPackage> all, RestaurantRows restaurants) {
+        Map<Integer, Integer> rowsById = new HashMap<>();
+        if (restaurants != null) {
+            for (int row = 0; row < restaurants.size(); row++) {
+                rowsById.put(restaurants.getId(row), row);
+            }
+        }
+        
+        int capacity = all.size();
+        packages = new ApiService.VoucherPackage[capacity];
+        restaurantIds = new int[capacity];
+        restaurantNames = new String[capacity];
+        pricePerMealCents = new int[capacity];
+        savingsBasisPoints = new int[capacity];
+        cuisineCodes = new int[capacity];
+        locationCodes = new int[capacity];
+        
+        int count = 0;
+        for (ApiService.VoucherPackage voucherPackage : all) {
+            if (!voucherPackage.isActive() || voucherPackage.getMealCount() <= 0 || !(voucherPackage.getPrice() > 0)) continue;
+            
+            Integer restaurantRow = rowsById.get(voucherPackage.getRestaurantId());
+            if (restaurantRow != null && (restaurants.getFlags(restaurantRow) & RestaurantCatalog.FLAG_ACTIVE) == 0) continue;
+            
+            packages[count] = voucherPackage;
+            restaurantIds[count] = voucherPackage.getRestaurantId();
+            pricePerMealCents[count] = (int) Math.min(Math.round(voucherPackage.getPrice() * 100 / voucherPackage.getMealCount()), MAX_PRICE_CENTS);
+            savingsBasisPoints[count] = savingsBasisPoints(voucherPackage);
+            if (restaurantRow != null) {
+                restaurantNames[count] = restaurants.getName(restaurantRow);
+                cuisineCodes[count] = cuisines.encode(restaurants.getCuisine(restaurantRow));
+                locationCodes[count] = locations.encode(restaurants.getLocation(restaurantRow));
+            } else {
+                cuisineCodes[count] = StringDictionary.NO_CODE;
+                locationCodes[count] = StringDictionary.NO_CODE;
+            }
+            count++;
+        }
+        size = count;
+        
+        // Cheaper meals first, then bigger savings; savings first, then cheaper meals
+        long[] packed = new long[size];
+        for (int row = 0; row < size; row++) {
+            packed[row] = ((long) pricePerMealCents[row] << 40) | ((long) (10_000 - savingsBasisPoints[row]) << 24) | row;
+        }
+        byPricePerMeal = rowsOf(packed);
+        for (int row = 0; row < size; row++) {
+            packed[row] = ((long) (10_000 - savingsBasisPoints[row]) << 48) | ((long) pricePerMealCents[row] << 24) | row;
+        }
+        bySavings = rowsOf(packed);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public ApiService.VoucherPackage getPackage(int row) { return packages[row]; }
+    public int getRestaurantId(int row) { return restaurantIds[row]; }
+    // Null when the restaurant is not in the catalog
+    public String getRestaurantName(int row) { return restaurantNames[row]; }
+    public int getPricePerMealCents(int row) { return pricePerMealCents[row]; }
+    public int getSavingsBasisPoints(int row) { return savingsBasisPoints[row]; }
+    public String getCuisine(int row) { return cuisines.decode(cuisineCodes[row]); }
+    public String getLocation(int row) { return locations.decode(locationCodes[row]); }
+    
+    public StringDictionary getCuisines() { return cuisines; }
+    public StringDictionary getLocations() { return locations; }
+    
+    /**
+     * Returns up to {@code limit} rows in the given order. Pass {@link StringDictionary#NO_CODE}
+     * to ignore cuisine or location, and null restaurantIds to allow every restaurant, e.g.
+     * the ids from {@link DeliveryIndex#deliveringTo} for deals near the user.
+     */
+    public int[] query(Order order, int cuisineCode, int locationCode, int[] restaurantIds, int limit) {
+        int[] ranked = order == Order.SAVINGS ? bySavings : byPricePerMeal;
+        int[] allowed = null;
+        if (restaurantIds != null) {
+            allowed = restaurantIds.clone();
+            Arrays.sort(allowed);
+        }
+        
+        int[] out = new int[Math.max(0, Math.min(limit, size))];
+        int count = 0;
+        for (int i = 0; i < ranked.length && count < out.length; i++) {
+            int row = ranked[i];
+            if (cuisineCode != StringDictionary.NO_CODE && cuisineCodes[row] != cuisineCode) continue;
+            if (locationCode != StringDictionary.NO_CODE && locationCodes[row] != locationCode) continue;
+            if (allowed != null && Arrays.binarySearch(allowed, this.restaurantIds[row]) < 0) continue;
+            out[count++] = row;
+        }
+        return count == out.length ? out : Arrays.copyOf(out, count);
+    }
+    
+    // Prefers the listed prices and falls back to the advertised discount
+    private static int savingsBasisPoints(ApiService.VoucherPackage voucherPackage) {
+        double basisPoints;
+        if (voucherPackage.getOriginalPrice() > voucherPackage.getPrice()) {
+            basisPoints = (1 - voucherPackage.getPrice() / voucherPackage.getOriginalPrice()) * 10_000;
+        } else {
+            basisPoints = voucherPackage.getDiscountPercentage() * 100.0;
+        }
+        return (int) Math.max(0, Math.min(Math.round(basisPoints), 10_000));
+    }
+    
+    private static int[] rowsOf(long[] packed) {
+        Arrays.sort(packed);
+        int[] rows = new int[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            rows[i] = (int) (packed[i] & 0xFFFFFF);
+        }
+        return rows;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,261 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.models.Restaurant;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column-oriented restaurant store for large offline catalogs.
+ *
+ * Numeric fields live in primitive arrays, cuisine/location/price range are
+ * dictionary encoded, and rows are read by index through {@link RestaurantRows}, which
+ * {@code RestaurantAdapter} binds from without one {@link Restaurant} object per entry.
+ * Ordering is done by {@link RestaurantRanker} over the same columns. Contact and audit
+ * fields are kept only so {@link #toRestaurant} returns the full record.
+ */
+public class RestaurantCatalog implements RestaurantRows {
+    
+    public static final int FLAG_ACTIVE = 1;
+    public static final int FLAG_DELIVERY = 1 << 1;
+    public static final int FLAG_TAKEOUT = 1 << 2;
+    public static final int FLAG_DINE_IN = 1 << 3;
+    
+    // Owner column value for restaurants without an owner
+    public static final int NO_OWNER = -1;
+    
+    private final StringDictionary cuisines = new StringDictionary();
+    private final StringDictionary locations = new StringDictionary();
+    private final StringDictionary priceRanges = new StringDictionary();
+    
+    private int size;
+    private int[] ids;
+    private float[] ratings;
+    private float[] deliveryFees;      // NaN when the restaurant has no fee, i.e. free delivery
+    private float[] deliveryRadii;     // NaN when unknown
+    private float[] minimumOrders;     // NaN when there is no minimum
+    private double[] latitudes;        // NaN when unknown
+    private double[] longitudes;
+    private int[] ownerIds;
+    private byte[] flags;
+    private int[] cuisineCodes;
+    private int[] locationCodes;
+    private int[] priceRangeCodes;
+    private String[] names;
+    private String[] descriptions;
+    private String[] imageUrls;
+    private String[] addresses;
+    private String[] phones;
+    private String[] emails;
+    private String[] operatingHours;
+    private String[] createdAts;
+    private String[] updatedAts;
+    
+    public RestaurantCatalog() {
+        this(16);
+    }
+    
+    public RestaurantCatalog(int initialCapacity) {
+        allocate(Math.max(initialCapacity, 1));
+    }
+    
+    public static RestaurantCatalog from(List<Restaurant> restaurants) {
+        RestaurantCatalog catalog = new RestaurantCatalog(restaurants.size());
+        for (int i = 0; i < restaurants.size(); i++) {
+            catalog.add(restaurants.get(i));
+        }
+        return catalog;
+    }
+    
+    public int add(Restaurant restaurant) {
+        if (size == ids.length) {
+            grow(size * 2);
+        }
+        
+        int row = size++;
+        ids[row] = restaurant.getId();
+        ratings[row] = parseRating(restaurant.getRating());
+        deliveryFees[row] = toFloat(restaurant.getDeliveryFee());
+        deliveryRadii[row] = toFloat(restaurant.getDeliveryRadius());
+        minimumOrders[row] = toFloat(restaurant.getMinimumDeliveryOrder());
+        flags[row] = (byte) ((restaurant.isActive() ? FLAG_ACTIVE : 0)
+                | (restaurant.isOffersDelivery() ? FLAG_DELIVERY : 0)
+                | (restaurant.isOffersTakeout() ? FLAG_TAKEOUT : 0)
+                | (restaurant.isDineInAvailable() ? FLAG_DINE_IN : 0));
+        cuisineCodes[row] = cuisines.encode(restaurant.getCuisine());
+        locationCodes[row] = locations.encode(restaurant.getLocation());
+        priceRangeCodes[row] = priceRanges.encode(restaurant.getPriceRange());
+        names[row] = restaurant.getName();
+        descriptions[row] = restaurant.getDescription();
+        imageUrls[row] = restaurant.getImageUrl();
+        latitudes[row] = restaurant.getLatitude() != null ? restaurant.getLatitude() : Double.NaN;
+        longitudes[row] = restaurant.getLongitude() != null ? restaurant.getLongitude() : Double.NaN;
+        ownerIds[row] = restaurant.getOwnerId() != null ? restaurant.getOwnerId() : NO_OWNER;
+        addresses[row] = restaurant.getAddress();
+        phones[row] = restaurant.getPhone();
+        emails[row] = restaurant.getEmail();
+        operatingHours[row] = restaurant.getOperatingHours();
+        createdAts[row] = restaurant.getCreatedAt();
+        updatedAts[row] = restaurant.getUpdatedAt();
+        return row;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    public int getId(int row) { return ids[row]; }
+    public float getRating(int row) { return ratings[row]; }
+    public float getDeliveryFee(int row) { return deliveryFees[row]; }
+    public float getDeliveryRadius(int row) { return deliveryRadii[row]; }
+    public float getMinimumOrder(int row) { return minimumOrders[row]; }
+    public int getFlags(int row) { return flags[row]; }
+    public String getName(int row) { return names[row]; }
+    public String getDescription(int row) { return descriptions[row]; }
+    public String getImageUrl(int row) { return imageUrls[row]; }
+    public String getCuisine(int row) { return cuisines.decode(cuisineCodes[row]); }
+    public String getLocation(int row) { return locations.decode(locationCodes[row]); }
+    public String getPriceRange(int row) { return priceRanges.decode(priceRangeCodes[row]); }
+    public double getLatitude(int row) { return latitudes[row]; }
+    public double getLongitude(int row) { return longitudes[row]; }
+    public int getOwnerId(int row) { return ownerIds[row]; }
+    public String getAddress(int row) { return addresses[row]; }
+    public String getPhone(int row) { return phones[row]; }
+    public String getEmail(int row) { return emails[row]; }
+    public String getOperatingHours(int row) { return operatingHours[row]; }
+    public String getCreatedAt(int row) { return createdAts[row]; }
+    public String getUpdatedAt(int row) { return updatedAts[row]; }
+    
+    public int getCuisineCode(int row) { return cuisineCodes[row]; }
+    public int getLocationCode(int row) { return locationCodes[row]; }
+    public int getPriceRangeCode(int row) { return priceRangeCodes[row]; }
+    
+    public StringDictionary getCuisines() { return cuisines; }
+    public StringDictionary getLocations() { return locations; }
+    public StringDictionary getPriceRanges() { return priceRanges; }
+    
+    /**
+     * Returns the rows matching every given criterion. Pass {@link StringDictionary#NO_CODE}
+     * (or 0 for requiredFlags, NaN for the numeric bounds) to ignore a criterion. A code
+     * from {@link StringDictionary#lookup} for a value the catalog has never seen is
+     * {@link StringDictionary#UNKNOWN_CODE}, which matches no row.
+     */
+    public int[] filter(int cuisineCode, int locationCode, int priceRangeCode,
+                        int requiredFlags, float minRating, float maxDeliveryFee) {
+        int[] out = new int[size];
+        int count = 0;
+        boolean checkRating = !Float.isNaN(minRating);
+        boolean checkFee = !Float.isNaN(maxDeliveryFee);
+        
+        for (int row = 0; row < size; row++) {
+            if (cuisineCode != StringDictionary.NO_CODE && cuisineCodes[row] != cuisineCode) continue;
+            if (locationCode != StringDictionary.NO_CODE && locationCodes[row] != locationCode) continue;
+            if (priceRangeCode != StringDictionary.NO_CODE && priceRangeCodes[row] != priceRangeCode) continue;
+            if ((flags[row] & requiredFlags) != requiredFlags) continue;
+            if (checkRating && !(ratings[row] >= minRating)) continue;
+            // A missing fee means free delivery
+            if (checkFee && deliveryFees[row] > maxDeliveryFee) continue;
+            out[count++] = row;
+        }
+        
+        return Arrays.copyOf(out, count);
+    }
+    
+    @Override
+    public Restaurant toRestaurant(int row) {
+        Restaurant restaurant = new Restaurant(ids[row], names[row], getCuisine(row), getLocation(row));
+        restaurant.setDescription(descriptions[row]);
+        restaurant.setImageUrl(imageUrls[row]);
+        restaurant.setPriceRange(getPriceRange(row));
+        if (!Float.isNaN(ratings[row])) restaurant.setRating((double) ratings[row]);
+        if (!Float.isNaN(deliveryFees[row])) restaurant.setDeliveryFee((double) deliveryFees[row]);
+        if (!Float.isNaN(deliveryRadii[row])) restaurant.setDeliveryRadius((double) deliveryRadii[row]);
+        if (!Float.isNaN(minimumOrders[row])) restaurant.setMinimumDeliveryOrder((double) minimumOrders[row]);
+        restaurant.setActive((flags[row] & FLAG_ACTIVE) != 0);
+        restaurant.setOffersDelivery((flags[row] & FLAG_DELIVERY) != 0);
+        restaurant.setOffersTakeout((flags[row] & FLAG_TAKEOUT) != 0);
+        restaurant.setDineInAvailable((flags[row] & FLAG_DINE_IN) != 0);
+        if (!Double.isNaN(latitudes[row])) restaurant.setLatitude(latitudes[row]);
+        if (!Double.isNaN(longitudes[row])) restaurant.setLongitude(longitudes[row]);
+        if (ownerIds[row] != NO_OWNER) restaurant.setOwnerId(ownerIds[row]);
+        restaurant.setAddress(addresses[row]);
+        restaurant.setPhone(phones[row]);
+        restaurant.setEmail(emails[row]);
+        restaurant.setOperatingHours(operatingHours[row]);
+        restaurant.setCreatedAt(createdAts[row]);
+        restaurant.setUpdatedAt(updatedAts[row]);
+        return restaurant;
+    }
+    
+    // Maps a float onto an int whose signed ordering matches the float ordering
+    static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits >= 0 ? bits : bits ^ 0x7FFFFFFF;
+    }
+    
+    public static float parseRating(Object rating) {
+        if (rating instanceof Number) {
+            return ((Number) rating).floatValue();
+        }
+        if (rating instanceof String) {
+            try {
+                return Float.parseFloat((String) rating);
+            } catch (NumberFormatException e) {
+                return Float.NaN;
+            }
+        }
+        return Float.NaN;
+    }
+    
+    private static float toFloat(Double value) {
+        return value != null ? value.floatValue() : Float.NaN;
+    }
+    
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        ratings = new float[capacity];
+        deliveryFees = new float[capacity];
+        deliveryRadii = new float[capacity];
+        minimumOrders = new float[capacity];
+        flags = new byte[capacity];
+        cuisineCodes = new int[capacity];
+        locationCodes = new int[capacity];
+        priceRangeCodes = new int[capacity];
+        names = new String[capacity];
+        descriptions = new String[capacity];
+        imageUrls = new String[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        ownerIds = new int[capacity];
+        addresses = new String[capacity];
+        phones = new String[capacity];
+        emails = new String[capacity];
+        operatingHours = new String[capacity];
+        createdAts = new String[capacity];
+        updatedAts = new String[capacity];
+    }
+    
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        deliveryFees = Arrays.copyOf(deliveryFees, capacity);
+        deliveryRadii = Arrays.copyOf(deliveryRadii, capacity);
+        minimumOrders = Arrays.copyOf(minimumOrders, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        cuisineCodes = Arrays.copyOf(cuisineCodes, capacity);
+        locationCodes = Arrays.copyOf(locationCodes, capacity);
+        priceRangeCodes = Arrays.copyOf(priceRangeCodes, capacity);
+        names = Arrays.copyOf(names, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        imageUrls = Arrays.copyOf(imageUrls, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        ownerIds = Arrays.copyOf(ownerIds, capacity);
+        addresses = Arrays.copyOf(addresses, capacity);
+        phones = Arrays.copyOf(phones, capacity);
+        emails = Arrays.copyOf(emails, capacity);
+        operatingHours = Arrays.copyOf(operatingHours, capacity);
+        createdAts = Arrays.copyOf(createdAts, capacity);
+        updatedAts = Arrays.copyOf(updatedAts, capacity);
+    }
+}
\ No newline at end of file
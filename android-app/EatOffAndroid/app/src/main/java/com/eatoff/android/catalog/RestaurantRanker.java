@@ -0,0 +1,156 @@
+package com.eatoff.android.catalog;
+
+import java.util.Arrays;
+
+/**
+ * Ranks catalog rows for the sort chips without re-sorting boxed model fields.
+ *
+ * Sort keys are normalised once per catalog into primitive columns. A ranking computes one
+ * float score per candidate and keeps only the best {@code k} in a bounded min-heap of
+ * packed (score, row) longs, so filling the visible window costs O(n log k) instead of a
+ * full sort. Build a new ranker after each catalog sync.
+ */
+public class RestaurantRanker {
+    
+    public static class Weights {
+        public static final Weights BY_RATING = new Weights(1f, 0f, 0f, 0f, 0f, 0f);
+        public static final Weights BY_DELIVERY_FEE = new Weights(0f, 1f, 0f, 0f, 0f, 0f);
+        public static final Weights BY_MINIMUM_ORDER = new Weights(0f, 0f, 1f, 0f, 0f, 0f);
+        public static final Weights RECOMMENDED = new Weights(0.6f, 0.2f, 0.1f, 0.05f, 0.025f, 0.025f);
+        
+        final float rating;
+        final float deliveryFee;
+        final float minimumOrder;
+        final float delivery;
+        final float takeout;
+        final float dineIn;
+        
+        /**
+         * Positive weights reward a property: rating and the service types reward high
+         * values, deliveryFee and minimumOrder reward low values.
+         */
+        public Weights(float rating, float deliveryFee, float minimumOrder,
+                       float delivery, float takeout, float dineIn) {
+            this.rating = rating;
+            this.deliveryFee = deliveryFee;
+            this.minimumOrder = minimumOrder;
+            this.delivery = delivery;
+            this.takeout = takeout;
+            this.dineIn = dineIn;
+        }
+    }
+    
+    private final int size;
+    private final float[] ratings;        // 0..1, missing ratings rank as 0
+    private final float[] deliveryFees;   // 0..1 of the largest fee, missing means free
+    private final float[] minimumOrders;  // 0..1 of the largest minimum, missing means none
+    private final byte[] flags;
+    
+    public RestaurantRanker(RestaurantCatalog catalog) {
+        size = catalog.size();
+        ratings = new float[size];
+        deliveryFees = new float[size];
+        minimumOrders = new float[size];
+        flags = new byte[size];
+        
+        float maxFee = 0f;
+        float maxMinimum = 0f;
+        for (int row = 0; row < size; row++) {
+            float fee = catalog.getDeliveryFee(row);
+            float minimum = catalog.getMinimumOrder(row);
+            if (fee > maxFee) maxFee = fee;
+            if (minimum > maxMinimum) maxMinimum = minimum;
+        }
+        
+        for (int row = 0; row < size; row++) {
+            float rating = catalog.getRating(row);
+            float fee = catalog.getDeliveryFee(row);
+            float minimum = catalog.getMinimumOrder(row);
+            ratings[row] = Float.isNaN(rating) ? 0f : Math.max(0f, Math.min(rating / 5f, 1f));
+            deliveryFees[row] = Float.isNaN(fee) || maxFee <= 0f ? 0f : fee / maxFee;
+            minimumOrders[row] = Float.isNaN(minimum) || maxMinimum <= 0f ? 0f : minimum / maxMinimum;
+            flags[row] = (byte) catalog.getFlags(row);
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public float score(int row, Weights weights) {
+        int rowFlags = flags[row];
+        return weights.rating * ratings[row]
+                - weights.deliveryFee * deliveryFees[row]
+                - weights.minimumOrder * minimumOrders[row]
+                + ((rowFlags & RestaurantCatalog.FLAG_DELIVERY) != 0 ? weights.delivery : 0f)
+                + ((rowFlags & RestaurantCatalog.FLAG_TAKEOUT) != 0 ? weights.takeout : 0f)
+                + ((rowFlags & RestaurantCatalog.FLAG_DINE_IN) != 0 ? weights.dineIn : 0f);
+    }
+    
+    /**
+     * Returns the {@code k} best of {@code rows} (or of every row when rows is null),
+     * best first. Ties keep the lower row first so repeated rankings are stable.
+     */
+    public int[] topK(int[] rows, Weights weights, int k) {
+        int candidates = rows != null ? rows.length : size;
+        k = Math.min(k, candidates);
+        if (k <= 0) return new int[0];
+        
+        long[] heap = new long[k];
+        int heapSize = 0;
+        
+        for (int i = 0; i < candidates; i++) {
+            int row = rows != null ? rows[i] : i;
+            long key = pack(score(row, weights), row);
+            
+            if (heapSize < k) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, 0, heapSize);
+            }
+        }
+        
+        Arrays.sort(heap, 0, heapSize);
+        int[] result = new int[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            // Ascending packed order is worst-first, so read it backwards
+            result[i] = unpackRow(heap[heapSize - 1 - i]);
+        }
+        return result;
+    }
+    
+    // Higher score sorts higher; for equal scores the lower row sorts higher
+    private static long pack(float score, int row) {
+        return ((long) RestaurantCatalog.sortableBits(score) << 32) | (~row & 0xFFFFFFFFL);
+    }
+    
+    private static int unpackRow(long key) {
+        return ~(int) key;
+    }
+    
+    private static void siftUp(long[] heap, int index) {
+        long key = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= key) break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+    
+    private static void siftDown(long[] heap, int index, int size) {
+        long key = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (key <= heap[child]) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.models.Restaurant;
+
+/**
+ * Read-only, index-addressed access to restaurant rows. Implemented by the in-memory
+ * {@link RestaurantCatalog} and the memory-mapped {@link CatalogSnapshot}, so the
+ * adapter can bind from either without building {@link Restaurant} objects.
+ */
+public interface RestaurantRows {
+    
+    int size();
+    
+    int getId(int row);
+    
+    String getName(int row);
+    
+    String getCuisine(int row);
+    
+    String getLocation(int row);
+    
+    String getPriceRange(int row);
+    
+    String getDescription(int row);
+    
+    String getImageUrl(int row);
+    
+    float getRating(int row);
+    
+    int getFlags(int row);
+    
+    Restaurant toRestaurant(int row);
+    
+    default int[] allRows() {
+        int[] rows = new int[size()];
+        for (int i = 0; i < rows.length; i++) rows[i] = i;
+        return rows;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.eatoff.android.catalog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for low-cardinality string columns (cuisine, location, price range).
+ * Each distinct value is stored once and rows refer to it by an int code.
+ */
+public class StringDictionary {
+    
+    public static final int NO_CODE = -1;
+    // Returned by lookup for a value never encoded; no row carries it
+    public static final int UNKNOWN_CODE = -2;
+    
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+    private int size;
+    
+    public int encode(String value) {
+        if (value == null) return NO_CODE;
+        
+        Integer code = codes.get(value);
+        if (code != null) return code;
+        
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        codes.put(value, size);
+        return size++;
+    }
+    
+    /**
+     * Code of a value for filtering: {@link #NO_CODE} for null, meaning no filter, and
+     * {@link #UNKNOWN_CODE} for a value never encoded, so filtering on it matches nothing.
+     */
+    public int lookup(String value) {
+        if (value == null) return NO_CODE;
+        Integer code = codes.get(value);
+        return code != null ? code : UNKNOWN_CODE;
+    }
+    
+    public String decode(int code) {
+        return code >= 0 && code < size ? values[code] : null;
+    }
+    
+    public int size() {
+        return size;
+    }
+}
\ No newline at end of file
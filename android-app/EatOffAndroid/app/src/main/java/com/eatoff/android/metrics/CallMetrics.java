@@ -0,0 +1,79 @@
+package com.eatoff.android.metrics;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Counters for calls made through a {@code CallScope}: how many were cancelled when their
+ * screen went away, and how many results (and bytes) arrived for a screen that was gone.
+ */
+public class CallMetrics {
+    
+    private static CallMetrics instance;
+    
+    private long enqueued;
+    private long completed;
+    // Cancelled while in flight; each one used to keep its destroyed activity reachable
+    private long cancelled;
+    // Results that arrived after their scope closed and were dropped unseen
+    private long lateResults;
+    private long wastedBytes;
+    
+    public static synchronized CallMetrics getInstance() {
+        if (instance == null) {
+            instance = new CallMetrics();
+        }
+        return instance;
+    }
+    
+    public synchronized void recordEnqueued() {
+        enqueued++;
+    }
+    
+    public synchronized void recordCompleted() {
+        completed++;
+    }
+    
+    public synchronized void recordCancelled() {
+        cancelled++;
+    }
+    
+    // contentLength is -1 when the server did not send one
+    public synchronized void recordLateResult(long contentLength) {
+        lateResults++;
+        if (contentLength > 0) wastedBytes += contentLength;
+    }
+    
+    public synchronized long getEnqueued() { return enqueued; }
+    public synchronized long getCompleted() { return completed; }
+    public synchronized long getCancelled() { return cancelled; }
+    public synchronized long getLateResults() { return lateResults; }
+    public synchronized long getWastedBytes() { return wastedBytes; }
+    
+    public synchronized String toCsvRow() {
+        return String.format(Locale.US, "%d,%d,%d,%d,%d", enqueued, completed, cancelled, lateResults, wastedBytes);
+    }
+    
+    public void exportTo(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new FileWriter(tmp)) {
+            writer.write("enqueued,completed,cancelled,late_results,wasted_bytes\n");
+            writer.write(toCsvRow());
+            writer.write('\n');
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Failed to move " + tmp + " to " + file);
+        }
+    }
+    
+    public synchronized void reset() {
+        enqueued = 0;
+        completed = 0;
+        cancelled = 0;
+        lateResults = 0;
+        wastedBytes = 0;
+    }
+}
\ No newline at end of file
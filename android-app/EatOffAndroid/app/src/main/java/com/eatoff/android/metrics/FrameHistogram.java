@@ -0,0 +1,95 @@
+package com.eatoff.android.metrics;
+
+import java.util.Locale;
+
+/**
+ * Frame durations bucketed on fixed millisecond bounds, with slow (over the display's frame
+ * budget) and frozen (over 700 ms, as Android vitals counts them) frame totals.
+ */
+public class FrameHistogram {
+    
+    public static final long FROZEN_FRAME_NANOS = 700_000_000L;
+    
+    // Upper bounds in ms; the last bucket holds everything above 700 ms
+    private static final int[] BUCKET_BOUNDS_MS = {4, 8, 12, 16, 20, 24, 32, 50, 100, 250, 700};
+    private static final long NANOS_PER_MS = 1_000_000L;
+    
+    private final long[] counts = new long[BUCKET_BOUNDS_MS.length + 1];
+    private long frames;
+    private long slowFrames;
+    private long frozenFrames;
+    private long totalNanos;
+    private long maxNanos;
+    
+    public void record(long durationNanos, long budgetNanos) {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MS.length && durationNanos > BUCKET_BOUNDS_MS[bucket] * NANOS_PER_MS) {
+            bucket++;
+        }
+        counts[bucket]++;
+        frames++;
+        totalNanos += durationNanos;
+        if (durationNanos > maxNanos) maxNanos = durationNanos;
+        if (durationNanos > budgetNanos) slowFrames++;
+        if (durationNanos > FROZEN_FRAME_NANOS) frozenFrames++;
+    }
+    
+    public void merge(FrameHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        frames += other.frames;
+        slowFrames += other.slowFrames;
+        frozenFrames += other.frozenFrames;
+        totalNanos += other.totalNanos;
+        maxNanos = Math.max(maxNanos, other.maxNanos);
+    }
+    
+    public long getFrames() { return frames; }
+    public long getSlowFrames() { return slowFrames; }
+    public long getFrozenFrames() { return frozenFrames; }
+    public long getMaxNanos() { return maxNanos; }
+    
+    public double getAverageMillis() {
+        return frames > 0 ? (double) totalNanos / frames / NANOS_PER_MS : 0;
+    }
+    
+    /**
+     * Upper bound (ms) of the bucket holding the given percentile; -1 above the last bound.
+     */
+    public int getPercentileMillis(double percentile) {
+        if (frames == 0) return 0;
+        
+        long rank = (long) Math.ceil(frames * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return BUCKET_BOUNDS_MS[i];
+        }
+        return -1;
+    }
+    
+    public static String csvHeader() {
+        StringBuilder header = new StringBuilder("key,frames,slow,frozen,avg_ms,p50_ms,p90_ms,p99_ms,max_ms");
+        for (int bound : BUCKET_BOUNDS_MS) {
+            header.append(",le_").append(bound).append("ms");
+        }
+        return header.append(",gt_700ms").toString();
+    }
+    
+    public String toCsvRow(String key) {
+        StringBuilder row = new StringBuilder(key);
+        row.append(',').append(frames)
+                .append(',').append(slowFrames)
+                .append(',').append(frozenFrames)
+                .append(',').append(String.format(Locale.ROOT, "%.2f", getAverageMillis()))
+                .append(',').append(getPercentileMillis(50))
+                .append(',').append(getPercentileMillis(90))
+                .append(',').append(getPercentileMillis(99))
+                .append(',').append(maxNanos / NANOS_PER_MS);
+        for (long count : counts) {
+            row.append(',').append(count);
+        }
+        return row.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,196 @@
+package com.eatoff.android.metrics;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.FrameMetrics;
+import android.view.Window;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Records per-frame durations while tracked lists scroll, keyed by screen and by the adapter
+ * that was binding during the frame, and exports the histograms as CSV.
+ *
+ * Frame timings come from {@link Window.OnFrameMetricsAvailableListener} on a dedicated
+ * thread. Adapters call {@link #markBind(String)} from {@code onBindViewHolder}; a frame is
+ * attributed to an adapter when one of its binds falls inside the frame's time window.
+ */
+public class FrameMetricsRecorder {
+    
+    public static final String NO_ADAPTER = "none";
+    
+    private static final int BIND_MARKS = 32;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    
+    private static FrameMetricsRecorder instance;
+    
+    private final Handler metricsHandler;
+    private final Map<Activity, Window.OnFrameMetricsAvailableListener> listeners = new HashMap<>();
+    // Guarded by this
+    private final Map<String, FrameHistogram> histograms = new HashMap<>();
+    
+    // Ring of recent binds, guarded by bindTimes
+    private final long[] bindTimes = new long[BIND_MARKS];
+    private final String[] bindTags = new String[BIND_MARKS];
+    private int nextBind;
+    // Pre-O frames have no start timestamp, so they take the binds seen since the last frame
+    private long lastFrameReportNanos;
+    
+    // Tracked lists currently dragging or settling, per activity; main thread only
+    private final Map<Activity, Integer> scrollingLists = new HashMap<>();
+    private volatile boolean recording;
+    
+    private FrameMetricsRecorder() {
+        HandlerThread thread = new HandlerThread("eatoff-frame-metrics");
+        thread.start();
+        metricsHandler = new Handler(thread.getLooper());
+    }
+    
+    public static synchronized FrameMetricsRecorder getInstance() {
+        if (instance == null) {
+            instance = new FrameMetricsRecorder();
+        }
+        return instance;
+    }
+    
+    public void attach(Activity activity, String screen) {
+        if (listeners.containsKey(activity)) return;
+        
+        float refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+        long budgetNanos = (long) (NANOS_PER_SECOND / (refreshRate > 0 ? refreshRate : 60f));
+        Window.OnFrameMetricsAvailableListener listener =
+                (window, frameMetrics, dropCount) -> onFrame(screen, frameMetrics, budgetNanos);
+        activity.getWindow().addOnFrameMetricsAvailableListener(listener, metricsHandler);
+        listeners.put(activity, listener);
+    }
+    
+    public void detach(Activity activity) {
+        Window.OnFrameMetricsAvailableListener listener = listeners.remove(activity);
+        if (listener != null) {
+            activity.getWindow().removeOnFrameMetricsAvailableListener(listener);
+        }
+        
+        // An activity destroyed mid-fling never reports its lists going idle
+        scrollingLists.remove(activity);
+        recording = !scrollingLists.isEmpty();
+    }
+    
+    /**
+     * Records frames only while this list (or another tracked one) is being scrolled.
+     */
+    public void trackScrolling(Activity activity, RecyclerView list) {
+        list.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            private boolean scrolling;
+            
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                boolean nowScrolling = newState != RecyclerView.SCROLL_STATE_IDLE;
+                if (nowScrolling == scrolling) return;
+                
+                scrolling = nowScrolling;
+                Integer count = scrollingLists.get(activity);
+                int updated = (count != null ? count : 0) + (nowScrolling ? 1 : -1);
+                if (updated > 0) {
+                    scrollingLists.put(activity, updated);
+                } else {
+                    scrollingLists.remove(activity);
+                }
+                recording = !scrollingLists.isEmpty();
+            }
+        });
+    }
+    
+    // Called on every bind, so it stays allocation-free and skips work when not recording
+    public void markBind(String adapterTag) {
+        if (!recording) return;
+        
+        synchronized (bindTimes) {
+            bindTimes[nextBind] = System.nanoTime();
+            bindTags[nextBind] = adapterTag;
+            nextBind = (nextBind + 1) % BIND_MARKS;
+        }
+    }
+    
+    public synchronized Map<String, FrameHistogram> snapshot() {
+        Map<String, FrameHistogram> copy = new TreeMap<>();
+        for (Map.Entry<String, FrameHistogram> entry : histograms.entrySet()) {
+            FrameHistogram histogram = new FrameHistogram();
+            histogram.merge(entry.getValue());
+            copy.put(entry.getKey(), histogram);
+        }
+        return copy;
+    }
+    
+    public synchronized void reset() {
+        histograms.clear();
+    }
+    
+    /**
+     * Writes one CSV row per screen/adapter key. Call off the main thread.
+     */
+    public void exportTo(File file) throws IOException {
+        Map<String, FrameHistogram> current = snapshot();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new FileWriter(tmp)) {
+            writer.write(FrameHistogram.csvHeader());
+            writer.write('\n');
+            for (Map.Entry<String, FrameHistogram> entry : current.entrySet()) {
+                writer.write(entry.getValue().toCsvRow(entry.getKey()));
+                writer.write('\n');
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Failed to move " + tmp + " to " + file);
+        }
+    }
+    
+    private void onFrame(String screen, FrameMetrics frameMetrics, long budgetNanos) {
+        if (!recording) return;
+        
+        long duration = frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION);
+        String adapter;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            long start = frameMetrics.getMetric(FrameMetrics.INTENDED_VSYNC_TIMESTAMP);
+            adapter = bindingAdapter(start, start + duration);
+        } else {
+            long now = System.nanoTime();
+            adapter = bindingAdapter(lastFrameReportNanos, now);
+            lastFrameReportNanos = now;
+        }
+        
+        String key = screen + "/" + adapter;
+        synchronized (this) {
+            FrameHistogram histogram = histograms.get(key);
+            if (histogram == null) {
+                histogram = new FrameHistogram();
+                histograms.put(key, histogram);
+            }
+            histogram.record(duration, budgetNanos);
+        }
+    }
+    
+    private String bindingAdapter(long fromNanos, long toNanos) {
+        synchronized (bindTimes) {
+            // Newest first, so the adapter that bound last in the window wins
+            for (int i = 1; i <= BIND_MARKS; i++) {
+                int slot = (nextBind - i + BIND_MARKS) % BIND_MARKS;
+                String tag = bindTags[slot];
+                if (tag == null) break;
+                
+                long time = bindTimes[slot];
+                if (time < fromNanos) break;
+                if (time <= toNanos) return tag;
+            }
+        }
+        return NO_ADAPTER;
+    }
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.eatoff.android.models;
 
+import com.eatoff.android.utils.RatingFormatter;
 import com.google.gson.annotations.SerializedName;
 
 public class Restaurant {
@@ -63,6 +64,12 @@ public class Restaurant {
     @SerializedName("minimumDeliveryOrder")
     private Double minimumDeliveryOrder;
     
+    @SerializedName("latitude")
+    private Double latitude;
+    
+    @SerializedName("longitude")
+    private Double longitude;
+    
     @SerializedName("createdAt")
     private String createdAt;
     
@@ -140,6 +147,12 @@ public class Restaurant {
     public Double getMinimumDeliveryOrder() { return minimumDeliveryOrder; }
     public void setMinimumDeliveryOrder(Double minimumDeliveryOrder) { this.minimumDeliveryOrder = minimumDeliveryOrder; }
     
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+    
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+    
     public String getCreatedAt() { return createdAt; }
     public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
     
@@ -148,21 +161,21 @@ public class Restaurant {
     
     // Helper methods
     public String getFormattedRating() {
-        if (rating == null) return "N/A";
+        if (rating == null) return RatingFormatter.NO_RATING;
         
         try {
             if (rating instanceof String) {
                 double ratingValue = Double.parseDouble((String) rating);
-                return String.format("%.1f", ratingValue);
+                return RatingFormatter.format(ratingValue);
             } else if (rating instanceof Number) {
-                return String.format("%.1f", ((Number) rating).doubleValue());
+                return RatingFormatter.format(((Number) rating).doubleValue());
             }
         } catch (NumberFormatException e) {
             // If parsing fails, return the string value
             return rating.toString();
         }
         
-        return "N/A";
+        return RatingFormatter.NO_RATING;
     }
     
     public double getRatingValue() {
@@ -215,6 +228,10 @@ public class Restaurant {
         return result.isEmpty() ? "Contact restaurant" : result;
     }
     
+    public boolean hasCoordinates() {
+        return latitude != null && longitude != null;
+    }
+    
     public String getStatusText() {
         return isActive ? "Open" : "Closed";
     }
@@ -0,0 +1,141 @@
+package com.eatoff.android.models;
+
+import com.google.gson.annotations.SerializedName;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+public class Voucher {
+    @SerializedName("id")
+    private int id;
+    
+    @SerializedName("customerId")
+    private int customerId;
+    
+    @SerializedName("packageId")
+    private int packageId;
+    
+    @SerializedName("restaurantId")
+    private int restaurantId;
+    
+    @SerializedName("restaurantName")
+    private String restaurantName;
+    
+    @SerializedName("totalMeals")
+    private int totalMeals;
+    
+    @SerializedName("usedMeals")
+    private int usedMeals;
+    
+    @SerializedName("purchasePrice")
+    private double purchasePrice;
+    
+    @SerializedName("purchaseDate")
+    private String purchaseDate;
+    
+    @SerializedName("expiryDate")
+    private String expiryDate;
+    
+    @SerializedName("status")
+    private String status; // "active", "expired", "fully_used"
+    
+    // Redemption payload encoded in the voucher's QR code
+    @SerializedName("qrCode")
+    private String qrCode;
+    
+    // Parsed from expiryDate on first use; 0 when not parsed yet, -1 when missing or unreadable
+    private transient long expiryTimeMs;
+    
+    // Constructors
+    public Voucher() {}
+    
+    public Voucher(int id, int customerId, int restaurantId, String qrCode) {
+        this.id = id;
+        this.customerId = customerId;
+        this.restaurantId = restaurantId;
+        this.qrCode = qrCode;
+    }
+    
+    // Getters and Setters
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+    
+    public int getCustomerId() { return customerId; }
+    public void setCustomerId(int customerId) { this.customerId = customerId; }
+    
+    public int getPackageId() { return packageId; }
+    public void setPackageId(int packageId) { this.packageId = packageId; }
+    
+    public int getRestaurantId() { return restaurantId; }
+    public void setRestaurantId(int restaurantId) { this.restaurantId = restaurantId; }
+    
+    public String getRestaurantName() { return restaurantName; }
+    public void setRestaurantName(String restaurantName) { this.restaurantName = restaurantName; }
+    
+    public int getTotalMeals() { return totalMeals; }
+    public void setTotalMeals(int totalMeals) { this.totalMeals = totalMeals; }
+    
+    public int getUsedMeals() { return usedMeals; }
+    public void setUsedMeals(int usedMeals) { this.usedMeals = usedMeals; }
+    
+    public double getPurchasePrice() { return purchasePrice; }
+    public void setPurchasePrice(double purchasePrice) { this.purchasePrice = purchasePrice; }
+    
+    public String getPurchaseDate() { return purchaseDate; }
+    public void setPurchaseDate(String purchaseDate) { this.purchaseDate = purchaseDate; }
+    
+    public String getExpiryDate() { return expiryDate; }
+    public void setExpiryDate(String expiryDate) {
+        this.expiryDate = expiryDate;
+        this.expiryTimeMs = 0;
+    }
+    
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    
+    public String getQrCode() { return qrCode; }
+    public void setQrCode(String qrCode) { this.qrCode = qrCode; }
+    
+    // Helper methods
+    public int getRemainingMeals() {
+        return Math.max(0, totalMeals - usedMeals);
+    }
+    
+    public String getRemainingMealsText() {
+        return getRemainingMeals() + " of " + totalMeals + " meals left";
+    }
+    
+    public boolean isActive() {
+        return "active".equalsIgnoreCase(status) && getRemainingMeals() > 0;
+    }
+    
+    // -1 when the voucher has no readable expiry date
+    public long getExpiryTimeMs() {
+        if (expiryTimeMs == 0) {
+            expiryTimeMs = parseTimestamp(expiryDate);
+        }
+        return expiryTimeMs;
+    }
+    
+    public boolean isExpired(long nowMs) {
+        long expiry = getExpiryTimeMs();
+        return expiry > 0 && nowMs >= expiry;
+    }
+    
+    // The API sends ISO-8601 timestamps, with or without milliseconds
+    private static long parseTimestamp(String timestamp) {
+        if (timestamp == null) return -1;
+        
+        for (String pattern : new String[] {"yyyy-MM-dd'T'HH:mm:ss.SSSX", "yyyy-MM-dd'T'HH:mm:ssX"}) {
+            SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            try {
+                return format.parse(timestamp).getTime();
+            } catch (ParseException e) {
+                // Try the next pattern
+            }
+        }
+        return -1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.eatoff.android.models;
+
+import com.google.gson.annotations.SerializedName;
+
+// A voucher redemption accepted offline at the restaurant, uploaded on the next sync
+public class VoucherRedemption {
+    // Generated on the device so a retried upload is recognised by the server
+    @SerializedName("id")
+    private final String id;
+    
+    @SerializedName("voucherId")
+    private final int voucherId;
+    
+    @SerializedName("restaurantId")
+    private final int restaurantId;
+    
+    @SerializedName("meals")
+    private final int meals;
+    
+    @SerializedName("redeemedAt")
+    private final long redeemedAtMs;
+    
+    public VoucherRedemption(String id, int voucherId, int restaurantId, int meals, long redeemedAtMs) {
+        this.id = id;
+        this.voucherId = voucherId;
+        this.restaurantId = restaurantId;
+        this.meals = meals;
+        this.redeemedAtMs = redeemedAtMs;
+    }
+    
+    public String getId() { return id; }
+    public int getVoucherId() { return voucherId; }
+    public int getRestaurantId() { return restaurantId; }
+    public int getMeals() { return meals; }
+    public long getRedeemedAtMs() { return redeemedAtMs; }
+}
\ No newline at end of file
@@ -0,0 +1,257 @@
+package com.eatoff.android.orders;
+
+import com.eatoff.android.models.Order;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * On-disk order history, stored as fixed-size chunks of {@link OrderSummary} in ascending id
+ * order. Chunks are read only when a page or an update reaches them, so opening the newest
+ * page costs the same for a customer with ten orders as for one with thousands.
+ *
+ * Not thread-safe; the repository uses it from the disk executor only.
+ */
+public class OrderHistoryStore {
+    
+    static final int CHUNK_SIZE = 50;
+    // Orders older than this many rows are assumed settled even if their last status was not final
+    private static final int OPEN_ORDER_WINDOW = CHUNK_SIZE;
+    private static final String CHUNK_PREFIX = "orders_";
+    private static final String CHUNK_SUFFIX = ".json";
+    private static final Type CHUNK_TYPE = new TypeToken<List<OrderSummary>>() {}.getType();
+    
+    private final File directory;
+    private final Gson gson = new Gson();
+    // Null slots are chunks not read yet
+    private List<List<OrderSummary>> chunks;
+    
+    // A chunk that cannot be read; the store has been emptied so the next sync refetches everything
+    private static final class CorruptHistoryException extends RuntimeException {
+    }
+    
+    public OrderHistoryStore(File directory) {
+        this.directory = directory;
+    }
+    
+    public int size() {
+        try {
+            return countRows();
+        } catch (CorruptHistoryException e) {
+            return 0;
+        }
+    }
+    
+    // Newest first: offset 0 is the most recent order
+    public List<OrderSummary> page(int offset, int limit) {
+        try {
+            int size = countRows();
+            int end = Math.min(size, offset + limit);
+            List<OrderSummary> page = new ArrayList<>(Math.max(0, end - offset));
+            for (int position = offset; position < end; position++) {
+                int ascending = size - 1 - position;
+                page.add(chunk(ascending / CHUNK_SIZE).get(ascending % CHUNK_SIZE));
+            }
+            return page;
+        } catch (CorruptHistoryException e) {
+            return Collections.emptyList();
+        }
+    }
+    
+    public int getLatestOrderId() {
+        int size = size();
+        return size == 0 ? 0 : page(0, 1).get(0).getId();
+    }
+    
+    /**
+     * The id to fetch after: just below the oldest recent order that can still change state,
+     * so its new status comes back with the new orders, or the latest id when all are settled.
+     */
+    public int getSyncCursor() {
+        int cursor = getLatestOrderId();
+        for (OrderSummary summary : page(0, OPEN_ORDER_WINDOW)) {
+            if (!summary.isFinal()) cursor = Math.min(cursor, summary.getId() - 1);
+        }
+        return cursor;
+    }
+    
+    /**
+     * Adds new orders and replaces the summaries of ones already stored. An older order the
+     * store has never seen is inserted in id order. Returns how many orders were new.
+     */
+    public int ingest(List<Order> orders) throws IOException {
+        try {
+            return merge(orders);
+        } catch (CorruptHistoryException e) {
+            // The store is empty now, so every order goes in as new
+            return merge(orders);
+        }
+    }
+    
+    public void clear() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        chunks = new ArrayList<>();
+    }
+    
+    private int merge(List<Order> orders) throws IOException {
+        open();
+        List<OrderSummary> summaries = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            summaries.add(OrderSummary.from(order));
+        }
+        Collections.sort(summaries, Comparator.comparingInt(OrderSummary::getId));
+        
+        Set<Integer> dirty = new HashSet<>();
+        int added = 0;
+        int latestId = getLatestOrderId();
+        for (OrderSummary summary : summaries) {
+            if (summary.getId() > latestId || chunks.isEmpty()) {
+                append(summary, dirty);
+                latestId = summary.getId();
+                added++;
+            } else if (!replace(summary, dirty)) {
+                insert(summary, dirty);
+                added++;
+            }
+        }
+        
+        for (int index : dirty) {
+            writeChunk(index);
+        }
+        return added;
+    }
+    
+    // Number of chunks read from disk so far
+    int loadedChunkCount() {
+        int loaded = 0;
+        if (chunks != null) {
+            for (List<OrderSummary> chunk : chunks) {
+                if (chunk != null) loaded++;
+            }
+        }
+        return loaded;
+    }
+    
+    private int countRows() {
+        open();
+        int count = chunks.size();
+        return count == 0 ? 0 : (count - 1) * CHUNK_SIZE + chunk(count - 1).size();
+    }
+    
+    private void open() {
+        if (chunks != null) return;
+        
+        chunks = new ArrayList<>();
+        while (chunkFile(chunks.size()).exists()) {
+            chunks.add(null);
+        }
+    }
+    
+    private List<OrderSummary> chunk(int index) {
+        List<OrderSummary> chunk = chunks.get(index);
+        if (chunk == null) {
+            chunk = readChunk(index);
+            chunks.set(index, chunk);
+        }
+        return chunk;
+    }
+    
+    private void append(OrderSummary summary, Set<Integer> dirty) {
+        int last = chunks.size() - 1;
+        if (last < 0 || chunk(last).size() == CHUNK_SIZE) {
+            chunks.add(new ArrayList<>(CHUNK_SIZE));
+            last++;
+        }
+        chunk(last).add(summary);
+        dirty.add(last);
+    }
+    
+    // Open orders are recent, so the search starts at the newest chunk and rarely goes further
+    private boolean replace(OrderSummary summary, Set<Integer> dirty) {
+        int index = chunkFor(summary.getId());
+        List<OrderSummary> chunk = chunk(index);
+        int position = Collections.binarySearch(chunk, summary, Comparator.comparingInt(OrderSummary::getId));
+        if (position < 0) return false;
+        
+        chunk.set(position, summary);
+        dirty.add(index);
+        return true;
+    }
+    
+    // Rare (the server backfilled an old order), so the overflow simply ripples through the later chunks
+    private void insert(OrderSummary summary, Set<Integer> dirty) {
+        int index = chunkFor(summary.getId());
+        List<OrderSummary> chunk = chunk(index);
+        int position = Collections.binarySearch(chunk, summary, Comparator.comparingInt(OrderSummary::getId));
+        chunk.add(-position - 1, summary);
+        dirty.add(index);
+        
+        while (chunk(index).size() > CHUNK_SIZE) {
+            OrderSummary overflow = chunk(index).remove(CHUNK_SIZE);
+            if (index + 1 == chunks.size()) chunks.add(new ArrayList<>(CHUNK_SIZE));
+            index++;
+            chunk(index).add(0, overflow);
+            dirty.add(index);
+        }
+    }
+    
+    // The newest chunk whose first id is not above the given one; the first chunk for older ids
+    private int chunkFor(int id) {
+        for (int index = chunks.size() - 1; index > 0; index--) {
+            List<OrderSummary> chunk = chunk(index);
+            if (!chunk.isEmpty() && chunk.get(0).getId() <= id) return index;
+        }
+        return 0;
+    }
+    
+    private List<OrderSummary> readChunk(int index) {
+        List<OrderSummary> chunk = null;
+        try (Reader reader = new FileReader(chunkFile(index))) {
+            chunk = gson.fromJson(reader, CHUNK_TYPE);
+        } catch (IOException | RuntimeException e) {
+            // Handled below
+        }
+        // Every chunk but the last is full; anything else means the files no longer line up
+        boolean last = index == chunks.size() - 1;
+        if (chunk == null || (last ? chunk.size() > CHUNK_SIZE : chunk.size() != CHUNK_SIZE)) {
+            clear();
+            throw new CorruptHistoryException();
+        }
+        return new ArrayList<>(chunk);
+    }
+    
+    private void writeChunk(int index) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File file = chunkFile(index);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new FileWriter(tmp)) {
+            gson.toJson(chunks.get(index), CHUNK_TYPE, writer);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Failed to move " + tmp + " to " + file);
+        }
+    }
+    
+    private File chunkFile(int index) {
+        return new File(directory, CHUNK_PREFIX + index + CHUNK_SUFFIX);
+    }
+}
\ No newline at end of file
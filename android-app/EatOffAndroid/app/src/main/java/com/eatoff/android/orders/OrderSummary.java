@@ -0,0 +1,75 @@
+package com.eatoff.android.orders;
+
+import com.eatoff.android.models.Order;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * One order-history row with its display strings computed once at ingest, so binding a row
+ * never walks the order's items.
+ */
+public final class OrderSummary {
+    
+    @SerializedName("id")
+    private final int id;
+    
+    @SerializedName("orderNumber")
+    private final String orderNumber;
+    
+    @SerializedName("restaurantName")
+    private final String restaurantName;
+    
+    @SerializedName("status")
+    private final String status;
+    
+    @SerializedName("statusText")
+    private final String statusText;
+    
+    @SerializedName("itemCount")
+    private final int itemCount;
+    
+    @SerializedName("itemSummary")
+    private final String itemSummary;
+    
+    @SerializedName("formattedTotal")
+    private final String formattedTotal;
+    
+    @SerializedName("createdAt")
+    private final long createdAtMs;
+    
+    private OrderSummary(int id, String orderNumber, String restaurantName, String status, String statusText,
+                         int itemCount, String itemSummary, String formattedTotal, long createdAtMs) {
+        this.id = id;
+        this.orderNumber = orderNumber;
+        this.restaurantName = restaurantName;
+        this.status = status;
+        this.statusText = statusText;
+        this.itemCount = itemCount;
+        this.itemSummary = itemSummary;
+        this.formattedTotal = formattedTotal;
+        this.createdAtMs = createdAtMs;
+    }
+    
+    public static OrderSummary from(Order order) {
+        return new OrderSummary(order.getId(), order.getOrderNumber(), order.getRestaurantName(),
+                order.getStatus(), order.getStatusText(), order.getItemCount(), order.getItemSummary(),
+                order.getFormattedTotal(), order.getCreatedAt() != null ? order.getCreatedAt().getTime() : 0);
+    }
+    
+    public int getId() { return id; }
+    public String getOrderNumber() { return orderNumber; }
+    public String getRestaurantName() { return restaurantName; }
+    public String getStatus() { return status; }
+    public String getStatusText() { return statusText; }
+    public int getItemCount() { return itemCount; }
+    public String getItemSummary() { return itemSummary; }
+    public String getFormattedTotal() { return formattedTotal; }
+    public long getCreatedAtMs() { return createdAtMs; }
+    
+    // Delivered, completed and cancelled orders never change again
+    public boolean isFinal() {
+        return status != null
+                && (status.equalsIgnoreCase("delivered")
+                || status.equalsIgnoreCase("completed")
+                || status.equalsIgnoreCase("cancelled"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.eatoff.android.repository;
+
+import android.content.Context;
+import android.util.Log;
+import com.eatoff.android.api.ApiClient;
+import com.eatoff.android.api.CallScope;
+import com.eatoff.android.models.Order;
+import com.eatoff.android.orders.OrderHistoryStore;
+import com.eatoff.android.orders.OrderSummary;
+import com.eatoff.android.utils.AppExecutors;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Order history kept on the device and brought up to date incrementally: each sync asks only
+ * for orders after the local cursor, a page at a time, and the orders tab reads pages from
+ * the local store.
+ */
+public class OrderHistoryRepository {
+    
+    private static final String TAG = "OrderHistoryRepository";
+    private static final String HISTORY_DIR = "order_history";
+    private static final int FETCH_PAGE_SIZE = 50;
+    
+    private static OrderHistoryRepository instance;
+    private final File directory;
+    private final AppExecutors executors = AppExecutors.getInstance();
+    // Store of the customer last synced or read; only touched on the disk executor
+    private OrderHistoryStore store;
+    private int storeCustomerId = -1;
+    // Bumped by clear(), so pages of a sync started before it are dropped; disk executor only
+    private int generation;
+    
+    public interface PageCallback {
+        void onPage(List<OrderSummary> orders, int totalCount);
+    }
+    
+    public interface SyncCallback {
+        void onSynced(int newOrders);
+        void onError(String message);
+    }
+    
+    private OrderHistoryRepository(Context context) {
+        directory = new File(context.getFilesDir(), HISTORY_DIR);
+    }
+    
+    public static synchronized OrderHistoryRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new OrderHistoryRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    // Reads a newest-first page from the device; no network
+    public void loadPage(int customerId, int offset, int limit, PageCallback callback) {
+        executors.diskIO().execute(() -> {
+            OrderHistoryStore history = storeFor(customerId);
+            List<OrderSummary> page = history.page(offset, limit);
+            int total = history.size();
+            executors.mainThread().execute(() -> callback.onPage(page, total));
+        });
+    }
+    
+    public void sync(CallScope scope, int customerId, SyncCallback callback) {
+        executors.diskIO().execute(() -> {
+            int cursor = storeFor(customerId).getSyncCursor();
+            int syncGeneration = generation;
+            executors.mainThread().execute(() -> fetchAfter(scope, customerId, syncGeneration, cursor, 0, callback));
+        });
+    }
+    
+    // Removes every customer's history, e.g. on logout
+    public void clear() {
+        executors.diskIO().execute(() -> {
+            generation++;
+            store = null;
+            storeCustomerId = -1;
+            File[] customers = directory.listFiles();
+            if (customers == null) return;
+            for (File customer : customers) {
+                new OrderHistoryStore(customer).clear();
+                customer.delete();
+            }
+        });
+    }
+    
+    private void fetchAfter(CallScope scope, int customerId, int syncGeneration, int cursor, int added,
+                            SyncCallback callback) {
+        Call<List<Order>> call = ApiClient.getInstance().getApiService()
+                .getCustomerOrdersSince(customerId, cursor, FETCH_PAGE_SIZE);
+        scope.enqueue(call, new Callback<List<Order>>() {
+            @Override
+            public void onResponse(Call<List<Order>> call, Response<List<Order>> response) {
+                if (!response.isSuccessful() || response.body() == null) {
+                    callback.onError("Failed to load orders (" + response.code() + ")");
+                    return;
+                }
+                
+                List<Order> orders = response.body();
+                executors.diskIO().execute(() -> {
+                    // Cleared while the page was in flight: storing it would recreate the history
+                    if (generation != syncGeneration) return;
+                    
+                    int total = added;
+                    int nextCursor = cursor;
+                    try {
+                        total += storeFor(customerId).ingest(orders);
+                    } catch (IOException e) {
+                        Log.w(TAG, "Failed to save order history", e);
+                    }
+                    for (Order order : orders) {
+                        nextCursor = Math.max(nextCursor, order.getId());
+                    }
+                    
+                    int synced = total;
+                    int after = nextCursor;
+                    // A full page means there may be more; an empty or short one ends the sync
+                    boolean more = orders.size() >= FETCH_PAGE_SIZE && after > cursor;
+                    executors.mainThread().execute(() -> {
+                        if (more && !scope.isClosed()) {
+                            fetchAfter(scope, customerId, syncGeneration, after, synced, callback);
+                        } else {
+                            callback.onSynced(synced);
+                        }
+                    });
+                });
+            }
+            
+            @Override
+            public void onFailure(Call<List<Order>> call, Throwable t) {
+                callback.onError("Network error: " + t.getMessage());
+            }
+        });
+    }
+    
+    private OrderHistoryStore storeFor(int customerId) {
+        if (store == null || storeCustomerId != customerId) {
+            store = new OrderHistoryStore(new File(directory, String.valueOf(customerId)));
+            storeCustomerId = customerId;
+        }
+        return store;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.eatoff.android.repository;
+
+import android.content.Context;
+import com.eatoff.android.api.ApiClient;
+import com.eatoff.android.api.ApiService;
+import com.eatoff.android.cache.CachePolicy;
+import com.eatoff.android.cache.CallFetcher;
+import com.eatoff.android.cache.ResourceCache;
+import com.eatoff.android.catalog.MenuFilterEngine;
+import com.eatoff.android.models.Customer;
+import com.eatoff.android.models.MenuItem;
+import com.eatoff.android.models.Order;
+import com.eatoff.android.models.Restaurant;
+import com.eatoff.android.models.Voucher;
+import com.eatoff.android.search.RestaurantSearchIndex;
+import com.eatoff.android.utils.AppExecutors;
+import com.eatoff.android.vouchers.QrCodeRenderer;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Cached reads of the API resources screens show repeatedly. Each method may answer twice:
+ * first from the cache with {@code stale = true}, then with the revalidated value.
+ */
+public class ResourceRepository {
+    
+    private static final Type MENU_TYPE = new TypeToken<List<MenuItem>>() {}.getType();
+    private static final Type PACKAGES_TYPE = new TypeToken<List<ApiService.VoucherPackage>>() {}.getType();
+    private static final Type VOUCHERS_TYPE = new TypeToken<List<Voucher>>() {}.getType();
+    private static final Type ORDERS_TYPE = new TypeToken<List<Order>>() {}.getType();
+    
+    private static ResourceRepository instance;
+    private final ResourceCache cache;
+    private final QrCodeRenderer qrCodes;
+    
+    private ResourceRepository(Context context) {
+        cache = ResourceCache.getInstance(context);
+        qrCodes = QrCodeRenderer.getInstance(context);
+    }
+    
+    public static synchronized ResourceRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new ResourceRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    public void getRestaurant(int restaurantId, ResourceCache.Callback<Restaurant> callback) {
+        cache.get(CachePolicy.RESTAURANT, String.valueOf(restaurantId), Restaurant.class,
+                new CallFetcher<>(() -> api().getRestaurant(restaurantId)), callback);
+    }
+    
+    /**
+     * Every menu delivered here, cached or revalidated, is also handed to the dish search
+     * index and the dietary filter off the main thread, so both cover each menu the user
+     * has opened.
+     */
+    public void getMenu(int restaurantId, ResourceCache.Callback<List<MenuItem>> callback) {
+        cache.get(CachePolicy.MENU, String.valueOf(restaurantId), MENU_TYPE,
+                new CallFetcher<>(() -> api().getRestaurantMenu(restaurantId)),
+                new ResourceCache.Callback<List<MenuItem>>() {
+                    @Override
+                    public void onResult(List<MenuItem> menu, boolean stale) {
+                        indexMenu(restaurantId, menu);
+                        callback.onResult(menu, stale);
+                    }
+                    
+                    @Override
+                    public void onError(String message) {
+                        callback.onError(message);
+                    }
+                });
+    }
+    
+    public void getVoucherPackages(int restaurantId, ResourceCache.Callback<List<ApiService.VoucherPackage>> callback) {
+        cache.get(CachePolicy.VOUCHER_PACKAGES, String.valueOf(restaurantId), PACKAGES_TYPE,
+                new CallFetcher<>(() -> api().getRestaurantPackages(restaurantId)), callback);
+    }
+    
+    public void getAllVoucherPackages(ResourceCache.Callback<List<ApiService.VoucherPackage>> callback) {
+        cache.get(CachePolicy.VOUCHER_PACKAGES, "all", PACKAGES_TYPE,
+                new CallFetcher<>(() -> api().getAllVoucherPackages()), callback);
+    }
+    
+    public void getCustomer(int customerId, ResourceCache.Callback<Customer> callback) {
+        cache.get(CachePolicy.CUSTOMER, String.valueOf(customerId), Customer.class,
+                new CallFetcher<>(() -> api().getCustomer(customerId)), callback);
+    }
+    
+    // Each voucher list delivered also renders the active vouchers' QR codes ahead of time
+    public void getCustomerVouchers(int customerId, ResourceCache.Callback<List<Voucher>> callback) {
+        cache.get(CachePolicy.VOUCHERS, String.valueOf(customerId), VOUCHERS_TYPE,
+                new CallFetcher<>(() -> api().getCustomerVouchers(customerId)),
+                new ResourceCache.Callback<List<Voucher>>() {
+                    @Override
+                    public void onResult(List<Voucher> vouchers, boolean stale) {
+                        if (vouchers != null) qrCodes.prefetch(vouchers);
+                        callback.onResult(vouchers, stale);
+                    }
+                    
+                    @Override
+                    public void onError(String message) {
+                        callback.onError(message);
+                    }
+                });
+    }
+    
+    public void getCustomerOrders(int customerId, ResourceCache.Callback<List<Order>> callback) {
+        cache.get(CachePolicy.ORDERS, String.valueOf(customerId), ORDERS_TYPE,
+                new CallFetcher<>(() -> api().getCustomerOrders(customerId)), callback);
+    }
+    
+    // A purchase or new order makes the customer's cached lists wrong before their TTL runs out
+    public void invalidateCustomerData(int customerId) {
+        String key = String.valueOf(customerId);
+        cache.invalidate(CachePolicy.VOUCHERS, key);
+        cache.invalidate(CachePolicy.ORDERS, key);
+        cache.invalidate(CachePolicy.CUSTOMER, key);
+    }
+    
+    private static void indexMenu(int restaurantId, List<MenuItem> menu) {
+        if (menu == null) return;
+        AppExecutors.getInstance().computation().execute(() -> {
+            RestaurantSearchIndex.getInstance().syncMenu(restaurantId, menu);
+            MenuFilterEngine.getInstance().syncMenu(restaurantId, menu);
+        });
+    }
+    
+    private static ApiService api() {
+        return ApiClient.getInstance().getApiService();
+    }
+}
\ No newline at end of file
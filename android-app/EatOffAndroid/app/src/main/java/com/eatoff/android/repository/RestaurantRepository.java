@@ -0,0 +1,137 @@
+package com.eatoff.android.repository;
+
+import android.content.Context;
+import android.util.Log;
+import com.eatoff.android.api.ApiClient;
+import com.eatoff.android.api.CallScope;
+import com.eatoff.android.catalog.CatalogSnapshot;
+import com.eatoff.android.catalog.DeliveryIndex;
+import com.eatoff.android.catalog.RestaurantCatalog;
+import com.eatoff.android.models.Restaurant;
+import com.eatoff.android.search.RestaurantSearchIndex;
+import com.eatoff.android.utils.AppExecutors;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the restaurant catalog from the API and keeps the local copies (mapped snapshot,
+ * search and delivery indexes) in step with every successful load.
+ */
+public class RestaurantRepository {
+    
+    private static final String TAG = "RestaurantRepository";
+    private static final String CATALOG_SNAPSHOT_FILE = "catalog.snapshot";
+    
+    private static RestaurantRepository instance;
+    private final File snapshotFile;
+    // Main thread only: index syncs still running and the work waiting for them
+    private int pendingIndexSyncs;
+    private final List<Runnable> indexWaiters = new ArrayList<>();
+    // Main thread only: told each time a newly loaded catalog has been saved
+    private final List<Runnable> catalogListeners = new ArrayList<>();
+    
+    public interface LoadCallback {
+        void onLoaded(List<Restaurant> restaurants);
+        void onError(String message);
+    }
+    
+    private RestaurantRepository(Context context) {
+        snapshotFile = new File(context.getFilesDir(), CATALOG_SNAPSHOT_FILE);
+    }
+    
+    public static synchronized RestaurantRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new RestaurantRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    // Last synced catalog, or null when there is none yet
+    public CatalogSnapshot openCatalogSnapshot() {
+        return CatalogSnapshot.open(snapshotFile);
+    }
+    
+    /**
+     * Enqueues a catalog request in the given scope. Once the scope is closed the request
+     * reports nothing, and a response that still arrives is neither saved nor indexed.
+     */
+    public Call<List<Restaurant>> fetchRestaurants(CallScope scope, LoadCallback callback) {
+        return scope.enqueue(ApiClient.getInstance().getApiService().getRestaurants(), new Callback<List<Restaurant>>() {
+            @Override
+            public void onResponse(Call<List<Restaurant>> call, Response<List<Restaurant>> response) {
+                if (response.isSuccessful() && response.body() != null) {
+                    List<Restaurant> restaurants = response.body();
+                    saveCatalogSnapshot(restaurants);
+                    indexRestaurants(restaurants);
+                    callback.onLoaded(restaurants);
+                } else {
+                    callback.onError("Failed to load restaurants");
+                }
+            }
+            
+            @Override
+            public void onFailure(Call<List<Restaurant>> call, Throwable t) {
+                if (call.isCanceled()) return;
+                callback.onError("Network error: " + t.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Runs the action on the main thread once the search and delivery indexes hold the
+     * latest loaded catalog; immediately when no index sync is running.
+     */
+    public void whenIndexed(Runnable action) {
+        if (pendingIndexSyncs == 0) {
+            action.run();
+        } else {
+            indexWaiters.add(action);
+        }
+    }
+    
+    // Main thread; the listener runs there too, once the new snapshot can be opened
+    public void addCatalogListener(Runnable listener) {
+        catalogListeners.add(listener);
+    }
+    
+    private void saveCatalogSnapshot(List<Restaurant> restaurants) {
+        AppExecutors executors = AppExecutors.getInstance();
+        executors.diskIO().execute(() -> {
+            try {
+                CatalogSnapshot.write(snapshotFile, RestaurantCatalog.from(restaurants));
+                executors.mainThread().execute(() -> {
+                    for (Runnable listener : catalogListeners) {
+                        listener.run();
+                    }
+                });
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to write catalog snapshot", e);
+            }
+        });
+    }
+    
+    // getRestaurants returns the whole catalog, so the local search index becomes complete
+    private void indexRestaurants(List<Restaurant> restaurants) {
+        pendingIndexSyncs++;
+        AppExecutors executors = AppExecutors.getInstance();
+        executors.computation().execute(() -> {
+            RestaurantSearchIndex.getInstance().sync(restaurants, true);
+            DeliveryIndex.getInstance().sync(restaurants, true);
+            executors.mainThread().execute(this::onIndexSynced);
+        });
+    }
+    
+    private void onIndexSynced() {
+        if (--pendingIndexSyncs > 0) return;
+        List<Runnable> waiting = new ArrayList<>(indexWaiters);
+        indexWaiters.clear();
+        for (Runnable action : waiting) {
+            action.run();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.eatoff.android.repository;
+
+import android.content.Context;
+import com.eatoff.android.cache.ResourceCache;
+import com.eatoff.android.cart.CartManager;
+import com.eatoff.android.utils.AddressGeocoder;
+import com.eatoff.android.utils.AuthManager;
+import com.eatoff.android.vouchers.QrCodeRenderer;
+
+/**
+ * Drops the cart and cached customer, voucher, order and address data when the user signs
+ * out, so the next user never sees the previous user's data. Registered once when the process
+ * starts.
+ */
+public class SessionCleanup implements AuthManager.LogoutListener {
+    
+    private final Context context;
+    
+    private SessionCleanup(Context context) {
+        this.context = context;
+    }
+    
+    public static void register(Context context) {
+        Context appContext = context.getApplicationContext();
+        AuthManager.getInstance(appContext).addLogoutListener(new SessionCleanup(appContext));
+    }
+    
+    @Override
+    public void onLogout() {
+        CartManager.getInstance(context).discardCart();
+        ResourceCache.getInstance(context).clear();
+        OrderHistoryRepository.getInstance(context).clear();
+        QrCodeRenderer.getInstance(context).clear();
+        AddressGeocoder.getInstance(context).clear();
+    }
+}
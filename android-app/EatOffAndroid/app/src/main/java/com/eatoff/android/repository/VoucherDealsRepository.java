@@ -0,0 +1,111 @@
+package com.eatoff.android.repository;
+
+import android.content.Context;
+import com.eatoff.android.api.ApiService;
+import com.eatoff.android.cache.ResourceCache;
+import com.eatoff.android.catalog.DeliveryIndex;
+import com.eatoff.android.catalog.PackageValueIndex;
+import com.eatoff.android.catalog.StringDictionary;
+import com.eatoff.android.utils.AppExecutors;
+import java.util.List;
+
+/**
+ * Voucher packages of every restaurant, fetched in one request and ranked on the device, so
+ * the best deals view filters and re-sorts without another request per restaurant.
+ */
+public class VoucherDealsRepository {
+    
+    private static VoucherDealsRepository instance;
+    private final ResourceRepository resources;
+    private final RestaurantRepository restaurants;
+    private final AppExecutors executors = AppExecutors.getInstance();
+    // Latest built index, or null before the first load
+    private volatile PackageValueIndex index;
+    // Main thread only: the last loaded packages, ranked again whenever the catalog changes
+    private List<ApiService.VoucherPackage> packages;
+    // Bumped on the main thread for every build so a slower build of older data is dropped
+    private int generation;
+    // Bumped for every loaded result; only the newest load's callback is answered
+    private int loads;
+    
+    public interface IndexCallback {
+        void onIndex(PackageValueIndex index, boolean stale);
+        void onError(String message);
+    }
+    
+    private VoucherDealsRepository(Context context) {
+        resources = ResourceRepository.getInstance(context);
+        restaurants = RestaurantRepository.getInstance(context);
+        restaurants.addCatalogListener(this::onCatalogChanged);
+    }
+    
+    public static synchronized VoucherDealsRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new VoucherDealsRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    public PackageValueIndex getIndex() {
+        return index;
+    }
+    
+    /**
+     * Loads the packages through the resource cache and rebuilds the index against the last
+     * synced catalog. May answer twice, like {@link ResourceRepository}: first from the
+     * cache with {@code stale = true}, then with the revalidated packages.
+     */
+    public void load(IndexCallback callback) {
+        resources.getAllVoucherPackages(new ResourceCache.Callback<List<ApiService.VoucherPackage>>() {
+            @Override
+            public void onResult(List<ApiService.VoucherPackage> loaded, boolean stale) {
+                packages = loaded;
+                loads++;
+                rebuild(loaded, callback, stale);
+            }
+            
+            @Override
+            public void onError(String message) {
+                callback.onError(message);
+            }
+        });
+    }
+    
+    // Names, cuisines and closed restaurants come from the catalog, so a new one needs a new index
+    private void onCatalogChanged() {
+        if (packages != null) rebuild(packages, null, false);
+    }
+    
+    private void rebuild(List<ApiService.VoucherPackage> packages, IndexCallback callback, boolean stale) {
+        int submitted = ++generation;
+        int submittedLoad = loads;
+        executors.computation().execute(() -> {
+            PackageValueIndex built = new PackageValueIndex(packages, restaurants.openCatalogSnapshot());
+            executors.mainThread().execute(() -> {
+                // A catalog rebuild started later still wins the index, but the load is answered
+                if (submitted == generation) index = built;
+                if (callback != null && submittedLoad == loads) callback.onIndex(built, stale);
+            });
+        });
+    }
+    
+    /**
+     * Best deals at restaurants that deliver to the given point, the only restaurant
+     * coordinates the device indexes. A null cuisine allows every cuisine; returns index
+     * rows, empty before the first load.
+     */
+    public int[] bestDealsNear(double latitude, double longitude, PackageValueIndex.Order order,
+                               String cuisine, int limit) {
+        PackageValueIndex current = index;
+        if (current == null) return new int[0];
+        
+        List<DeliveryIndex.Hit> hits = DeliveryIndex.getInstance().deliveringTo(latitude, longitude);
+        int[] nearby = new int[hits.size()];
+        for (int i = 0; i < nearby.length; i++) {
+            nearby[i] = hits.get(i).getRestaurantId();
+        }
+        // An unknown cuisine looks up as UNKNOWN_CODE and matches nothing
+        int cuisineCode = current.getCuisines().lookup(cuisine);
+        return current.query(order, cuisineCode, StringDictionary.NO_CODE, nearby, limit);
+    }
+}
\ No newline at end of file
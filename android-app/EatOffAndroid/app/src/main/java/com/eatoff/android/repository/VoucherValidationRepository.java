@@ -0,0 +1,220 @@
+package com.eatoff.android.repository;
+
+import android.content.Context;
+import android.util.Log;
+import com.eatoff.android.api.ApiClient;
+import com.eatoff.android.api.ApiService;
+import com.eatoff.android.api.CallScope;
+import com.eatoff.android.models.VoucherRedemption;
+import com.eatoff.android.storage.KeyValueStore;
+import com.eatoff.android.utils.AppExecutors;
+import com.eatoff.android.vouchers.OfflineVoucherValidator;
+import com.eatoff.android.vouchers.RedemptionQueue;
+import com.eatoff.android.vouchers.RevocationList;
+import com.eatoff.android.vouchers.VoucherTokenVerifier;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps what the scanner needs to validate vouchers offline: signing keys, the revocation
+ * list and redemptions waiting for upload, all persisted as JSON values in the app's
+ * key-value store. Syncing refreshes the first two and flushes the third whenever the
+ * network is available.
+ */
+public class VoucherValidationRepository {
+    
+    private static final String TAG = "VoucherValidationRepo";
+    private static final String KEY_SIGNING_KEYS = "voucher_signing_keys";
+    // Holds the revocation version too, so the list and its sync watermark are written as one record
+    private static final String KEY_REVOCATIONS = "voucher_revocations";
+    private static final String KEY_REDEMPTION_QUEUE = "voucher_redemption_queue";
+    private static final Type KEYS_TYPE = new TypeToken<Map<String, String>>() {}.getType();
+    
+    private static VoucherValidationRepository instance;
+    private final KeyValueStore store;
+    private final Gson gson = new Gson();
+    private final AppExecutors executors = AppExecutors.getInstance();
+    private final VoucherTokenVerifier verifier = new VoucherTokenVerifier();
+    private final RevocationList revocations;
+    private final RedemptionQueue redemptions;
+    private final OfflineVoucherValidator validator;
+    
+    public interface SyncCallback {
+        // rejectedRedemptions counts every rejection staff have not cleared yet, not only this sync's
+        void onSynced(int pendingRedemptions, int rejectedRedemptions);
+        void onError(String message);
+    }
+    
+    private VoucherValidationRepository(Context context) {
+        store = KeyValueStore.getInstance(context);
+        // Small values read once, so a scan right after a cold start can already validate
+        Map<String, String> keys = read(KEY_SIGNING_KEYS, KEYS_TYPE);
+        if (keys != null) verifier.setKeys(keys);
+        RevocationList storedRevocations = read(KEY_REVOCATIONS, RevocationList.class);
+        revocations = storedRevocations != null ? storedRevocations : new RevocationList();
+        RedemptionQueue storedQueue = read(KEY_REDEMPTION_QUEUE, RedemptionQueue.class);
+        redemptions = storedQueue != null ? storedQueue : new RedemptionQueue();
+        validator = new OfflineVoucherValidator(verifier, revocations, redemptions);
+    }
+    
+    public static synchronized VoucherValidationRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new VoucherValidationRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    public OfflineVoucherValidator getValidator() {
+        return validator;
+    }
+    
+    // False until the first successful sync; without keys every token reports UNKNOWN_KEY
+    public boolean isReady() {
+        return verifier.hasKeys();
+    }
+    
+    /**
+     * Validates and queues a redemption, then saves the queue so it survives the app being
+     * killed before the next sync.
+     */
+    public OfflineVoucherValidator.Result redeem(String rawToken, int restaurantId, int meals) {
+        OfflineVoucherValidator.Result result = validator.redeem(rawToken, restaurantId, meals, System.currentTimeMillis());
+        if (result.isValid()) saveQueue();
+        return result;
+    }
+    
+    public int getPendingRedemptionCount() {
+        return redemptions.size();
+    }
+    
+    // Redemptions the server refused after the customer was served, oldest first
+    public List<VoucherRedemption> getRejectedRedemptions() {
+        return redemptions.getRejected();
+    }
+    
+    // Once staff have followed them up
+    public void clearRejectedRedemptions() {
+        redemptions.clearRejected();
+        saveQueue();
+    }
+    
+    /**
+     * Keys, then the queued redemptions, then revocations since the stored version. Settled
+     * redemptions leave the queue only once the revocation list that counts them is applied,
+     * so their meals are never missing from both.
+     */
+    public void sync(CallScope scope, SyncCallback callback) {
+        ApiService api = ApiClient.getInstance().getApiService();
+        scope.enqueue(api.getVoucherSigningKeys(), new Callback<List<ApiService.SigningKey>>() {
+            @Override
+            public void onResponse(Call<List<ApiService.SigningKey>> call, Response<List<ApiService.SigningKey>> response) {
+                if (!response.isSuccessful() || response.body() == null) {
+                    callback.onError("Failed to load signing keys (" + response.code() + ")");
+                    return;
+                }
+                
+                Map<String, String> keys = new HashMap<>();
+                for (ApiService.SigningKey key : response.body()) {
+                    if (key.getKeyId() != null) keys.put(key.getKeyId(), key.getPublicKey());
+                }
+                verifier.setKeys(keys);
+                executors.diskIO().execute(() -> write(KEY_SIGNING_KEYS, keys, KEYS_TYPE));
+                flushRedemptions(scope, api, callback);
+            }
+            
+            @Override
+            public void onFailure(Call<List<ApiService.SigningKey>> call, Throwable t) {
+                callback.onError("Network error: " + t.getMessage());
+            }
+        });
+    }
+    
+    private void syncRevocations(CallScope scope, ApiService api, List<String> accepted, List<String> rejected,
+                                 SyncCallback callback) {
+        scope.enqueue(api.getVoucherRevocations(revocations.getVersion()), new Callback<ApiService.VoucherRevocations>() {
+            @Override
+            public void onResponse(Call<ApiService.VoucherRevocations> call, Response<ApiService.VoucherRevocations> response) {
+                if (!response.isSuccessful() || response.body() == null) {
+                    callback.onError("Failed to load revocations (" + response.code() + ")");
+                    return;
+                }
+                
+                ApiService.VoucherRevocations delta = response.body();
+                revocations.apply(delta.getVersion(), delta.getRevokedVoucherIds(), delta.getUsedMeals());
+                executors.diskIO().execute(() -> write(KEY_REVOCATIONS, revocations, RevocationList.class));
+                if (!accepted.isEmpty() || !rejected.isEmpty()) {
+                    redemptions.settle(accepted, rejected);
+                    saveQueue();
+                }
+                callback.onSynced(redemptions.size(), redemptions.getRejected().size());
+            }
+            
+            @Override
+            public void onFailure(Call<ApiService.VoucherRevocations> call, Throwable t) {
+                callback.onError("Network error: " + t.getMessage());
+            }
+        });
+    }
+    
+    private void flushRedemptions(CallScope scope, ApiService api, SyncCallback callback) {
+        List<VoucherRedemption> batch = redemptions.snapshot();
+        if (batch.isEmpty()) {
+            syncRevocations(scope, api, Collections.emptyList(), Collections.emptyList(), callback);
+            return;
+        }
+        
+        scope.enqueue(api.submitRedemptions(batch), new Callback<ApiService.RedemptionReceipt>() {
+            @Override
+            public void onResponse(Call<ApiService.RedemptionReceipt> call, Response<ApiService.RedemptionReceipt> response) {
+                if (!response.isSuccessful() || response.body() == null) {
+                    callback.onError("Failed to upload redemptions (" + response.code() + ")");
+                    return;
+                }
+                
+                // Rejected ones leave the pending meals too: the revocation sync that follows carries the server's count
+                ApiService.RedemptionReceipt receipt = response.body();
+                List<String> accepted = receipt.getAcceptedIds() != null ? receipt.getAcceptedIds() : Collections.emptyList();
+                List<String> rejected = receipt.getRejectedIds() != null ? receipt.getRejectedIds() : Collections.emptyList();
+                syncRevocations(scope, api, accepted, rejected, callback);
+            }
+            
+            @Override
+            public void onFailure(Call<ApiService.RedemptionReceipt> call, Throwable t) {
+                callback.onError("Network error: " + t.getMessage());
+            }
+        });
+    }
+    
+    private void saveQueue() {
+        executors.diskIO().execute(() -> write(KEY_REDEMPTION_QUEUE, redemptions, RedemptionQueue.class));
+    }
+    
+    private <T> T read(String key, Type type) {
+        String json = store.getString(key, null);
+        if (json == null) return null;
+        try {
+            return gson.fromJson(json, type);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Discarding unreadable " + key, e);
+            store.edit().remove(key).apply();
+            return null;
+        }
+    }
+    
+    // Serializes under the object's own lock, so the store never sees a half-applied update
+    private void write(String key, Object value, Type type) {
+        String json;
+        synchronized (value) {
+            json = gson.toJson(value, type);
+        }
+        store.edit().putString(key, json).apply();
+    }
+}
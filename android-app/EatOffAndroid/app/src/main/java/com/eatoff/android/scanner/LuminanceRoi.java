@@ -0,0 +1,49 @@
+package com.eatoff.android.scanner;
+
+/**
+ * Crops the centered square region of interest out of a camera luminance plane and shrinks
+ * it by box-averaging, so the decoder binarizes a few hundred pixels a side instead of the
+ * full preview frame.
+ */
+public final class LuminanceRoi {
+    
+    private LuminanceRoi() {}
+    
+    // Side of the region before downscaling
+    public static int roiSide(int width, int height, float fraction) {
+        return Math.max(1, (int) (Math.min(width, height) * fraction));
+    }
+    
+    // Smallest whole factor that brings the region down to at most maxSide pixels a side
+    public static int factorFor(int roiSide, int maxSide) {
+        return Math.max(1, (roiSide + maxSide - 1) / maxSide);
+    }
+    
+    /**
+     * Writes the downscaled region into {@code out}, which must hold {@code side * side}
+     * bytes where {@code side = roiSide / factor}. Returns that side.
+     */
+    public static int downscale(byte[] luminance, int width, int height, int rowStride,
+                                int roiSide, int factor, byte[] out) {
+        int side = roiSide / factor;
+        int left = (width - roiSide) / 2;
+        int top = (height - roiSide) / 2;
+        int area = factor * factor;
+        
+        for (int y = 0; y < side; y++) {
+            int sourceTop = top + y * factor;
+            for (int x = 0; x < side; x++) {
+                int sourceLeft = left + x * factor;
+                int sum = 0;
+                for (int dy = 0; dy < factor; dy++) {
+                    int offset = (sourceTop + dy) * rowStride + sourceLeft;
+                    for (int dx = 0; dx < factor; dx++) {
+                        sum += luminance[offset + dx] & 0xFF;
+                    }
+                }
+                out[y * side + x] = (byte) (sum / area);
+            }
+        }
+        return side;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,159 @@
+package com.eatoff.android.scanner;
+
+import com.eatoff.android.vouchers.OfflineVoucherValidator;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Turns camera preview frames into voucher scans for restaurant staff.
+ *
+ * Each accepted frame is reduced to a downscaled square of its center and decoded on the
+ * decode executor. Frames offered while a decode is still running are dropped rather than
+ * queued, so the pipeline always works on the newest frame. A code read again within
+ * {@link #DEDUP_WINDOW_MS} of its last read is suppressed, and every new code is checked
+ * by the {@link OfflineVoucherValidator}, so a scan needs no network.
+ */
+public class ScanPipeline {
+    
+    // Holding a voucher in front of the camera must not redeem it twice
+    public static final long DEDUP_WINDOW_MS = 3_000;
+    // Codes are shown full screen on a phone, so the middle two thirds of the frame is enough
+    private static final float ROI_FRACTION = 0.66f;
+    private static final int MAX_DECODE_SIDE = 360;
+    
+    public interface Listener {
+        void onScan(ScanResult result);
+    }
+    
+    public static final class ScanResult {
+        private final String payload;
+        private final OfflineVoucherValidator.Result validation;
+        private final long latencyNanos;
+        
+        ScanResult(String payload, OfflineVoucherValidator.Result validation, long latencyNanos) {
+            this.payload = payload;
+            this.validation = validation;
+            this.latencyNanos = latencyNanos;
+        }
+        
+        public String getPayload() { return payload; }
+        public OfflineVoucherValidator.Result getValidation() { return validation; }
+        public long getLatencyNanos() { return latencyNanos; }
+    }
+    
+    private static final Map<DecodeHintType, Object> HINTS = new EnumMap<>(DecodeHintType.class);
+    
+    static {
+        HINTS.put(DecodeHintType.POSSIBLE_FORMATS, Collections.singletonList(BarcodeFormat.QR_CODE));
+        HINTS.put(DecodeHintType.CHARACTER_SET, "UTF-8");
+    }
+    
+    private final OfflineVoucherValidator validator;
+    private final int restaurantId;
+    private final Executor decodeExecutor;
+    private final Executor callbackExecutor;
+    private final LongSupplier clock;
+    private final Listener listener;
+    private final ScanStats stats = new ScanStats();
+    
+    // Set while a frame is being decoded; the region buffer belongs to that decode until it clears
+    private final AtomicBoolean decoding = new AtomicBoolean();
+    private byte[] region = new byte[0];
+    private final QRCodeReader reader = new QRCodeReader();
+    // Payload to when it was last read, oldest first; decode thread only
+    private final Map<String, Long> recentPayloads = new LinkedHashMap<>();
+    
+    public ScanPipeline(OfflineVoucherValidator validator, int restaurantId, Executor decodeExecutor,
+                        Executor callbackExecutor, LongSupplier clock, Listener listener) {
+        this.validator = validator;
+        this.restaurantId = restaurantId;
+        this.decodeExecutor = decodeExecutor;
+        this.callbackExecutor = callbackExecutor;
+        this.clock = clock;
+        this.listener = listener;
+    }
+    
+    public ScanStats getStats() {
+        return stats;
+    }
+    
+    /**
+     * Offers a frame's luminance plane (the Y plane of NV21 or YUV_420_888). The region is
+     * copied before this returns, so the caller may reuse the buffer. Returns false when the
+     * frame was dropped because a decode is still in flight.
+     */
+    public boolean offer(byte[] luminance, int width, int height, int rowStride) {
+        boolean accepted = decoding.compareAndSet(false, true);
+        stats.recordOffered(accepted);
+        if (!accepted) return false;
+        
+        long offeredAt = System.nanoTime();
+        int roiSide = LuminanceRoi.roiSide(width, height, ROI_FRACTION);
+        int factor = LuminanceRoi.factorFor(roiSide, MAX_DECODE_SIDE);
+        int side = roiSide / factor;
+        if (region.length < side * side) {
+            region = new byte[side * side];
+        }
+        LuminanceRoi.downscale(luminance, width, height, rowStride, roiSide, factor, region);
+        
+        decodeExecutor.execute(() -> {
+            try {
+                decode(side, offeredAt);
+            } finally {
+                decoding.set(false);
+            }
+        });
+        return true;
+    }
+    
+    private void decode(int side, long offeredAt) {
+        PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(region, side, side, 0, 0, side, side, false);
+        String payload;
+        try {
+            Result result = reader.decode(new BinaryBitmap(new HybridBinarizer(source)), HINTS);
+            payload = result.getText();
+        } catch (ReaderException e) {
+            stats.recordDecode(false, System.nanoTime() - offeredAt);
+            return;
+        } finally {
+            reader.reset();
+        }
+        long latency = System.nanoTime() - offeredAt;
+        stats.recordDecode(true, latency);
+        
+        long now = clock.getAsLong();
+        Long lastSeenAt = recentPayloads.remove(payload);
+        recentPayloads.put(payload, now);
+        forgetPayloadsSeenBefore(now - DEDUP_WINDOW_MS);
+        if (lastSeenAt != null && now - lastSeenAt < DEDUP_WINDOW_MS) {
+            // Still in front of the camera; keep suppressing until it has been away for the window
+            stats.recordDuplicate();
+            return;
+        }
+        
+        ScanResult result = new ScanResult(payload, validator.validate(payload, restaurantId, now), latency);
+        callbackExecutor.execute(() -> listener.onScan(result));
+    }
+    
+    // Entries are kept in read order, so the expired ones are all at the front
+    private void forgetPayloadsSeenBefore(long cutoffMs) {
+        Iterator<Long> seenAt = recentPayloads.values().iterator();
+        while (seenAt.hasNext() && seenAt.next() <= cutoffMs) {
+            seenAt.remove();
+        }
+    }
+}
\ No newline at end of file
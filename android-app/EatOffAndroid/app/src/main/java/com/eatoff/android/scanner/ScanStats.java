@@ -0,0 +1,57 @@
+package com.eatoff.android.scanner;
+
+import java.util.Locale;
+
+/**
+ * Throughput counters for a {@link ScanPipeline}: frames offered and dropped, decode success
+ * rate, repeat scans suppressed, and offer-to-result latency.
+ */
+public class ScanStats {
+    
+    private long framesOffered;
+    private long framesDropped;
+    private long decodeAttempts;
+    private long decoded;
+    private long duplicates;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+    
+    synchronized void recordOffered(boolean accepted) {
+        framesOffered++;
+        if (!accepted) framesDropped++;
+    }
+    
+    synchronized void recordDecode(boolean found, long latencyNanos) {
+        decodeAttempts++;
+        if (found) decoded++;
+        totalLatencyNanos += latencyNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+    }
+    
+    synchronized void recordDuplicate() {
+        duplicates++;
+    }
+    
+    public synchronized long getFramesOffered() { return framesOffered; }
+    public synchronized long getFramesDropped() { return framesDropped; }
+    public synchronized long getDecodeAttempts() { return decodeAttempts; }
+    public synchronized long getDecoded() { return decoded; }
+    public synchronized long getDuplicates() { return duplicates; }
+    public synchronized long getMaxLatencyNanos() { return maxLatencyNanos; }
+    
+    // Share of decoded frames that contained a readable code
+    public synchronized double getDecodeRate() {
+        return decodeAttempts > 0 ? (double) decoded / decodeAttempts : 0;
+    }
+    
+    public synchronized double getAverageLatencyMillis() {
+        return decodeAttempts > 0 ? totalLatencyNanos / 1e6 / decodeAttempts : 0;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "offered=%d dropped=%d decoded=%d/%d (%.1f%%) duplicates=%d avg=%.2fms max=%.2fms",
+                framesOffered, framesDropped, decoded, decodeAttempts, getDecodeRate() * 100, duplicates,
+                getAverageLatencyMillis(), maxLatencyNanos / 1e6);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,257 @@
+package com.eatoff.android.search;
+
+import com.eatoff.android.models.MenuItem;
+import com.eatoff.android.models.Restaurant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typo-tolerant matcher over restaurant and dish names.
+ *
+ * Every folded name token is stored in a trie. A query token walks the trie carrying one
+ * edit-distance row per level and prunes any branch whose row minimum exceeds the allowed
+ * distance, so only a small fraction of the corpus is visited. Adjacent transpositions
+ * ("suhsi") count as a single edit. Instances are immutable;
+ * build a new one with {@link Builder} when the catalog changes.
+ */
+public class FuzzyMatcher {
+    
+    public static final int KIND_RESTAURANT = 0;
+    public static final int KIND_MENU_ITEM = 1;
+    
+    // One rating star is worth a quarter of an edit when ranking
+    private static final double RATING_WEIGHT = 0.25;
+    private static final int MAX_TOKEN_LENGTH = 32;
+    
+    public static class Match {
+        private final int kind;
+        private final int id;
+        private final int restaurantId;
+        private final String name;
+        private final int distance;
+        private final double score;
+        
+        Match(int kind, int id, int restaurantId, String name, int distance, double score) {
+            this.kind = kind;
+            this.id = id;
+            this.restaurantId = restaurantId;
+            this.name = name;
+            this.distance = distance;
+            this.score = score;
+        }
+        
+        public int getKind() { return kind; }
+        public int getId() { return id; }
+        public int getRestaurantId() { return restaurantId; }
+        public String getName() { return name; }
+        public int getDistance() { return distance; }
+        public double getScore() { return score; }
+    }
+    
+    private final Node root;
+    private final int[] kinds;
+    private final int[] ids;
+    private final int[] restaurantIds;
+    private final String[] names;
+    private final double[] ratings;
+    
+    private FuzzyMatcher(Builder builder) {
+        this.root = builder.root;
+        int size = builder.names.size();
+        this.kinds = Arrays.copyOf(builder.kinds, size);
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.restaurantIds = Arrays.copyOf(builder.restaurantIds, size);
+        this.ratings = Arrays.copyOf(builder.ratings, size);
+        this.names = builder.names.toArray(new String[size]);
+    }
+    
+    public int size() {
+        return names.length;
+    }
+    
+    /**
+     * Every query token must match some token of a name within its edit budget
+     * (none up to 3 characters, 1 up to 5, otherwise 2). Results are ordered by total
+     * distance minus a small rating bonus.
+     */
+    public List<Match> search(String query, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty()) return Collections.emptyList();
+        
+        Map<Integer, Integer> totals = null;
+        for (String token : tokens) {
+            if (token.length() > MAX_TOKEN_LENGTH) token = token.substring(0, MAX_TOKEN_LENGTH);
+            
+            Map<Integer, Integer> best = new HashMap<>();
+            collect(token, maxDistance(token.length()), best);
+            
+            if (totals == null) {
+                totals = best;
+            } else {
+                Map<Integer, Integer> merged = new HashMap<>();
+                for (Map.Entry<Integer, Integer> entry : totals.entrySet()) {
+                    Integer distance = best.get(entry.getKey());
+                    if (distance != null) merged.put(entry.getKey(), entry.getValue() + distance);
+                }
+                totals = merged;
+            }
+            if (totals.isEmpty()) return Collections.emptyList();
+        }
+        
+        List<Match> matches = new ArrayList<>(totals.size());
+        for (Map.Entry<Integer, Integer> entry : totals.entrySet()) {
+            int entryId = entry.getKey();
+            int distance = entry.getValue();
+            double score = distance - RATING_WEIGHT * ratings[entryId];
+            matches.add(new Match(kinds[entryId], ids[entryId], restaurantIds[entryId],
+                    names[entryId], distance, score));
+        }
+        
+        Collections.sort(matches, (a, b) -> Double.compare(a.score, b.score));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+    
+    static int maxDistance(int length) {
+        if (length <= 3) return 0;
+        if (length <= 5) return 1;
+        return 2;
+    }
+    
+    private void collect(String token, int maxDistance, Map<Integer, Integer> best) {
+        int columns = token.length() + 1;
+        int depthLimit = MAX_TOKEN_LENGTH + 1;
+        int[][] rows = new int[depthLimit][columns];
+        char[] path = new char[depthLimit];
+        for (int i = 0; i < columns; i++) rows[0][i] = i;
+        
+        for (int c = 0; c < root.childCount; c++) {
+            walk(root.children[c], root.keys[c], 1, 0, token, maxDistance, rows, path, best);
+        }
+    }
+    
+    private void walk(Node node, char letter, int depth, int parentMin, String token, int maxDistance,
+                      int[][] rows, char[] path, Map<Integer, Integer> best) {
+        int[] previous = rows[depth - 1];
+        int[] current = rows[depth];
+        int columns = token.length() + 1;
+        path[depth] = letter;
+        
+        current[0] = previous[0] + 1;
+        int rowMin = current[0];
+        for (int i = 1; i < columns; i++) {
+            char expected = token.charAt(i - 1);
+            int cost = expected == letter ? 0 : 1;
+            int value = Math.min(Math.min(current[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+            if (depth > 1 && i > 1 && letter == token.charAt(i - 2) && path[depth - 1] == expected) {
+                value = Math.min(value, rows[depth - 2][i - 2] + 1);
+            }
+            current[i] = value;
+            if (value < rowMin) rowMin = value;
+        }
+        
+        int distance = current[columns - 1];
+        if (distance <= maxDistance) {
+            for (int e = 0; e < node.entryCount; e++) {
+                Integer existing = best.get(node.entries[e]);
+                if (existing == null || distance < existing) best.put(node.entries[e], distance);
+            }
+        }
+        
+        // Deeper rows never drop below this row's minimum, except through a transposition
+        // reaching back to the parent row at the cost of one edit
+        if (rowMin > maxDistance && parentMin >= maxDistance) return;
+        if (depth + 1 >= rows.length) return;
+        for (int c = 0; c < node.childCount; c++) {
+            walk(node.children[c], node.keys[c], depth + 1, rowMin, token, maxDistance, rows, path, best);
+        }
+    }
+    
+    private static class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        int childCount;
+        int[] entries;
+        int entryCount;
+        
+        Node child(char key) {
+            for (int i = 0; i < childCount; i++) {
+                if (keys[i] == key) return children[i];
+            }
+            if (childCount == keys.length) {
+                int capacity = Math.max(2, childCount * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            Node child = new Node();
+            keys[childCount] = key;
+            children[childCount] = child;
+            childCount++;
+            return child;
+        }
+        
+        void addEntry(int entry) {
+            if (entries == null) {
+                entries = new int[1];
+            } else if (entryCount > 0 && entries[entryCount - 1] == entry) {
+                return;
+            } else if (entryCount == entries.length) {
+                entries = Arrays.copyOf(entries, entryCount * 2);
+            }
+            entries[entryCount++] = entry;
+        }
+    }
+    
+    public static class Builder {
+        private final Node root = new Node();
+        private final List<String> names = new ArrayList<>();
+        private int[] kinds = new int[64];
+        private int[] ids = new int[64];
+        private int[] restaurantIds = new int[64];
+        private double[] ratings = new double[64];
+        
+        public Builder addRestaurant(Restaurant restaurant) {
+            return add(KIND_RESTAURANT, restaurant.getId(), restaurant.getId(),
+                    restaurant.getName(), restaurant.getRatingValue());
+        }
+        
+        // Dishes have no rating of their own, so they rank by their restaurant's
+        public Builder addMenuItem(MenuItem item, double restaurantRating) {
+            return add(KIND_MENU_ITEM, item.getId(), item.getRestaurantId(), item.getName(), restaurantRating);
+        }
+        
+        public FuzzyMatcher build() {
+            return new FuzzyMatcher(this);
+        }
+        
+        private Builder add(int kind, int id, int restaurantId, String name, double rating) {
+            if (name == null || name.isEmpty()) return this;
+            
+            int entry = names.size();
+            if (entry == kinds.length) {
+                int capacity = entry * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                restaurantIds = Arrays.copyOf(restaurantIds, capacity);
+                ratings = Arrays.copyOf(ratings, capacity);
+            }
+            kinds[entry] = kind;
+            ids[entry] = id;
+            restaurantIds[entry] = restaurantId;
+            ratings[entry] = rating;
+            names.add(name);
+            
+            for (String token : TextNormalizer.tokenize(name)) {
+                Node node = root;
+                for (int i = 0; i < token.length() && i < MAX_TOKEN_LENGTH; i++) {
+                    node = node.child(token.charAt(i));
+                }
+                node.addEntry(entry);
+            }
+            return this;
+        }
+    }
+}
\ No newline at end of file
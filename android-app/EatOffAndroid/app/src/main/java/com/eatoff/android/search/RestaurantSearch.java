@@ -0,0 +1,90 @@
+package com.eatoff.android.search;
+
+import com.eatoff.android.api.ApiService;
+import com.eatoff.android.models.Restaurant;
+import com.eatoff.android.utils.AppExecutors;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers restaurant searches from the local index and only falls back to
+ * {@link ApiService#searchRestaurants} while the index does not hold the full catalog.
+ * When an exact search finds nothing, typo-tolerant matches on restaurant and dish names
+ * that pass the same filters are returned instead of an empty list.
+ */
+public class RestaurantSearch {
+    
+    public static final int MAX_RESULTS = 50;
+    
+    public interface SearchCallback {
+        void onResults(List<Restaurant> restaurants, boolean fromLocalIndex);
+        void onError(String message);
+    }
+    
+    private final RestaurantSearchIndex index;
+    private final ApiService apiService;
+    
+    public RestaurantSearch(RestaurantSearchIndex index, ApiService apiService) {
+        this.index = index;
+        this.apiService = apiService;
+    }
+    
+    /**
+     * Local results are delivered synchronously and null is returned; otherwise the
+     * in-flight remote call is returned so callers can cancel superseded queries.
+     */
+    public Call<List<Restaurant>> search(String query, String cuisine, String location,
+                                         String priceRange, SearchCallback callback) {
+        if (index.isComplete()) {
+            List<Restaurant> results = index.search(query, cuisine, location, priceRange, MAX_RESULTS);
+            if (results.isEmpty() && query != null && !query.trim().isEmpty()) {
+                results = fuzzyResults(query, cuisine, location, priceRange);
+            }
+            callback.onResults(results, true);
+            return null;
+        }
+        
+        Call<List<Restaurant>> call = apiService.searchRestaurants(query, cuisine, location, priceRange);
+        call.enqueue(new Callback<List<Restaurant>>() {
+            @Override
+            public void onResponse(Call<List<Restaurant>> call, Response<List<Restaurant>> response) {
+                if (response.isSuccessful() && response.body() != null) {
+                    List<Restaurant> restaurants = response.body();
+                    // Remote hits still feed the index so repeated queries can be answered locally
+                    AppExecutors.getInstance().computation().execute(() -> index.sync(restaurants, false));
+                    callback.onResults(restaurants, false);
+                } else {
+                    callback.onError("Search failed: Server error (" + response.code() + ")");
+                }
+            }
+            
+            @Override
+            public void onFailure(Call<List<Restaurant>> call, Throwable t) {
+                if (!call.isCanceled()) {
+                    callback.onError("Network error: " + t.getMessage());
+                }
+            }
+        });
+        return call;
+    }
+    
+    // Filters are applied after matching, so over-fetch to still fill a page; dish matches surface
+    // the restaurant serving them and each restaurant is listed once
+    private List<Restaurant> fuzzyResults(String query, String cuisine, String location, String priceRange) {
+        Map<Integer, Restaurant> restaurants = new LinkedHashMap<>();
+        for (FuzzyMatcher.Match match : index.fuzzySearch(query, MAX_RESULTS * 4)) {
+            if (restaurants.size() == MAX_RESULTS) break;
+            if (restaurants.containsKey(match.getRestaurantId())) continue;
+            Restaurant restaurant = index.getRestaurant(match.getRestaurantId());
+            if (restaurant == null
+                    || !RestaurantSearchIndex.matchesFilters(restaurant, cuisine, location, priceRange)) continue;
+            restaurants.put(match.getRestaurantId(), restaurant);
+        }
+        return new ArrayList<>(restaurants.values());
+    }
+}
\ No newline at end of file
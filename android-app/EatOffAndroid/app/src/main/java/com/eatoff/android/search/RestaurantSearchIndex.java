@@ -0,0 +1,325 @@
+package com.eatoff.android.search;
+
+import com.eatoff.android.models.MenuItem;
+import com.eatoff.android.models.Restaurant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * On-device inverted index over restaurant name, cuisine, description and location.
+ *
+ * Terms are diacritic-folded and kept in a sorted map so every query token is matched as a
+ * prefix, which makes type-ahead work without a network round trip. The index is fed
+ * incrementally as the catalog syncs; {@link #isComplete()} tells callers whether a full
+ * catalog has been indexed or the remote search is still needed.
+ */
+public class RestaurantSearchIndex {
+    
+    private static final int FIELD_NAME = 1;
+    private static final int FIELD_CUISINE = 1 << 1;
+    private static final int FIELD_LOCATION = 1 << 2;
+    private static final int FIELD_DESCRIPTION = 1 << 3;
+    
+    private static RestaurantSearchIndex instance;
+    
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Integer, Integer> docsByRestaurantId = new HashMap<>();
+    private final List<Restaurant> docs = new ArrayList<>(); // null once a doc is replaced or removed
+    private double[] docRatings = new double[64];           // parsed once so ranking never re-parses
+    private final Map<Integer, List<MenuItem>> menus = new HashMap<>();
+    private int deletedDocs;
+    private volatile boolean complete;
+    private volatile FuzzyMatcher fuzzyMatcher = new FuzzyMatcher.Builder().build();
+    
+    public static synchronized RestaurantSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new RestaurantSearchIndex();
+        }
+        return instance;
+    }
+    
+    /**
+     * Indexes a batch from a sync. Unchanged restaurants are skipped; when the batch is the
+     * full catalog, restaurants missing from it are dropped and the index becomes complete.
+     */
+    public synchronized void sync(List<Restaurant> restaurants, boolean fullCatalog) {
+        Set<Integer> seen = fullCatalog ? new HashSet<Integer>() : null;
+        
+        for (Restaurant restaurant : restaurants) {
+            add(restaurant);
+            if (seen != null) seen.add(restaurant.getId());
+        }
+        
+        if (fullCatalog) {
+            for (Integer id : new ArrayList<>(docsByRestaurantId.keySet())) {
+                if (!seen.contains(id)) remove(id);
+            }
+            complete = true;
+        }
+        
+        if (deletedDocs > 64 && deletedDocs > docs.size() / 2) {
+            rebuild();
+        }
+        rebuildFuzzyMatcher();
+    }
+    
+    /**
+     * Menu item names only feed the typo-tolerant matcher; the inverted index stays
+     * restaurant-level. A menu whose dish names have not changed since the last call
+     * (the cached copy followed by its revalidation) does not rebuild the matcher.
+     */
+    public synchronized void syncMenu(int restaurantId, List<MenuItem> items) {
+        if (sameDishNames(menus.get(restaurantId), items)) return;
+        menus.put(restaurantId, new ArrayList<>(items));
+        rebuildFuzzyMatcher();
+    }
+    
+    public synchronized void add(Restaurant restaurant) {
+        Integer existing = docsByRestaurantId.get(restaurant.getId());
+        if (existing != null) {
+            if (sameIndexedFields(docs.get(existing), restaurant)) {
+                docs.set(existing, restaurant);
+                docRatings[existing] = restaurant.getRatingValue();
+                return;
+            }
+            docs.set(existing, null);
+            deletedDocs++;
+        }
+        
+        int doc = docs.size();
+        docs.add(restaurant);
+        if (doc == docRatings.length) docRatings = Arrays.copyOf(docRatings, doc * 2);
+        docRatings[doc] = restaurant.getRatingValue();
+        docsByRestaurantId.put(restaurant.getId(), doc);
+        
+        indexField(doc, restaurant.getName(), FIELD_NAME);
+        indexField(doc, restaurant.getCuisine(), FIELD_CUISINE);
+        indexField(doc, restaurant.getLocation(), FIELD_LOCATION);
+        indexField(doc, restaurant.getDescription(), FIELD_DESCRIPTION);
+    }
+    
+    public synchronized void remove(int restaurantId) {
+        menus.remove(restaurantId);
+        Integer doc = docsByRestaurantId.remove(restaurantId);
+        if (doc != null) {
+            docs.set(doc, null);
+            deletedDocs++;
+        }
+    }
+    
+    public boolean isComplete() {
+        return complete;
+    }
+    
+    public synchronized int size() {
+        return docsByRestaurantId.size();
+    }
+    
+    public synchronized Restaurant getRestaurant(int restaurantId) {
+        Integer doc = docsByRestaurantId.get(restaurantId);
+        return doc != null ? docs.get(doc) : null;
+    }
+    
+    /**
+     * Approximate matching over restaurant and dish names for queries that found nothing
+     * exactly. Reads an immutable snapshot of the matcher, so it never waits on a sync.
+     */
+    public List<FuzzyMatcher.Match> fuzzySearch(String query, int limit) {
+        return fuzzyMatcher.search(query, limit);
+    }
+    
+    /**
+     * Returns matching restaurants, best first. Every query token must prefix-match a term;
+     * hits in the name outrank cuisine/location, which outrank the description, and ties
+     * are broken by rating. Cuisine, location and price range are exact (folded) filters
+     * mirroring {@code ApiService.searchRestaurants}; pass null to ignore them.
+     */
+    public synchronized List<Restaurant> search(String query, String cuisine, String location,
+                                                String priceRange, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        int[] candidates;
+        int[] scores;
+        if (tokens.isEmpty()) {
+            candidates = new int[docs.size()];
+            for (int doc = 0; doc < candidates.length; doc++) candidates[doc] = doc;
+            scores = new int[docs.size()];
+        } else {
+            scores = new int[docs.size()];
+            candidates = matchAllTokens(tokens, scores);
+        }
+        
+        List<Integer> hits = new ArrayList<>();
+        for (int doc : candidates) {
+            Restaurant restaurant = docs.get(doc);
+            if (restaurant == null) continue;
+            if (!matchesFilters(restaurant, cuisine, location, priceRange)) continue;
+            hits.add(doc);
+        }
+        
+        final int[] finalScores = scores;
+        Collections.sort(hits, (a, b) -> {
+            if (finalScores[a] != finalScores[b]) return finalScores[b] - finalScores[a];
+            return Double.compare(docRatings[b], docRatings[a]);
+        });
+        
+        List<Restaurant> results = new ArrayList<>(Math.min(limit, hits.size()));
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            results.add(docs.get(hits.get(i)));
+        }
+        return results;
+    }
+    
+    // Intersects the per-token prefix unions; scores accumulate the best field weight per token
+    private int[] matchAllTokens(List<String> tokens, int[] scores) {
+        int[] matchedTokens = new int[docs.size()];
+        int[] tokenScores = new int[docs.size()];
+        int[] candidates = null;
+        int candidateCount = 0;
+        
+        for (int t = 0; t < tokens.size(); t++) {
+            String token = tokens.get(t);
+            NavigableMap<String, Postings> range =
+                    terms.subMap(token, true, token + Character.MAX_VALUE, false);
+            
+            int[] touched = new int[16];
+            int touchedCount = 0;
+            for (Map.Entry<String, Postings> entry : range.entrySet()) {
+                Postings postings = entry.getValue();
+                int exactBonus = entry.getKey().length() == token.length() ? 1 : 0;
+                
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = postings.docs[i];
+                    // Only docs that matched every previous token stay candidates
+                    if (matchedTokens[doc] != t && matchedTokens[doc] != t + 1) continue;
+                    
+                    int score = fieldWeight(postings.fields[i]) + exactBonus;
+                    if (matchedTokens[doc] == t) {
+                        matchedTokens[doc] = t + 1;
+                        tokenScores[doc] = score;
+                        if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                        touched[touchedCount++] = doc;
+                    } else if (score > tokenScores[doc]) {
+                        tokenScores[doc] = score;
+                    }
+                }
+            }
+            
+            for (int i = 0; i < touchedCount; i++) {
+                scores[touched[i]] += tokenScores[touched[i]];
+            }
+            candidates = touched;
+            candidateCount = touchedCount;
+            if (candidateCount == 0) break;
+        }
+        
+        return candidates != null ? Arrays.copyOf(candidates, candidateCount) : new int[0];
+    }
+    
+    private void rebuildFuzzyMatcher() {
+        FuzzyMatcher.Builder builder = new FuzzyMatcher.Builder();
+        for (Restaurant restaurant : docs) {
+            if (restaurant != null) builder.addRestaurant(restaurant);
+        }
+        for (Map.Entry<Integer, List<MenuItem>> menu : menus.entrySet()) {
+            Integer doc = docsByRestaurantId.get(menu.getKey());
+            double rating = doc != null ? docRatings[doc] : 0.0;
+            for (MenuItem item : menu.getValue()) {
+                builder.addMenuItem(item, rating);
+            }
+        }
+        fuzzyMatcher = builder.build();
+    }
+    
+    private void indexField(int doc, String text, int field) {
+        for (String token : TextNormalizer.tokenize(text)) {
+            Postings postings = terms.get(token);
+            if (postings == null) {
+                postings = new Postings();
+                terms.put(token, postings);
+            }
+            postings.add(doc, field);
+        }
+    }
+    
+    private void rebuild() {
+        List<Restaurant> live = new ArrayList<>(docsByRestaurantId.size());
+        for (Restaurant restaurant : docs) {
+            if (restaurant != null) live.add(restaurant);
+        }
+        
+        terms.clear();
+        docs.clear();
+        docsByRestaurantId.clear();
+        deletedDocs = 0;
+        for (Restaurant restaurant : live) {
+            add(restaurant);
+        }
+    }
+    
+    // Filters compare folded values exactly, so "Brasov" also matches "Brașov"
+    static boolean matchesFilters(Restaurant restaurant, String cuisine, String location, String priceRange) {
+        return matchesFilter(cuisine, restaurant.getCuisine())
+                && matchesFilter(location, restaurant.getLocation())
+                && matchesFilter(priceRange, restaurant.getPriceRange());
+    }
+    
+    private static boolean matchesFilter(String filter, String value) {
+        return filter == null || TextNormalizer.fold(filter).equals(TextNormalizer.fold(value));
+    }
+    
+    private static int fieldWeight(int fields) {
+        if ((fields & FIELD_NAME) != 0) return 4;
+        if ((fields & (FIELD_CUISINE | FIELD_LOCATION)) != 0) return 2;
+        return 1;
+    }
+    
+    private static boolean sameIndexedFields(Restaurant a, Restaurant b) {
+        return a != null
+                && equals(a.getName(), b.getName())
+                && equals(a.getCuisine(), b.getCuisine())
+                && equals(a.getLocation(), b.getLocation())
+                && equals(a.getDescription(), b.getDescription());
+    }
+    
+    private static boolean sameDishNames(List<MenuItem> indexed, List<MenuItem> items) {
+        if (indexed == null || indexed.size() != items.size()) return false;
+        for (int i = 0; i < items.size(); i++) {
+            if (indexed.get(i).getId() != items.get(i).getId()
+                    || !equals(indexed.get(i).getName(), items.get(i).getName())) return false;
+        }
+        return true;
+    }
+    
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+    
+    // Doc ids are appended in increasing order, so a term seen twice in a doc only widens its field mask
+    private static class Postings {
+        int[] docs = new int[4];
+        byte[] fields = new byte[4];
+        int size;
+        
+        void add(int doc, int field) {
+            if (size > 0 && docs[size - 1] == doc) {
+                fields[size - 1] |= field;
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            docs[size] = doc;
+            fields[size] = (byte) field;
+            size++;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,425 @@
+package com.eatoff.android.storage;
+
+import android.content.Context;
+import com.eatoff.android.utils.AppExecutors;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+
+/**
+ * Small binary key-value store for app state, used instead of SharedPreferences.
+ *
+ * Values live in memory and every edit is appended to a log file as one checksummed record,
+ * so a write costs one short append instead of rewriting the whole file, and a torn write
+ * loses only the last edit. Once the log grows well past the live data it is compacted into
+ * a fresh file that replaces the old one by rename.
+ *
+ * Loading starts on the IO executor when the store is opened; a read that arrives first
+ * waits for it. The IO executor must be serial so records land in edit order.
+ */
+public class KeyValueStore {
+    
+    private static final String DEFAULT_FILE = "app_state.kv";
+    private static final int MAGIC = 0x454F4B56; // "EOKV"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    
+    private static final byte OP_PUT_STRING = 1;
+    private static final byte OP_PUT_LONG = 2;
+    private static final byte OP_PUT_BOOLEAN = 3;
+    private static final byte OP_REMOVE = 4;
+    private static final byte OP_CLEAR = 5;
+    
+    // Compact once the log is this large and at least twice the size of the live data
+    private static final long COMPACT_MIN_BYTES = 16 * 1024;
+    
+    private static KeyValueStore instance;
+    
+    private final File file;
+    private final Executor ioExecutor;
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    private final Object loadLock = new Object();
+    private volatile boolean loaded;
+    
+    // Encoded records not yet on disk, in edit order; guarded by this
+    private final ArrayDeque<byte[]> pending = new ArrayDeque<>();
+    private FileOutputStream out;
+    private long logBytes;
+    private long compactedBytes;
+    
+    public static synchronized KeyValueStore getInstance(Context context) {
+        if (instance == null) {
+            File file = new File(context.getApplicationContext().getFilesDir(), DEFAULT_FILE);
+            instance = open(file, AppExecutors.getInstance().diskIO());
+        }
+        return instance;
+    }
+    
+    public static KeyValueStore open(File file, Executor ioExecutor) {
+        KeyValueStore store = new KeyValueStore(file, ioExecutor);
+        ioExecutor.execute(store::ensureLoaded);
+        return store;
+    }
+    
+    private KeyValueStore(File file, Executor ioExecutor) {
+        this.file = file;
+        this.ioExecutor = ioExecutor;
+    }
+    
+    public String getString(String key, String defaultValue) {
+        Object value = get(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+    
+    public long getLong(String key, long defaultValue) {
+        Object value = get(key);
+        return value instanceof Long ? (Long) value : defaultValue;
+    }
+    
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Object value = get(key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+    
+    public boolean contains(String key) {
+        return get(key) != null;
+    }
+    
+    public Editor edit() {
+        return new Editor();
+    }
+    
+    /**
+     * Collects changes that are applied to memory and appended to the log as one record.
+     */
+    public class Editor {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream record = new DataOutputStream(bytes);
+        private final List<Runnable> changes = new ArrayList<>();
+        private int operations;
+        
+        public Editor putString(String key, String value) {
+            if (value == null) return remove(key);
+            write(OP_PUT_STRING, key);
+            writeUnchecked(() -> writeString(record, value));
+            changes.add(() -> values.put(key, value));
+            return this;
+        }
+        
+        public Editor putLong(String key, long value) {
+            write(OP_PUT_LONG, key);
+            writeUnchecked(() -> record.writeLong(value));
+            changes.add(() -> values.put(key, value));
+            return this;
+        }
+        
+        public Editor putBoolean(String key, boolean value) {
+            write(OP_PUT_BOOLEAN, key);
+            writeUnchecked(() -> record.writeBoolean(value));
+            changes.add(() -> values.put(key, value));
+            return this;
+        }
+        
+        public Editor remove(String key) {
+            write(OP_REMOVE, key);
+            changes.add(() -> values.remove(key));
+            return this;
+        }
+        
+        public Editor clear() {
+            writeUnchecked(() -> record.writeByte(OP_CLEAR));
+            operations++;
+            changes.add(values::clear);
+            return this;
+        }
+        
+        // Updates memory right away and appends on the IO executor
+        public void apply() {
+            if (commitToMemory()) {
+                ioExecutor.execute(KeyValueStore.this::drain);
+            }
+        }
+        
+        // Updates memory and writes every pending record on the calling thread; false if a write failed
+        public boolean commit() {
+            return !commitToMemory() || drain();
+        }
+        
+        private boolean commitToMemory() {
+            if (operations == 0) return false;
+            
+            ensureLoaded();
+            byte[] encoded = encodeRecord(operations, bytes.toByteArray());
+            synchronized (KeyValueStore.this) {
+                for (Runnable change : changes) {
+                    change.run();
+                }
+                pending.add(encoded);
+            }
+            return true;
+        }
+        
+        private void write(byte op, String key) {
+            writeUnchecked(() -> {
+                record.writeByte(op);
+                record.writeUTF(key);
+            });
+            operations++;
+        }
+    }
+    
+    private Object get(String key) {
+        ensureLoaded();
+        return values.get(key);
+    }
+    
+    private void ensureLoaded() {
+        if (loaded) return;
+        
+        synchronized (loadLock) {
+            if (loaded) return;
+            try {
+                load();
+            } catch (IOException e) {
+                // Unreadable store: start over rather than fail every read
+                values.clear();
+                file.delete();
+            }
+            loaded = true;
+        }
+    }
+    
+    private void load() throws IOException {
+        if (!file.exists()) return;
+        
+        long fileBytes = file.length();
+        long goodBytes = HEADER_BYTES;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a key-value store file");
+            }
+            
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                
+                // A corrupt length is handled like a bad checksum, before it can size an allocation
+                long remaining = fileBytes - goodBytes - 4;
+                if (length < 0 || length > remaining - 8) break;
+                
+                byte[] body = new byte[length];
+                long checksum;
+                try {
+                    in.readFully(body);
+                    checksum = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (checksum != crc(body)) break;
+                
+                replay(body);
+                goodBytes += 4 + length + 8;
+            }
+        }
+        
+        // Drop a torn or corrupt tail so later appends follow the last good record
+        if (goodBytes < fileBytes) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(goodBytes);
+            }
+        }
+        logBytes = goodBytes;
+    }
+    
+    private void replay(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        int operations = in.readInt();
+        for (int i = 0; i < operations; i++) {
+            byte op = in.readByte();
+            if (op == OP_CLEAR) {
+                values.clear();
+                continue;
+            }
+            
+            String key = in.readUTF();
+            switch (op) {
+                case OP_PUT_STRING: values.put(key, readString(in)); break;
+                case OP_PUT_LONG: values.put(key, in.readLong()); break;
+                case OP_PUT_BOOLEAN: values.put(key, in.readBoolean()); break;
+                case OP_REMOVE: values.remove(key); break;
+                default: throw new IOException("Unknown operation " + op);
+            }
+        }
+    }
+    
+    // Whichever thread drains writes every queued record, so disk order always matches edit order
+    private synchronized boolean drain() {
+        boolean written = true;
+        byte[] encoded;
+        while ((encoded = pending.poll()) != null) {
+            written &= append(encoded);
+        }
+        return written;
+    }
+    
+    private boolean append(byte[] encoded) {
+        try {
+            if (out == null) {
+                boolean fresh = !file.exists() || file.length() < HEADER_BYTES;
+                out = new FileOutputStream(file, !fresh);
+                if (fresh) {
+                    out.write(header());
+                    logBytes = HEADER_BYTES;
+                }
+            }
+            
+            out.write(encoded);
+            out.getFD().sync();
+            logBytes += encoded.length;
+            
+            if (logBytes > COMPACT_MIN_BYTES && logBytes > 2 * compactedBytes) {
+                compact();
+            }
+            return true;
+        } catch (IOException e) {
+            closeQuietly();
+            return false;
+        }
+    }
+    
+    /**
+     * Rewrites the log as a single record holding the live values. Records for edits already
+     * in memory may still be queued behind this; replaying them again yields the same state.
+     */
+    private void compact() throws IOException {
+        Map<String, Object> live = new HashMap<>(values);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+        for (Map.Entry<String, Object> entry : live.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                record.writeByte(OP_PUT_STRING);
+                record.writeUTF(entry.getKey());
+                writeString(record, (String) value);
+            } else if (value instanceof Long) {
+                record.writeByte(OP_PUT_LONG);
+                record.writeUTF(entry.getKey());
+                record.writeLong((Long) value);
+            } else {
+                record.writeByte(OP_PUT_BOOLEAN);
+                record.writeUTF(entry.getKey());
+                record.writeBoolean((Boolean) value);
+            }
+        }
+        byte[] encoded = encodeRecord(live.size(), bytes.toByteArray());
+        
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream compacted = new FileOutputStream(tmp)) {
+            compacted.write(header());
+            compacted.write(encoded);
+            compacted.getFD().sync();
+        }
+        
+        closeQuietly();
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Failed to replace " + file);
+        }
+        out = new FileOutputStream(file, true);
+        logBytes = HEADER_BYTES + encoded.length;
+        compactedBytes = logBytes;
+    }
+    
+    private static byte[] encodeRecord(int operations, byte[] operationBytes) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(4 + operationBytes.length);
+            new DataOutputStream(body).writeInt(operations);
+            body.write(operationBytes);
+            byte[] bodyBytes = body.toByteArray();
+            
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(bodyBytes.length + 12);
+            DataOutputStream record = new DataOutputStream(bytes);
+            record.writeInt(bodyBytes.length);
+            record.write(bodyBytes);
+            record.writeLong(crc(bodyBytes));
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    // Length-prefixed UTF-8, so a large cached JSON document fits in one value
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] header() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_BYTES);
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        return bytes.toByteArray();
+    }
+    
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+    
+    private void closeQuietly() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException ignored) {
+            // Nothing left to flush
+        }
+        out = null;
+    }
+    
+    private interface IoAction {
+        void run() throws IOException;
+    }
+    
+    // In-memory streams never throw
+    private static void writeUnchecked(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
\ No newline at end of file
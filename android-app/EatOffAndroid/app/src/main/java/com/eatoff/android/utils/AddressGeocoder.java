@@ -0,0 +1,175 @@
+package com.eatoff.android.utils;
+
+import android.content.Context;
+import android.location.Address;
+import android.location.Geocoder;
+import android.os.Build;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import com.eatoff.android.models.Customer;
+import com.eatoff.android.storage.KeyValueStore;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Geocodes the signed-in user's delivery address once and caches the coordinates, so
+ * delivery lookups never wait on the platform geocoder after the first run.
+ */
+public class AddressGeocoder {
+    
+    private static final String TAG = "AddressGeocoder";
+    private static final String KEY_ADDRESS = "geocoded_address";
+    private static final String KEY_LATITUDE = "geocoded_latitude";
+    private static final String KEY_LONGITUDE = "geocoded_longitude";
+    
+    public interface Callback {
+        void onLocation(double latitude, double longitude);
+        void onUnavailable();
+    }
+    
+    private static AddressGeocoder instance;
+    private final Context context;
+    private final KeyValueStore store;
+    
+    // Cached coordinates for cachedAddress; written on the main thread only
+    private String cachedAddress;
+    private double cachedLatitude;
+    private double cachedLongitude;
+    // Bumped by clear(), so a lookup started before it is not cached; main thread only
+    private int clears;
+    
+    private interface GeocodeResult {
+        void onAddress(Address address);
+    }
+    
+    private AddressGeocoder(Context context) {
+        this.context = context;
+        store = KeyValueStore.getInstance(context);
+        if (store.contains(KEY_ADDRESS)) {
+            cachedAddress = store.getString(KEY_ADDRESS, null);
+            cachedLatitude = Double.longBitsToDouble(store.getLong(KEY_LATITUDE, 0));
+            cachedLongitude = Double.longBitsToDouble(store.getLong(KEY_LONGITUDE, 0));
+        }
+    }
+    
+    public static synchronized AddressGeocoder getInstance(Context context) {
+        if (instance == null) {
+            instance = new AddressGeocoder(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    public static String formatAddress(Customer customer) {
+        if (customer == null || customer.getAddress() == null || customer.getAddress().trim().isEmpty()) {
+            return null;
+        }
+        
+        StringBuilder address = new StringBuilder(customer.getAddress().trim());
+        appendPart(address, customer.getPostalCode());
+        appendPart(address, customer.getCity());
+        appendPart(address, customer.getCountry());
+        return address.toString();
+    }
+    
+    /**
+     * Delivers the coordinates of the address on the main thread. Only a changed address
+     * reaches the geocoder: asynchronously on API 33+, else on the network executor since the
+     * older call may block on a lookup.
+     */
+    public void resolve(String address, Callback callback) {
+        if (address == null) {
+            callback.onUnavailable();
+            return;
+        }
+        
+        if (address.equals(cachedAddress)) {
+            callback.onLocation(cachedLatitude, cachedLongitude);
+            return;
+        }
+        
+        if (!Geocoder.isPresent()) {
+            callback.onUnavailable();
+            return;
+        }
+        
+        int lookupClears = clears;
+        AppExecutors executors = AppExecutors.getInstance();
+        geocode(address, result -> executors.mainThread().execute(() -> {
+            if (result == null || !result.hasLatitude() || !result.hasLongitude()) {
+                callback.onUnavailable();
+                return;
+            }
+            
+            // The address of a user who signed out meanwhile is not kept
+            if (lookupClears == clears) cache(address, result.getLatitude(), result.getLongitude());
+            callback.onLocation(result.getLatitude(), result.getLongitude());
+        }));
+    }
+    
+    // The address belongs to the signed-in user; called on logout, on the main thread
+    public void clear() {
+        clears++;
+        cachedAddress = null;
+        store.edit()
+                .remove(KEY_ADDRESS)
+                .remove(KEY_LATITUDE)
+                .remove(KEY_LONGITUDE)
+                .apply();
+    }
+    
+    // Delivers the first match, or null, on a background thread
+    private void geocode(String address, GeocodeResult result) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU) {
+            AppExecutors.getInstance().networkIO().execute(() -> result.onAddress(geocodeBlocking(address)));
+            return;
+        }
+        
+        try {
+            new Geocoder(context).getFromLocationName(address, 1, new Geocoder.GeocodeListener() {
+                @Override
+                public void onGeocode(@NonNull List<Address> results) {
+                    result.onAddress(!results.isEmpty() ? results.get(0) : null);
+                }
+                
+                @Override
+                public void onError(String message) {
+                    Log.w(TAG, "Failed to geocode delivery address: " + message);
+                    result.onAddress(null);
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Failed to geocode delivery address", e);
+            result.onAddress(null);
+        }
+    }
+    
+    // Before API 33 the only form; blocks until the lookup finishes
+    @SuppressWarnings("deprecation")
+    private Address geocodeBlocking(String address) {
+        try {
+            List<Address> results = new Geocoder(context).getFromLocationName(address, 1);
+            return results != null && !results.isEmpty() ? results.get(0) : null;
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w(TAG, "Failed to geocode delivery address", e);
+            return null;
+        }
+    }
+    
+    private void cache(String address, double latitude, double longitude) {
+        cachedAddress = address;
+        cachedLatitude = latitude;
+        cachedLongitude = longitude;
+        
+        store.edit()
+                .putString(KEY_ADDRESS, address)
+                .putLong(KEY_LATITUDE, Double.doubleToRawLongBits(latitude))
+                .putLong(KEY_LONGITUDE, Double.doubleToRawLongBits(longitude))
+                .apply();
+    }
+    
+    private static void appendPart(StringBuilder address, String part) {
+        if (part != null && !part.trim().isEmpty()) {
+            address.append(", ").append(part.trim());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.eatoff.android.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class AppExecutors {
+    
+    private static AppExecutors instance;
+    
+    private final ExecutorService diskIO;
+    private final ExecutorService computation;
+    private final ExecutorService networkIO;
+    private final Executor mainThread;
+    
+    private AppExecutors() {
+        diskIO = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "eatoff-disk-io");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        
+        computation = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "eatoff-computation");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        
+        networkIO = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "eatoff-network-io");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        mainThread = mainHandler::post;
+    }
+    
+    public static synchronized AppExecutors getInstance() {
+        if (instance == null) {
+            instance = new AppExecutors();
+        }
+        return instance;
+    }
+    
+    // Serial executor for file reads/writes so snapshot and cache writes never interleave
+    public ExecutorService diskIO() {
+        return diskIO;
+    }
+    
+    // Index building and other CPU-bound work that must stay off the UI thread
+    public ExecutorService computation() {
+        return computation;
+    }
+    
+    // Blocking calls that wait on a remote service, kept off the two computation threads
+    public ExecutorService networkIO() {
+        return networkIO;
+    }
+    
+    public Executor mainThread() {
+        return mainThread;
+    }
+}
\ No newline at end of file
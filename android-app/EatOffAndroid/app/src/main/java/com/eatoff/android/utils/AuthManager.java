@@ -3,7 +3,10 @@ package com.eatoff.android.utils;
 import android.content.Context;
 import android.content.SharedPreferences;
 import com.eatoff.android.models.Customer;
+import com.eatoff.android.storage.KeyValueStore;
 import com.google.gson.Gson;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class AuthManager {
     
@@ -11,13 +14,65 @@ public class AuthManager {
     private static final String KEY_IS_LOGGED_IN = "is_logged_in";
     private static final String KEY_USER_DATA = "user_data";
     private static final String KEY_AUTH_TOKEN = "auth_token";
+    private static final String KEY_MIGRATED = "auth_migrated_from_preferences";
     
     private static AuthManager instance;
-    private SharedPreferences preferences;
+    private Context context;
+    private KeyValueStore store;
     private Gson gson;
     
+    // Parsed once and swapped whole on every change, so readers never lock or parse JSON.
+    // Writes hold this; loadLock only keeps two first reads from loading the session twice.
+    private volatile Session session;
+    private final Object loadLock = new Object();
+    private final List<LogoutListener> logoutListeners = new CopyOnWriteArrayList<>();
+    
+    // Lets the data layers drop what belonged to the user who signed out
+    public interface LogoutListener {
+        void onLogout();
+    }
+    
+    /**
+     * Immutable snapshot of the signed-in user. The customer is shared by all callers and
+     * must be treated as read-only.
+     */
+    private static final class Session {
+        static final Session LOGGED_OUT = new Session(null, null);
+        
+        final Customer customer;
+        final String authToken;
+        final String displayName;
+        
+        Session(Customer customer, String authToken) {
+            this.customer = customer;
+            this.authToken = authToken;
+            this.displayName = displayName(customer);
+        }
+        
+        Session withAuthToken(String token) {
+            return new Session(customer, token);
+        }
+        
+        private static String displayName(Customer customer) {
+            if (customer != null) {
+                String firstName = customer.getFirstName();
+                String lastName = customer.getLastName();
+                
+                if (firstName != null && lastName != null) {
+                    return firstName + " " + lastName;
+                } else if (firstName != null) {
+                    return firstName;
+                } else if (lastName != null) {
+                    return lastName;
+                }
+            }
+            return "User";
+        }
+    }
+    
     private AuthManager(Context context) {
-        preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.context = context;
+        store = KeyValueStore.getInstance(context);
         gson = new Gson();
     }
     
@@ -28,45 +83,56 @@ public class AuthManager {
         return instance;
     }
     
+    // Called at process start; a read that arrives first simply loads the session itself
+    public void preload() {
+        AppExecutors.getInstance().diskIO().execute(this::session);
+    }
+    
     public void saveUserData(Customer customer) {
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.putBoolean(KEY_IS_LOGGED_IN, true);
-        editor.putString(KEY_USER_DATA, gson.toJson(customer));
-        editor.apply();
+        session();
+        synchronized (this) {
+            session = new Session(customer, session.authToken);
+        }
+        
+        store.edit()
+                .putBoolean(KEY_IS_LOGGED_IN, true)
+                .putString(KEY_USER_DATA, gson.toJson(customer))
+                .apply();
     }
     
     public Customer getUserData() {
-        String userData = preferences.getString(KEY_USER_DATA, null);
-        if (userData != null) {
-            try {
-                return gson.fromJson(userData, Customer.class);
-            } catch (Exception e) {
-                // Clear corrupted data
-                logout();
-                return null;
-            }
-        }
-        return null;
+        return session().customer;
     }
     
     public boolean isLoggedIn() {
-        return preferences.getBoolean(KEY_IS_LOGGED_IN, false) && getUserData() != null;
+        return session().customer != null;
     }
     
     public void saveAuthToken(String token) {
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.putString(KEY_AUTH_TOKEN, token);
-        editor.apply();
+        session();
+        synchronized (this) {
+            session = session.withAuthToken(token);
+        }
+        
+        store.edit().putString(KEY_AUTH_TOKEN, token).apply();
     }
     
     public String getAuthToken() {
-        return preferences.getString(KEY_AUTH_TOKEN, null);
+        return session().authToken;
+    }
+    
+    public void addLogoutListener(LogoutListener listener) {
+        logoutListeners.add(listener);
     }
     
     public void logout() {
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.clear();
-        editor.apply();
+        synchronized (this) {
+            session = Session.LOGGED_OUT;
+        }
+        clearStoredSession();
+        for (LogoutListener listener : logoutListeners) {
+            listener.onLogout();
+        }
     }
     
     public int getCurrentUserId() {
@@ -75,24 +141,74 @@ public class AuthManager {
     }
     
     public String getCurrentUserName() {
+        return session().displayName;
+    }
+    
+    public String getCurrentUserEmail() {
         Customer customer = getUserData();
-        if (customer != null) {
-            String firstName = customer.getFirstName();
-            String lastName = customer.getLastName();
+        return customer != null ? customer.getEmail() : "";
+    }
+    
+    private Session session() {
+        Session current = session;
+        if (current != null) return current;
+        
+        synchronized (loadLock) {
+            current = session;
+            if (current != null) return current;
             
-            if (firstName != null && lastName != null) {
-                return firstName + " " + lastName;
-            } else if (firstName != null) {
-                return firstName;
-            } else if (lastName != null) {
-                return lastName;
+            // Read from disk without holding this, so a logout on the main thread never waits on it
+            Session loaded = loadSession();
+            synchronized (this) {
+                // A logout (or login) published while loading is newer than what was read
+                if (session == null) session = loaded;
+                return session;
             }
         }
-        return "User";
     }
     
-    public String getCurrentUserEmail() {
-        Customer customer = getUserData();
-        return customer != null ? customer.getEmail() : "";
+    private Session loadSession() {
+        migrateFromPreferences();
+        
+        String token = store.getString(KEY_AUTH_TOKEN, null);
+        String userData = store.getString(KEY_USER_DATA, null);
+        if (!store.getBoolean(KEY_IS_LOGGED_IN, false) || userData == null) {
+            return new Session(null, token);
+        }
+        
+        try {
+            return new Session(gson.fromJson(userData, Customer.class), token);
+        } catch (Exception e) {
+            // Clear corrupted data
+            clearStoredSession();
+            return Session.LOGGED_OUT;
+        }
+    }
+    
+    // The store also holds non-session app state, so only the session keys are removed
+    private void clearStoredSession() {
+        store.edit()
+                .remove(KEY_IS_LOGGED_IN)
+                .remove(KEY_USER_DATA)
+                .remove(KEY_AUTH_TOKEN)
+                .apply();
+    }
+    
+    // One-time copy of the session from the SharedPreferences file used by earlier versions
+    private void migrateFromPreferences() {
+        if (store.getBoolean(KEY_MIGRATED, false)) return;
+        
+        SharedPreferences preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        KeyValueStore.Editor editor = store.edit();
+        if (preferences.getBoolean(KEY_IS_LOGGED_IN, false)) {
+            editor.putBoolean(KEY_IS_LOGGED_IN, true);
+        }
+        editor.putString(KEY_USER_DATA, preferences.getString(KEY_USER_DATA, null));
+        editor.putString(KEY_AUTH_TOKEN, preferences.getString(KEY_AUTH_TOKEN, null));
+        editor.putBoolean(KEY_MIGRATED, true);
+        
+        if (editor.commit()) {
+            context.deleteSharedPreferences(PREF_NAME);
+        }
     }
 }
\ No newline at end of file
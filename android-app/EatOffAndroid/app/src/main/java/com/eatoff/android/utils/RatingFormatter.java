@@ -0,0 +1,48 @@
+package com.eatoff.android.utils;
+
+import java.util.Locale;
+
+/**
+ * Formats ratings the way {@code String.format("%.1f", rating)} does, but serves the 51
+ * labels between 0.0 and 5.0 from a precomputed table so list binds do not allocate.
+ */
+public final class RatingFormatter {
+    
+    public static final String NO_RATING = "N/A";
+    
+    private static final int MAX_TENTHS = 50;
+    
+    // Rebuilt if the default locale changes, since it decides the decimal separator
+    private static volatile Labels labels;
+    
+    private RatingFormatter() {}
+    
+    public static String format(double rating) {
+        if (Double.isNaN(rating)) return NO_RATING;
+        
+        long tenths = Math.round(rating * 10);
+        if (tenths < 0 || tenths > MAX_TENTHS) {
+            return String.format("%.1f", rating);
+        }
+        
+        Labels current = labels;
+        Locale locale = Locale.getDefault();
+        if (current == null || !current.locale.equals(locale)) {
+            current = new Labels(locale);
+            labels = current;
+        }
+        return current.values[(int) tenths];
+    }
+    
+    private static class Labels {
+        final Locale locale;
+        final String[] values = new String[MAX_TENTHS + 1];
+        
+        Labels(Locale locale) {
+            this.locale = locale;
+            for (int i = 0; i <= MAX_TENTHS; i++) {
+                values[i] = String.format(locale, "%.1f", i / 10.0);
+            }
+        }
+    }
+}
\ No newline at end of file
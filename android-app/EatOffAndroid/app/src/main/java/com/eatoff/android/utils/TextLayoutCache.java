@@ -0,0 +1,115 @@
+package com.eatoff.android.utils;
+
+import android.text.TextUtils;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.widget.TextView;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+/**
+ * Measures long text off the main thread with {@link PrecomputedTextCompat} and hands the
+ * result to a {@link TextView} at bind time, so binding skips the glyph measurement pass.
+ *
+ * One cache serves one text style: it adopts the metrics of the first view passed to
+ * {@link #setParams(TextView)}. Precomputed text does not depend on the view width, so
+ * entries are keyed by item id and stay valid across widths; a style change (font scale,
+ * typeface) drops them. Eviction is first-in-first-out, which suits a scrolling list.
+ */
+public class TextLayoutCache {
+    
+    private static class Entry {
+        final CharSequence source;
+        final PrecomputedTextCompat text;
+        final PrecomputedTextCompat.Params params;
+        
+        Entry(CharSequence source, PrecomputedTextCompat text, PrecomputedTextCompat.Params params) {
+            this.source = source;
+            this.text = text;
+            this.params = params;
+        }
+    }
+    
+    private final int maxEntries;
+    private final SparseArray<Entry> entries = new SparseArray<>();
+    private final SparseBooleanArray pending = new SparseBooleanArray();
+    private final int[] insertionOrder;
+    private int nextEviction;
+    private volatile PrecomputedTextCompat.Params params;
+    
+    public TextLayoutCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.insertionOrder = new int[maxEntries];
+    }
+    
+    public boolean hasParams() {
+        return params != null;
+    }
+    
+    public void setParams(TextView view) {
+        PrecomputedTextCompat.Params viewParams = TextViewCompat.getTextMetricsParams(view);
+        if (viewParams.equals(params)) return;
+        
+        synchronized (this) {
+            params = viewParams;
+            entries.clear();
+            pending.clear();
+            nextEviction = 0;
+        }
+    }
+    
+    /**
+     * Queues text for measurement on the computation executor unless it is already cached.
+     */
+    public void precompute(int key, CharSequence text) {
+        PrecomputedTextCompat.Params current = params;
+        if (current == null || text == null || text.length() == 0) return;
+        
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && TextUtils.equals(entry.source, text)) return;
+            if (pending.get(key)) return;
+            pending.put(key, true);
+        }
+        
+        AppExecutors.getInstance().computation().execute(() -> {
+            PrecomputedTextCompat precomputed = PrecomputedTextCompat.create(text, current);
+            synchronized (this) {
+                pending.delete(key);
+                // Params changed while measuring; the result no longer fits the views
+                if (current != params) return;
+                put(key, new Entry(text, precomputed, current));
+            }
+        });
+    }
+    
+    /**
+     * Sets the precomputed text when a matching entry exists, and falls back to a plain
+     * {@code setText} otherwise. The view must share the style of the one given to
+     * {@link #setParams(TextView)}.
+     */
+    public void apply(TextView view, int key, CharSequence text) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        
+        if (entry != null && entry.params == params && TextUtils.equals(entry.source, text)) {
+            TextViewCompat.setPrecomputedText(view, entry.text);
+        } else {
+            view.setText(text);
+        }
+    }
+    
+    private void put(int key, Entry entry) {
+        if (entries.indexOfKey(key) < 0) {
+            if (entries.size() >= maxEntries) {
+                entries.remove(insertionOrder[nextEviction]);
+            }
+            insertionOrder[nextEviction] = key;
+            nextEviction = (nextEviction + 1) % maxEntries;
+        }
+        entries.put(key, entry);
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,192 @@
+package com.eatoff.android.viewmodels;
+
+import android.app.Application;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import com.eatoff.android.api.CallScope;
+import com.eatoff.android.catalog.DeliveryIndex;
+import com.eatoff.android.catalog.RestaurantCatalog;
+import com.eatoff.android.catalog.RestaurantRanker;
+import com.eatoff.android.catalog.StringDictionary;
+import com.eatoff.android.models.Restaurant;
+import com.eatoff.android.repository.RestaurantRepository;
+import com.eatoff.android.utils.AddressGeocoder;
+import com.eatoff.android.utils.AppExecutors;
+import com.eatoff.android.utils.AuthManager;
+import retrofit2.Call;
+import java.util.List;
+
+/**
+ * Owns the restaurant list and its in-flight request across configuration changes, so a
+ * recreated {@code MainActivity} re-attaches to the loaded data instead of fetching again.
+ */
+public class RestaurantListViewModel extends AndroidViewModel {
+    
+    // Several screens of cards, ranked on the main thread when a sort chip is tapped
+    private static final int FIRST_PAGE = 50;
+    
+    /** Catalog rows in the order of the selected sort chip. */
+    public static final class RankedRows {
+        public final RestaurantCatalog catalog;
+        public final int[] rows;
+        
+        RankedRows(RestaurantCatalog catalog, int[] rows) {
+            this.catalog = catalog;
+            this.rows = rows;
+        }
+    }
+    
+    private final RestaurantRepository repository;
+    private final MutableLiveData<List<Restaurant>> restaurants = new MutableLiveData<>();
+    private final MutableLiveData<List<DeliveryIndex.Hit>> deliveringToUser = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> loading = new MutableLiveData<>(false);
+    // One-shot messages; cleared by onMessageShown so a recreated activity does not repeat them
+    private final MutableLiveData<String> messages = new MutableLiveData<>();
+    // Null while no sort chip is selected and the server order is shown
+    private final MutableLiveData<RankedRows> ranked = new MutableLiveData<>();
+    private final CallScope callScope = new CallScope();
+    private Call<List<Restaurant>> inFlight;
+    // Main thread only: ranker over the last loaded catalog and the selected sort
+    private RestaurantCatalog catalog;
+    private RestaurantRanker ranker;
+    private RestaurantRanker.Weights sortOrder;
+    private int sortFlags;
+    // Bumped on every sort change and ranking so a full order that finishes late is dropped
+    private int generation;
+    
+    public RestaurantListViewModel(@NonNull Application application) {
+        super(application);
+        repository = RestaurantRepository.getInstance(application);
+    }
+    
+    public LiveData<List<Restaurant>> getRestaurants() { return restaurants; }
+    public LiveData<List<DeliveryIndex.Hit>> getDeliveringToUser() { return deliveringToUser; }
+    public LiveData<Boolean> isLoading() { return loading; }
+    public LiveData<String> getMessages() { return messages; }
+    public LiveData<RankedRows> getRanked() { return ranked; }
+    
+    public RestaurantRepository getRepository() {
+        return repository;
+    }
+    
+    public boolean hasRestaurants() {
+        return restaurants.getValue() != null;
+    }
+    
+    public boolean isSorted() {
+        return sortOrder != null;
+    }
+    
+    /**
+     * Orders the list for a sort chip; null restores the server order. Only restaurants
+     * with every flag in {@code requiredFlags} are listed, e.g. delivery for the fee chip.
+     */
+    public void sortBy(RestaurantRanker.Weights weights, int requiredFlags) {
+        sortOrder = weights;
+        sortFlags = requiredFlags;
+        generation++;
+        if (weights == null) {
+            ranked.setValue(null);
+        } else if (ranker != null) {
+            rank();
+        }
+        // Otherwise the first ranking runs once the loaded catalog has been built
+    }
+    
+    // Joins the request already in flight instead of issuing a second one
+    public void loadRestaurants() {
+        if (inFlight != null) return;
+        
+        loading.setValue(true);
+        inFlight = repository.fetchRestaurants(callScope, new RestaurantRepository.LoadCallback() {
+            @Override
+            public void onLoaded(List<Restaurant> loaded) {
+                inFlight = null;
+                loading.setValue(false);
+                restaurants.setValue(loaded);
+                if (loaded.isEmpty()) {
+                    messages.setValue("No restaurants found");
+                }
+                buildRanker(loaded);
+                resolveDeliveringToUser();
+            }
+            
+            @Override
+            public void onError(String message) {
+                inFlight = null;
+                loading.setValue(false);
+                messages.setValue(message);
+            }
+        });
+    }
+    
+    private void buildRanker(List<Restaurant> loaded) {
+        AppExecutors executors = AppExecutors.getInstance();
+        executors.computation().execute(() -> {
+            RestaurantCatalog builtCatalog = RestaurantCatalog.from(loaded);
+            RestaurantRanker builtRanker = new RestaurantRanker(builtCatalog);
+            executors.mainThread().execute(() -> {
+                // A newer load is building its own; a sort change meanwhile still wants this catalog
+                if (loaded != restaurants.getValue()) return;
+                catalog = builtCatalog;
+                ranker = builtRanker;
+                if (sortOrder != null) rank();
+            });
+        });
+    }
+    
+    // The visible window is ranked right away with a bounded top-K; the full order follows
+    // from the computation executor for when the user scrolls past it
+    private void rank() {
+        int ranking = ++generation;
+        RestaurantCatalog rankedCatalog = catalog;
+        RestaurantRanker rankedBy = ranker;
+        RestaurantRanker.Weights weights = sortOrder;
+        int[] candidates = sortFlags == 0 ? null : rankedCatalog.filter(StringDictionary.NO_CODE,
+                StringDictionary.NO_CODE, StringDictionary.NO_CODE, sortFlags, Float.NaN, Float.NaN);
+        int count = candidates != null ? candidates.length : rankedCatalog.size();
+        
+        ranked.setValue(new RankedRows(rankedCatalog, rankedBy.topK(candidates, weights, FIRST_PAGE)));
+        if (count <= FIRST_PAGE) return;
+        
+        AppExecutors executors = AppExecutors.getInstance();
+        executors.computation().execute(() -> {
+            int[] all = rankedBy.topK(candidates, weights, count);
+            executors.mainThread().execute(() -> {
+                if (ranking == generation) ranked.setValue(new RankedRows(rankedCatalog, all));
+            });
+        });
+    }
+    
+    // Geocodes the user's address once; later loads read the cached coordinates. The index is
+    // queried only after this load's sync, so the answer never comes from the previous catalog.
+    private void resolveDeliveringToUser() {
+        Application application = getApplication();
+        String address = AddressGeocoder.formatAddress(AuthManager.getInstance(application).getUserData());
+        AddressGeocoder.getInstance(application).resolve(address, new AddressGeocoder.Callback() {
+            @Override
+            public void onLocation(double latitude, double longitude) {
+                repository.whenIndexed(() -> deliveringToUser.setValue(
+                        DeliveryIndex.getInstance().deliveringTo(latitude, longitude)));
+            }
+            
+            @Override
+            public void onUnavailable() {
+                deliveringToUser.setValue(null);
+            }
+        });
+    }
+    
+    public void onMessageShown() {
+        messages.setValue(null);
+    }
+    
+    // The list screen is finishing for good; a rotation never gets here
+    @Override
+    protected void onCleared() {
+        callScope.close();
+        inFlight = null;
+    }
+}
\ No newline at end of file
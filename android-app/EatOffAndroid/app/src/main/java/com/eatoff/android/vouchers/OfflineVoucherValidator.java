@@ -0,0 +1,82 @@
+package com.eatoff.android.vouchers;
+
+import com.eatoff.android.models.VoucherRedemption;
+import java.util.UUID;
+
+/**
+ * Validates scanned voucher tokens without the network: signature against the cached keys,
+ * then restaurant and expiry from the token, then revocation and meals used from the synced
+ * {@link RevocationList} plus redemptions still queued on this device.
+ */
+public class OfflineVoucherValidator {
+    
+    public enum Status { VALID, MALFORMED, UNKNOWN_KEY, BAD_SIGNATURE, OTHER_RESTAURANT, EXPIRED, REVOKED, USED_UP }
+    
+    public static final class Result {
+        private final Status status;
+        private final VoucherToken token;
+        private final int remainingMeals;
+        
+        Result(Status status, VoucherToken token, int remainingMeals) {
+            this.status = status;
+            this.token = token;
+            this.remainingMeals = remainingMeals;
+        }
+        
+        public Status getStatus() { return status; }
+        // Null for malformed tokens
+        public VoucherToken getToken() { return token; }
+        public int getRemainingMeals() { return remainingMeals; }
+        
+        public boolean isValid() {
+            return status == Status.VALID;
+        }
+    }
+    
+    private final VoucherTokenVerifier verifier;
+    private final RevocationList revocations;
+    private final RedemptionQueue redemptions;
+    
+    public OfflineVoucherValidator(VoucherTokenVerifier verifier, RevocationList revocations,
+                                   RedemptionQueue redemptions) {
+        this.verifier = verifier;
+        this.revocations = revocations;
+        this.redemptions = redemptions;
+    }
+    
+    public Result validate(String rawToken, int restaurantId, long nowMs) {
+        VoucherToken token = VoucherToken.parse(rawToken);
+        if (token == null) return new Result(Status.MALFORMED, null, 0);
+        
+        switch (verifier.verify(token)) {
+            case UNKNOWN_KEY: return new Result(Status.UNKNOWN_KEY, token, 0);
+            case BAD_SIGNATURE: return new Result(Status.BAD_SIGNATURE, token, 0);
+            default: break;
+        }
+        
+        if (token.getRestaurantId() != restaurantId) return new Result(Status.OTHER_RESTAURANT, token, 0);
+        if (nowMs >= token.getExpiresAtMs()) return new Result(Status.EXPIRED, token, 0);
+        if (revocations.isRevoked(token.getVoucherId())) return new Result(Status.REVOKED, token, 0);
+        
+        int remaining = token.getTotalMeals()
+                - revocations.getUsedMeals(token.getVoucherId())
+                - redemptions.getPendingMeals(token.getVoucherId());
+        if (remaining <= 0) return new Result(Status.USED_UP, token, 0);
+        return new Result(Status.VALID, token, remaining);
+    }
+    
+    /**
+     * Validates and, when enough meals remain, queues the redemption for upload. Synchronized
+     * so two quick scans of one voucher cannot both spend its last meal.
+     */
+    public synchronized Result redeem(String rawToken, int restaurantId, int meals, long nowMs) {
+        Result result = validate(rawToken, restaurantId, nowMs);
+        if (!result.isValid()) return result;
+        if (result.getRemainingMeals() < meals) return new Result(Status.USED_UP, result.getToken(), result.getRemainingMeals());
+        
+        VoucherToken token = result.getToken();
+        redemptions.enqueue(new VoucherRedemption(UUID.randomUUID().toString(),
+                token.getVoucherId(), restaurantId, meals, nowMs));
+        return new Result(Status.VALID, token, result.getRemainingMeals() - meals);
+    }
+}
\ No newline at end of file
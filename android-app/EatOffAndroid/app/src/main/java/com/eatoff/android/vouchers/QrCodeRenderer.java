@@ -0,0 +1,237 @@
+package com.eatoff.android.vouchers;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.util.LruCache;
+import com.eatoff.android.models.Voucher;
+import com.eatoff.android.utils.AppExecutors;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Renders voucher QR codes on the device from {@link Voucher#getQrCode()}, so showing a
+ * voucher needs no request and works offline. Bitmaps are sized to the screen and kept in a
+ * memory LRU and as PNGs in the cache directory, which only keeps codes of active vouchers.
+ */
+public class QrCodeRenderer {
+    
+    private static final String TAG = "QrCodeRenderer";
+    private static final String CACHE_DIR = "qr_codes";
+    // Share of the screen's short side a QR code takes; leaves room for the voucher details
+    private static final float SCREEN_FRACTION = 0.7f;
+    private static final int QUIET_ZONE_MODULES = 2;
+    private static final int MEMORY_CACHE_BYTES = 4 * 1024 * 1024;
+    
+    private static QrCodeRenderer instance;
+    
+    public interface Callback {
+        void onQrCode(Bitmap bitmap);
+        void onError(String message);
+    }
+    
+    private static final Callback PREFETCH = new Callback() {
+        @Override
+        public void onQrCode(Bitmap bitmap) {
+        }
+        
+        @Override
+        public void onError(String message) {
+        }
+    };
+    
+    private final File directory;
+    private final int sizePx;
+    // Decoded straight into the format encode() produces, at half the bytes of ARGB_8888
+    private final BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+    private final AppExecutors executors = AppExecutors.getInstance();
+    private final LruCache<String, Bitmap> memory = new LruCache<String, Bitmap>(MEMORY_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getByteCount();
+        }
+    };
+    
+    private QrCodeRenderer(Context context) {
+        directory = new File(context.getCacheDir(), CACHE_DIR);
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        sizePx = (int) (Math.min(metrics.widthPixels, metrics.heightPixels) * SCREEN_FRACTION);
+        decodeOptions.inPreferredConfig = Bitmap.Config.RGB_565;
+    }
+    
+    public static synchronized QrCodeRenderer getInstance(Context context) {
+        if (instance == null) {
+            instance = new QrCodeRenderer(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    // Null unless the code is already in memory; lets a screen bind without a placeholder frame
+    public Bitmap getCached(Voucher voucher) {
+        String payload = voucher.getQrCode();
+        return payload != null && !payload.isEmpty() ? memory.get(cacheKey(payload, sizePx)) : null;
+    }
+    
+    /**
+     * Delivers the voucher's QR code on the main thread: straight from memory, else from the
+     * disk cache, else freshly encoded on the computation executor.
+     */
+    public void render(Voucher voucher, Callback callback) {
+        String payload = voucher.getQrCode();
+        if (payload == null || payload.isEmpty()) {
+            callback.onError("Voucher has no redemption code");
+            return;
+        }
+        
+        String key = cacheKey(payload, sizePx);
+        Bitmap cached = memory.get(key);
+        if (cached != null) {
+            callback.onQrCode(cached);
+            return;
+        }
+        
+        executors.diskIO().execute(() -> {
+            Bitmap stored = BitmapFactory.decodeFile(new File(directory, key).getPath(), decodeOptions);
+            if (stored != null) {
+                deliver(key, stored, callback);
+                return;
+            }
+            
+            executors.computation().execute(() -> {
+                Bitmap bitmap;
+                try {
+                    bitmap = encode(payload);
+                } catch (WriterException e) {
+                    Log.w(TAG, "Failed to encode voucher " + voucher.getId(), e);
+                    executors.mainThread().execute(() -> callback.onError("Could not create the voucher code"));
+                    return;
+                }
+                deliver(key, bitmap, callback);
+                executors.diskIO().execute(() -> writeToDisk(key, bitmap));
+            });
+        });
+    }
+    
+    /**
+     * Renders the active vouchers ahead of time so opening any of them is a memory hit, and
+     * drops stored codes of every other voucher. Expects the customer's full voucher list.
+     */
+    public void prefetch(List<Voucher> vouchers) {
+        Set<String> keep = new HashSet<>();
+        for (Voucher voucher : vouchers) {
+            String payload = voucher.getQrCode();
+            if (!voucher.isActive() || payload == null || payload.isEmpty()) continue;
+            keep.add(cacheKey(payload, sizePx));
+            render(voucher, PREFETCH);
+        }
+        executors.diskIO().execute(() -> prune(directory, keep));
+    }
+    
+    // Codes belong to the signed-in customer; called on logout
+    public void clear() {
+        memory.evictAll();
+        executors.diskIO().execute(() -> prune(directory, new HashSet<>()));
+    }
+    
+    private void deliver(String key, Bitmap bitmap, Callback callback) {
+        memory.put(key, bitmap);
+        executors.mainThread().execute(() -> callback.onQrCode(bitmap));
+    }
+    
+    private Bitmap encode(String payload) throws WriterException {
+        BitMatrix matrix = encodeMatrix(payload);
+        int side = matrix.getWidth() * moduleScale(matrix.getWidth(), sizePx);
+        return Bitmap.createBitmap(toPixels(matrix, sizePx), side, side, Bitmap.Config.RGB_565);
+    }
+    
+    static BitMatrix encodeMatrix(String payload) throws WriterException {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+        hints.put(EncodeHintType.MARGIN, QUIET_ZONE_MODULES);
+        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+        
+        // A zero size yields one pixel per module; whole-pixel scaling in toPixels keeps every edge sharp
+        return new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, 0, 0, hints);
+    }
+    
+    static int moduleScale(int modules, int sizePx) {
+        return Math.max(1, sizePx / modules);
+    }
+    
+    // Row-major pixels of a square bitmap moduleScale times the matrix side
+    static int[] toPixels(BitMatrix matrix, int sizePx) {
+        int modules = matrix.getWidth();
+        int scale = moduleScale(modules, sizePx);
+        int side = modules * scale;
+        
+        int[] pixels = new int[side * side];
+        int[] row = new int[side];
+        for (int y = 0; y < modules; y++) {
+            for (int x = 0; x < modules; x++) {
+                Arrays.fill(row, x * scale, (x + 1) * scale, matrix.get(x, y) ? Color.BLACK : Color.WHITE);
+            }
+            for (int line = 0; line < scale; line++) {
+                System.arraycopy(row, 0, pixels, (y * scale + line) * side, side);
+            }
+        }
+        return pixels;
+    }
+    
+    private void writeToDisk(String key, Bitmap bitmap) {
+        if (!directory.isDirectory() && !directory.mkdirs()) return;
+        
+        File file = new File(directory, key);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to cache QR code", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) tmp.delete();
+    }
+    
+    // Deletes every stored code not named in keep, including temp files of interrupted writes
+    static void prune(File directory, Set<String> keep) {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (!keep.contains(file.getName())) file.delete();
+        }
+    }
+    
+    // A digest of the payload, never its hash code: a collision would show another voucher's code
+    static String cacheKey(String payload, int sizePx) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(payload.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder(digest.length * 2 + 8);
+            for (byte b : digest) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.append('_').append(sizePx).append(".png").toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
\ No newline at end of file
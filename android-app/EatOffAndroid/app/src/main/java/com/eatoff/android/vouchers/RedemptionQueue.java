@@ -0,0 +1,81 @@
+package com.eatoff.android.vouchers;
+
+import com.eatoff.android.models.VoucherRedemption;
+import com.google.gson.annotations.SerializedName;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Redemptions accepted offline and not yet confirmed by the server. Their meals count as
+ * used until the server's revocation list includes them. Redemptions the server turned down
+ * are kept apart until staff have seen them.
+ */
+public class RedemptionQueue {
+    
+    @SerializedName("pending")
+    private List<VoucherRedemption> pending = new ArrayList<>();
+    
+    @SerializedName("rejected")
+    private List<VoucherRedemption> rejected = new ArrayList<>();
+    
+    // Derived from pending; rebuilt after deserialization
+    private transient Map<Integer, Integer> pendingMeals;
+    
+    public synchronized void enqueue(VoucherRedemption redemption) {
+        pending.add(redemption);
+        pendingMeals().merge(redemption.getVoucherId(), redemption.getMeals(), Integer::sum);
+    }
+    
+    public synchronized int getPendingMeals(int voucherId) {
+        Integer meals = pendingMeals().get(voucherId);
+        return meals != null ? meals : 0;
+    }
+    
+    public synchronized List<VoucherRedemption> snapshot() {
+        return new ArrayList<>(pending);
+    }
+    
+    public synchronized int size() {
+        return pending.size();
+    }
+    
+    // Meals the customer received but the server did not count; staff have to settle them by hand
+    public synchronized List<VoucherRedemption> getRejected() {
+        return new ArrayList<>(rejected);
+    }
+    
+    public synchronized void clearRejected() {
+        rejected = new ArrayList<>();
+    }
+    
+    // Takes settled redemptions out of the pending ones; the rejected ones stay listed
+    public synchronized void settle(Collection<String> acceptedIds, Collection<String> rejectedIds) {
+        Set<String> accepted = new HashSet<>(acceptedIds);
+        Set<String> turnedDown = new HashSet<>(rejectedIds);
+        List<VoucherRedemption> remaining = new ArrayList<>(pending.size());
+        for (VoucherRedemption redemption : pending) {
+            if (turnedDown.contains(redemption.getId())) {
+                rejected.add(redemption);
+            } else if (!accepted.contains(redemption.getId())) {
+                remaining.add(redemption);
+            }
+        }
+        pending = remaining;
+        pendingMeals = null;
+    }
+    
+    private Map<Integer, Integer> pendingMeals() {
+        if (pendingMeals == null) {
+            pendingMeals = new HashMap<>();
+            for (VoucherRedemption redemption : pending) {
+                pendingMeals.merge(redemption.getVoucherId(), redemption.getMeals(), Integer::sum);
+            }
+        }
+        return pendingMeals;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.eatoff.android.vouchers;
+
+import com.google.gson.annotations.SerializedName;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Locally synced voucher state the signed tokens cannot carry: revoked vouchers and meals
+ * already used. Updated from versioned deltas so each sync only transfers what changed.
+ */
+public class RevocationList {
+    
+    @SerializedName("version")
+    private long version;
+    
+    @SerializedName("revoked")
+    private Set<Integer> revoked = new HashSet<>();
+    
+    @SerializedName("usedMeals")
+    private Map<Integer, Integer> usedMeals = new HashMap<>();
+    
+    public synchronized long getVersion() {
+        return version;
+    }
+    
+    public synchronized void apply(long newVersion, Collection<Integer> newlyRevoked, Map<Integer, Integer> usedMealsByVoucher) {
+        if (newVersion <= version) return;
+        
+        if (newlyRevoked != null) revoked.addAll(newlyRevoked);
+        if (usedMealsByVoucher != null) usedMeals.putAll(usedMealsByVoucher);
+        version = newVersion;
+    }
+    
+    public synchronized boolean isRevoked(int voucherId) {
+        return revoked.contains(voucherId);
+    }
+    
+    public synchronized int getUsedMeals(int voucherId) {
+        Integer used = usedMeals.get(voucherId);
+        return used != null ? used : 0;
+    }
+}
\ No newline at end of file
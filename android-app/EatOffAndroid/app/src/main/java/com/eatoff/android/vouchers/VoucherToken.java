@@ -0,0 +1,112 @@
+package com.eatoff.android.vouchers;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.SerializedName;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Signed voucher token carried in a voucher's QR code:
+ * {@code EOV1.<base64url claims JSON>.<base64url ECDSA P-256 signature>}. The signature
+ * covers everything before the second dot.
+ */
+public final class VoucherToken {
+    
+    public static final String PREFIX = "EOV1.";
+    
+    private static final Gson GSON = new Gson();
+    private static final byte[] BASE64_VALUES = new byte[128];
+    
+    static {
+        Arrays.fill(BASE64_VALUES, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+        // Both the URL-safe and the standard alphabet, so keys and tokens share one decoder
+        BASE64_VALUES['-'] = BASE64_VALUES['+'] = 62;
+        BASE64_VALUES['_'] = BASE64_VALUES['/'] = 63;
+    }
+    
+    private static final class Claims {
+        @SerializedName("v") int voucherId;
+        @SerializedName("r") int restaurantId;
+        @SerializedName("c") int customerId;
+        @SerializedName("m") int totalMeals;
+        @SerializedName("e") long expiresAt;
+        @SerializedName("k") String keyId;
+    }
+    
+    private final String raw;
+    private final Claims claims;
+    private final byte[] signedPart;
+    private final byte[] signature;
+    
+    private VoucherToken(String raw, Claims claims, byte[] signedPart, byte[] signature) {
+        this.raw = raw;
+        this.claims = claims;
+        this.signedPart = signedPart;
+        this.signature = signature;
+    }
+    
+    // Null when the text is not a well-formed token
+    public static VoucherToken parse(String raw) {
+        if (raw == null || !raw.startsWith(PREFIX)) return null;
+        
+        int dot = raw.indexOf('.', PREFIX.length());
+        if (dot < 0 || raw.indexOf('.', dot + 1) >= 0) return null;
+        byte[] claimsJson = decodeBase64(raw.substring(PREFIX.length(), dot));
+        byte[] signature = decodeBase64(raw.substring(dot + 1));
+        if (claimsJson == null || signature == null || signature.length == 0) return null;
+        
+        Claims claims;
+        try {
+            claims = GSON.fromJson(new String(claimsJson, StandardCharsets.UTF_8), Claims.class);
+        } catch (JsonSyntaxException e) {
+            return null;
+        }
+        if (claims == null || claims.keyId == null || claims.voucherId <= 0) return null;
+        
+        byte[] signedPart = raw.substring(0, dot).getBytes(StandardCharsets.US_ASCII);
+        return new VoucherToken(raw, claims, signedPart, signature);
+    }
+    
+    public String getRaw() { return raw; }
+    public int getVoucherId() { return claims.voucherId; }
+    public int getRestaurantId() { return claims.restaurantId; }
+    public int getCustomerId() { return claims.customerId; }
+    public int getTotalMeals() { return claims.totalMeals; }
+    public String getKeyId() { return claims.keyId; }
+    
+    public long getExpiresAtMs() {
+        return claims.expiresAt * 1000;
+    }
+    
+    byte[] getSignedPart() { return signedPart; }
+    byte[] getSignature() { return signature; }
+    
+    // Base64 without line breaks, padding optional; null on any character outside the alphabets
+    static byte[] decodeBase64(String text) {
+        int length = text.length();
+        while (length > 0 && text.charAt(length - 1) == '=') length--;
+        if (length % 4 == 1) return null;
+        
+        byte[] out = new byte[length * 3 / 4];
+        int buffer = 0;
+        int bits = 0;
+        int index = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            int value = c < 128 ? BASE64_VALUES[c] : -1;
+            if (value < 0) return null;
+            buffer = ((buffer << 6) | value) & 0xFFFFFF;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                out[index++] = (byte) (buffer >> bits);
+            }
+        }
+        return out;
+    }
+}
\ No newline at end of file
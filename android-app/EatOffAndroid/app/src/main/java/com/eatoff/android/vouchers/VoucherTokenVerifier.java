@@ -0,0 +1,94 @@
+package com.eatoff.android.vouchers;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Checks voucher token signatures against the cached signing keys. Tokens that verified once
+ * are remembered, so a voucher shown again skips the ECDSA check altogether.
+ */
+public class VoucherTokenVerifier {
+    
+    public enum Result { VERIFIED, UNKNOWN_KEY, BAD_SIGNATURE }
+    
+    private static final String ALGORITHM = "SHA256withECDSA";
+    private static final int VERIFIED_TOKENS = 512;
+    
+    // Replaced whole when the key set changes
+    private volatile Map<String, PublicKey> keys = Collections.emptyMap();
+    // Guarded by itself; cleared with every key change so a retired key stops verifying
+    private final Map<String, Boolean> verified = new LinkedHashMap<String, Boolean>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > VERIFIED_TOKENS;
+        }
+    };
+    private final ThreadLocal<Signature> signatures = new ThreadLocal<>();
+    
+    /**
+     * @param encodedKeys key id to base64 X.509 (SubjectPublicKeyInfo) EC public key; keys
+     *                    that do not parse are left out
+     */
+    public void setKeys(Map<String, String> encodedKeys) {
+        Map<String, PublicKey> parsed = new HashMap<>();
+        for (Map.Entry<String, String> entry : encodedKeys.entrySet()) {
+            byte[] encoded = entry.getValue() != null ? VoucherToken.decodeBase64(entry.getValue()) : null;
+            if (encoded == null) continue;
+            try {
+                parsed.put(entry.getKey(), KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(encoded)));
+            } catch (GeneralSecurityException e) {
+                // Skip it; tokens signed with this key report UNKNOWN_KEY
+            }
+        }
+        keys = parsed;
+        synchronized (verified) {
+            verified.clear();
+        }
+    }
+    
+    public boolean hasKeys() {
+        return !keys.isEmpty();
+    }
+    
+    public Result verify(VoucherToken token) {
+        synchronized (verified) {
+            if (verified.containsKey(token.getRaw())) return Result.VERIFIED;
+        }
+        
+        PublicKey key = keys.get(token.getKeyId());
+        if (key == null) return Result.UNKNOWN_KEY;
+        
+        boolean valid;
+        try {
+            Signature signature = signature();
+            signature.initVerify(key);
+            signature.update(token.getSignedPart());
+            valid = signature.verify(token.getSignature());
+        } catch (GeneralSecurityException e) {
+            // A signature that is not valid DER ends up here
+            valid = false;
+        }
+        if (!valid) return Result.BAD_SIGNATURE;
+        
+        synchronized (verified) {
+            verified.put(token.getRaw(), Boolean.TRUE);
+        }
+        return Result.VERIFIED;
+    }
+    
+    private Signature signature() throws GeneralSecurityException {
+        Signature signature = signatures.get();
+        if (signature == null) {
+            signature = Signature.getInstance(ALGORITHM);
+            signatures.set(signature);
+        }
+        return signature;
+    }
+}
\ No newline at end of file
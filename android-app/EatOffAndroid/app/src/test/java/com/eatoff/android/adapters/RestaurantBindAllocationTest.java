@@ -0,0 +1,111 @@
+package com.eatoff.android.adapters;
+
+import com.eatoff.android.catalog.CatalogSnapshot;
+import com.eatoff.android.catalog.RestaurantCatalog;
+import com.eatoff.android.models.Restaurant;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Guards the data side of {@code RestaurantAdapter.onBindViewHolder}: once a position has
+ * been bound, binding it again (scrolling back, payload rebinds) must stay within a fixed
+ * allocation budget. The view side is covered by the instrumented
+ * {@code RestaurantAdapterBindAllocationTest}.
+ */
+public class RestaurantBindAllocationTest {
+    
+    private static final int ROWS = 2_000;
+    private static final int PASSES = 20;
+    // Headroom for allocations by the measurement itself, not per bind
+    private static final long BUDGET_BYTES = 4 * 1024;
+    
+    @Test
+    public void listBindsStayWithinAllocationBudget() {
+        assertWithinBudget(RestaurantListSnapshot.ofRestaurants(generate(ROWS)));
+    }
+    
+    @Test
+    public void catalogBindsStayWithinAllocationBudget() {
+        RestaurantCatalog catalog = RestaurantCatalog.from(generate(ROWS));
+        assertWithinBudget(RestaurantListSnapshot.ofCatalog(catalog, catalog.allRows()));
+    }
+    
+    @Test
+    public void snapshotBindsStayWithinAllocationBudget() throws IOException {
+        File file = File.createTempFile("catalog", ".snapshot");
+        file.deleteOnExit();
+        CatalogSnapshot.write(file, RestaurantCatalog.from(generate(ROWS)));
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+        assertWithinBudget(RestaurantListSnapshot.ofCatalog(snapshot, snapshot.allRows()));
+    }
+    
+    @Test
+    public void unparseableRatingIsShownAsSent() {
+        Restaurant restaurant = new Restaurant(1, "Bistro", "French", "Centru");
+        restaurant.setRating("new");
+        RestaurantCardContent content = new RestaurantCardContent();
+        
+        RestaurantListSnapshot.ofRestaurants(Collections.singletonList(restaurant)).readCard(0, content);
+        
+        assertEquals("new", content.ratingLabel);
+    }
+    
+    @Test
+    public void bindReadsPrecomputedLabels() {
+        RestaurantCardContent content = new RestaurantCardContent();
+        RestaurantListSnapshot items = RestaurantListSnapshot.ofRestaurants(generate(10));
+        
+        items.readCard(3, content);
+        String label = content.ratingLabel;
+        items.readCard(3, content);
+        
+        assertEquals(String.format("%.1f", 4.3), label);
+        assertSame(label, content.ratingLabel);
+    }
+    
+    private static void assertWithinBudget(RestaurantListSnapshot items) {
+        RestaurantCardContent content = new RestaurantCardContent();
+        for (int pass = 0; pass < 3; pass++) {
+            bindAll(items, content);
+        }
+        
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int pass = 0; pass < PASSES; pass++) {
+            bindAll(items, content);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        
+        assertTrue("binds allocated " + allocated + " bytes", allocated <= BUDGET_BYTES);
+    }
+    
+    private static void bindAll(RestaurantListSnapshot items, RestaurantCardContent content) {
+        for (int position = 0; position < items.size(); position++) {
+            items.readCard(position, content);
+        }
+    }
+    
+    private static List<Restaurant> generate(int count) {
+        List<Restaurant> restaurants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Restaurant restaurant = new Restaurant(i, "Restaurant " + i, "Italian", "Downtown");
+            restaurant.setDescription("Description " + i);
+            restaurant.setImageUrl("https://img.example.com/" + i + ".jpg");
+            restaurant.setPriceRange("$$");
+            // JSON delivers ratings as strings
+            restaurant.setRating(String.valueOf(4.0 + (i % 10) / 10.0));
+            restaurants.add(restaurant);
+        }
+        return restaurants;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.eatoff.android.adapters;
+
+import com.eatoff.android.catalog.RestaurantCatalog;
+import com.eatoff.android.models.Restaurant;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class RestaurantDiffCallbackTest {
+    
+    @Test
+    public void matchesItemsById() {
+        RestaurantDiffCallback callback = new RestaurantDiffCallback(
+                RestaurantListSnapshot.ofRestaurants(Arrays.asList(restaurant(1, "4.5"), restaurant(2, "4.0"))),
+                RestaurantListSnapshot.ofRestaurants(Arrays.asList(restaurant(2, "4.0"), restaurant(1, "4.5"))));
+        
+        assertTrue(callback.areItemsTheSame(0, 1));
+        assertFalse(callback.areItemsTheSame(0, 0));
+        assertTrue(callback.areContentsTheSame(0, 1));
+    }
+    
+    @Test
+    public void ratingChangeCarriesPayload() {
+        RestaurantDiffCallback callback = new RestaurantDiffCallback(
+                RestaurantListSnapshot.ofRestaurants(Collections.singletonList(restaurant(1, "4.5"))),
+                RestaurantListSnapshot.ofRestaurants(Collections.singletonList(restaurant(1, "4.8"))));
+        
+        assertFalse(callback.areContentsTheSame(0, 0));
+        assertEquals(RestaurantDiffCallback.PAYLOAD_RATING, callback.getChangePayload(0, 0));
+    }
+    
+    @Test
+    public void otherChangesNeedAFullRebind() {
+        Restaurant renamed = restaurant(1, "4.5");
+        renamed.setName("Renamed");
+        RestaurantDiffCallback callback = new RestaurantDiffCallback(
+                RestaurantListSnapshot.ofRestaurants(Collections.singletonList(restaurant(1, "4.5"))),
+                RestaurantListSnapshot.ofRestaurants(Collections.singletonList(renamed)));
+        
+        assertFalse(callback.areContentsTheSame(0, 0));
+        assertNull(callback.getChangePayload(0, 0));
+    }
+    
+    @Test
+    public void snapshotToNetworkSwitchNeedsNoRebind() {
+        RestaurantCatalog catalog = RestaurantCatalog.from(Collections.singletonList(restaurant(1, "4.5")));
+        RestaurantDiffCallback callback = new RestaurantDiffCallback(
+                RestaurantListSnapshot.ofCatalog(catalog, catalog.allRows()),
+                RestaurantListSnapshot.ofRestaurants(Collections.singletonList(restaurant(1, "4.5"))));
+        
+        assertTrue(callback.areItemsTheSame(0, 0));
+        assertTrue(callback.areContentsTheSame(0, 0));
+    }
+    
+    private static Restaurant restaurant(int id, String rating) {
+        Restaurant restaurant = new Restaurant(id, "Restaurant " + id, "Italian", "Downtown");
+        restaurant.setDescription("Fresh pasta");
+        restaurant.setImageUrl("https://img.example.com/" + id + ".jpg");
+        restaurant.setRating(rating);
+        restaurant.setActive(true);
+        return restaurant;
+    }
+}
\ No newline at end of file
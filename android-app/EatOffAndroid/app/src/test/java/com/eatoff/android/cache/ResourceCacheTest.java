@@ -0,0 +1,187 @@
+package com.eatoff.android.cache;
+
+import com.eatoff.android.models.Restaurant;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class ResourceCacheTest {
+    
+    private static final CachePolicy POLICY = new CachePolicy("restaurant", 1_000, 10_000);
+    private static final Executor DIRECT = Runnable::run;
+    
+    private File directory;
+    private long now;
+    private ResourceCache cache;
+    private ManualFetcher fetcher;
+    
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("resource-cache").toFile();
+        directory.deleteOnExit();
+        now = 100_000;
+        cache = newCache();
+        fetcher = new ManualFetcher();
+    }
+    
+    @Test
+    public void missFetchesThenServesFromMemory() {
+        Recorder first = get("1");
+        assertTrue(first.results.isEmpty());
+        fetcher.succeed(restaurant("Fresh"));
+        assertEquals("Fresh:false", first.results.get(0));
+        
+        Recorder second = get("1");
+        assertEquals(1, fetcher.fetches);
+        assertEquals("Fresh:false", second.results.get(0));
+        
+        CacheMetrics.Counters counters = cache.getMetrics().snapshot().get("restaurant");
+        assertEquals(1, counters.getMisses());
+        assertEquals(1, counters.getMemoryHits());
+        assertEquals(0.5, counters.getHitRate(), 0.0001);
+    }
+    
+    @Test
+    public void staleEntryIsServedThenRevalidated() {
+        get("1");
+        fetcher.succeed(restaurant("Old"));
+        
+        now += 3_000;
+        Recorder recorder = get("1");
+        assertEquals(1, recorder.results.size());
+        assertEquals("Old:true", recorder.results.get(0));
+        assertEquals(2, fetcher.fetches);
+        
+        fetcher.succeed(restaurant("New"));
+        assertEquals("New:false", recorder.results.get(1));
+        
+        CacheMetrics.Counters counters = cache.getMetrics().snapshot().get("restaurant");
+        assertEquals(1, counters.getStaleHits());
+        assertEquals(2_000, counters.getMaxStalenessMs());
+    }
+    
+    @Test
+    public void entriesPastMaxStalenessAreNotServed() {
+        get("1");
+        fetcher.succeed(restaurant("Ancient"));
+        
+        now += 20_000;
+        Recorder recorder = get("1");
+        assertTrue(recorder.results.isEmpty());
+        fetcher.fail("offline");
+        assertEquals("offline", recorder.error);
+        assertEquals(1, cache.getMetrics().snapshot().get("restaurant").getExpired());
+    }
+    
+    @Test
+    public void failedRevalidationKeepsTheStaleResult() {
+        get("1");
+        fetcher.succeed(restaurant("Old"));
+        
+        now += 3_000;
+        Recorder recorder = get("1");
+        fetcher.fail("offline");
+        assertEquals(1, recorder.results.size());
+        assertNull(recorder.error);
+    }
+    
+    @Test
+    public void concurrentRequestsShareOneFetch() {
+        Recorder first = get("1");
+        Recorder second = get("1");
+        assertEquals(1, fetcher.fetches);
+        
+        fetcher.succeed(restaurant("Shared"));
+        assertEquals("Shared:false", first.results.get(0));
+        assertEquals("Shared:false", second.results.get(0));
+        assertEquals(1, cache.getMetrics().snapshot().get("restaurant").getCoalesced());
+    }
+    
+    @Test
+    public void diskTierSurvivesANewProcess() {
+        get("1");
+        fetcher.succeed(restaurant("Persisted"));
+        
+        cache = newCache();
+        Recorder recorder = get("1");
+        assertEquals(1, fetcher.fetches);
+        assertEquals("Persisted:false", recorder.results.get(0));
+        assertEquals(1, cache.getMetrics().snapshot().get("restaurant").getDiskHits());
+    }
+    
+    @Test
+    public void fetchFinishingAfterClearIsDropped() {
+        Recorder before = get("1");
+        ResourceCache.FetchCallback<Restaurant> previousSession = fetcher.pending;
+        cache.clear();
+        
+        // A request after the clear starts its own fetch instead of joining the old one
+        Recorder after = get("1");
+        assertEquals(2, fetcher.fetches);
+        
+        previousSession.onSuccess(restaurant("Previous user"));
+        assertTrue(before.results.isEmpty());
+        assertTrue(after.results.isEmpty());
+        assertEquals(0, directory.list().length);
+        
+        fetcher.succeed(restaurant("Current user"));
+        assertEquals("Current user:false", after.results.get(0));
+        assertTrue(before.results.isEmpty());
+    }
+    
+    private ResourceCache newCache() {
+        return new ResourceCache(directory, DIRECT, DIRECT, () -> now);
+    }
+    
+    private Recorder get(String key) {
+        Recorder recorder = new Recorder();
+        cache.get(POLICY, key, Restaurant.class, fetcher, recorder);
+        return recorder;
+    }
+    
+    private static Restaurant restaurant(String name) {
+        return new Restaurant(1, name, "Romanian", "Centru");
+    }
+    
+    private static class ManualFetcher implements ResourceCache.Fetcher<Restaurant> {
+        int fetches;
+        ResourceCache.FetchCallback<Restaurant> pending;
+        
+        @Override
+        public void fetch(ResourceCache.FetchCallback<Restaurant> callback) {
+            fetches++;
+            pending = callback;
+        }
+        
+        void succeed(Restaurant restaurant) {
+            pending.onSuccess(restaurant);
+        }
+        
+        void fail(String message) {
+            pending.onFailure(message);
+        }
+    }
+    
+    private static class Recorder implements ResourceCache.Callback<Restaurant> {
+        final List<String> results = new ArrayList<>();
+        String error;
+        
+        @Override
+        public void onResult(Restaurant value, boolean stale) {
+            results.add(value.getName() + ":" + stale);
+        }
+        
+        @Override
+        public void onError(String message) {
+            error = message;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.eatoff.android.cart;
+
+import com.eatoff.android.models.MenuItem;
+import com.eatoff.android.models.OrderRequest;
+import com.eatoff.android.models.Restaurant;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CartTest {
+    
+    private static final int RESTAURANT_ID = 3;
+    
+    @Test
+    public void totalsFollowAddsAndRemoves() {
+        Cart cart = new Cart(restaurant(4.99, 30.0), Cart.ORDER_TYPE_DELIVERY, 1100);
+        MenuItem soup = item(1, 12.50);
+        MenuItem steak = item(2, 45.90);
+        
+        assertEquals(Cart.AddResult.ADDED, cart.add(soup, 2));
+        assertEquals(2500, cart.getSubtotalCents());
+        assertEquals(500, cart.getAmountToMinimumCents());
+        assertFalse(cart.isReadyForCheckout());
+        
+        cart.add(steak, 1);
+        assertEquals(7090, cart.getSubtotalCents());
+        assertEquals(499, cart.getDeliveryFeeCents());
+        // Prices include VAT: 70.90 holds 7.03 of it at 11%, and the total adds only the fee
+        assertEquals(703, cart.getTaxCents());
+        assertEquals(7090 + 499, cart.getTotalCents());
+        assertTrue(cart.isReadyForCheckout());
+        
+        cart.remove(1, 5);
+        assertEquals(0, cart.getQuantity(1));
+        assertEquals(1, cart.getItemCount());
+        assertEquals(4590, cart.getSubtotalCents());
+        
+        cart.removeAll(2);
+        assertTrue(cart.isEmpty());
+        assertEquals(0, cart.getTotalCents());
+    }
+    
+    @Test
+    public void nonPositiveQuantitiesAreRejected() {
+        Cart cart = new Cart(restaurant(null, null), Cart.ORDER_TYPE_PICKUP);
+        cart.add(item(1, 5.00), 1);
+        for (int quantity : new int[] {0, -2}) {
+            try {
+                cart.add(item(1, 5.00), quantity);
+                fail("add accepted " + quantity);
+            } catch (IllegalArgumentException expected) {
+                // Rejected before touching the totals
+            }
+            try {
+                cart.remove(1, quantity);
+                fail("remove accepted " + quantity);
+            } catch (IllegalArgumentException expected) {
+                // Rejected before touching the totals
+            }
+        }
+        assertEquals(1, cart.getItemCount());
+        assertEquals(500, cart.getSubtotalCents());
+    }
+    
+    @Test
+    public void pickupHasNoDeliveryFeeOrMinimum() {
+        Cart cart = new Cart(restaurant(4.99, 30.0), Cart.ORDER_TYPE_PICKUP, 1100);
+        cart.add(item(1, 5.00), 1);
+        assertEquals(0, cart.getDeliveryFeeCents());
+        assertTrue(cart.isReadyForCheckout());
+    }
+    
+    @Test
+    public void itemsAreValidatedAgainstTheCachedMenu() {
+        Cart cart = new Cart(restaurant(null, null), Cart.ORDER_TYPE_PICKUP);
+        MenuItem soup = item(1, 12.50);
+        MenuItem sold = item(2, 9.00);
+        sold.setAvailable(false);
+        cart.setMenu(Arrays.asList(soup, sold));
+        
+        assertEquals(Cart.AddResult.ADDED, cart.add(soup, 1));
+        assertEquals(Cart.AddResult.UNAVAILABLE, cart.add(sold, 1));
+        assertEquals(Cart.AddResult.NOT_ON_MENU, cart.add(item(7, 1.00), 1));
+        MenuItem elsewhere = item(8, 1.00);
+        elsewhere.setRestaurantId(RESTAURANT_ID + 1);
+        assertEquals(Cart.AddResult.OTHER_RESTAURANT, cart.add(elsewhere, 1));
+        
+        // A refreshed menu reprices the line and flags it once the item is gone
+        MenuItem repriced = item(1, 13.00);
+        cart.setMenu(Arrays.asList(repriced, sold));
+        assertEquals(1300, cart.getSubtotalCents());
+        assertTrue(cart.isReadyForCheckout());
+        
+        repriced.setAvailable(false);
+        cart.setMenu(Arrays.asList(repriced, sold));
+        assertEquals(1, cart.getUnavailableLineCount());
+        assertFalse(cart.isReadyForCheckout());
+        cart.removeAll(1);
+        assertEquals(0, cart.getUnavailableLineCount());
+    }
+    
+    @Test
+    public void orderRequestCarriesLinesAndInstructions() {
+        Cart cart = new Cart(restaurant(null, null), Cart.ORDER_TYPE_DELIVERY);
+        cart.add(item(1, 12.50), 2);
+        cart.add(item(2, 8.00), 1);
+        cart.setSpecialInstructions(2, "No onions");
+        
+        OrderRequest request = cart.toOrderRequest(42);
+        assertEquals(42, request.getCustomerId());
+        assertEquals(RESTAURANT_ID, request.getRestaurantId());
+        assertEquals("delivery", request.getOrderType());
+        assertEquals(2, request.getItems().size());
+        assertEquals(1, request.getItems().get(0).getMenuItemId());
+        assertEquals(2, request.getItems().get(0).getQuantity());
+        assertEquals("No onions", request.getItems().get(1).getSpecialInstructions());
+    }
+    
+    @Test
+    public void incrementalSubtotalMatchesRecomputation() {
+        List<MenuItem> menu = new ArrayList<>();
+        for (int id = 1; id <= 40; id++) {
+            menu.add(item(id, 1 + id * 0.37));
+        }
+        Cart cart = new Cart(restaurant(2.5, 20.0), Cart.ORDER_TYPE_DELIVERY);
+        cart.setMenu(menu);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        
+        for (int step = 0; step < 10_000; step++) {
+            MenuItem item = menu.get(random.nextInt(menu.size()));
+            int quantity = 1 + random.nextInt(3);
+            if (random.nextBoolean()) {
+                cart.add(item, quantity);
+                expected.merge(item.getId(), quantity, Integer::sum);
+            } else {
+                cart.remove(item.getId(), quantity);
+                expected.computeIfPresent(item.getId(), (id, count) -> count > quantity ? count - quantity : null);
+            }
+        }
+        
+        long subtotal = 0;
+        int count = 0;
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            subtotal += Math.round(menu.get(entry.getKey() - 1).getPrice() * 100) * entry.getValue();
+            count += entry.getValue();
+        }
+        assertEquals(subtotal, cart.getSubtotalCents());
+        assertEquals(count, cart.getItemCount());
+    }
+    
+    private static Restaurant restaurant(Double deliveryFee, Double minimumOrder) {
+        Restaurant restaurant = new Restaurant(RESTAURANT_ID, "Casa Veche", "Romanian", "Centru");
+        restaurant.setDeliveryFee(deliveryFee);
+        restaurant.setMinimumDeliveryOrder(minimumOrder);
+        return restaurant;
+    }
+    
+    private static MenuItem item(int id, double price) {
+        MenuItem item = new MenuItem(id, "Item " + id, price, "Mains");
+        item.setRestaurantId(RESTAURANT_ID);
+        item.setAvailable(true);
+        return item;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.models.Restaurant;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CatalogSnapshotTest {
+    
+    @Test
+    public void snapshotRoundTripsCatalog() throws IOException {
+        List<Restaurant> restaurants = generate(100);
+        Restaurant detailed = restaurants.get(3);
+        detailed.setOwnerId(12);
+        detailed.setAddress("Strada Republicii 10");
+        detailed.setPhone("+40 268 000 000");
+        detailed.setOperatingHours("09:00-22:00");
+        detailed.setLatitude(45.6427);
+        detailed.setLongitude(25.5887);
+        
+        File file = File.createTempFile("catalog", ".snapshot");
+        file.deleteOnExit();
+        CatalogSnapshot.write(file, RestaurantCatalog.from(restaurants));
+        
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+        assertNotNull(snapshot);
+        assertEquals(100, snapshot.size());
+        assertEquals(3, snapshot.getId(3));
+        assertEquals("Restaurant 3 — Brașov", snapshot.getName(3));
+        assertEquals("Romanian", snapshot.getCuisine(3));
+        assertEquals(4.5f, snapshot.getRating(3), 0.0001);
+        assertTrue(Float.isNaN(snapshot.getDeliveryFee(0)));
+        
+        Restaurant restored = snapshot.toRestaurant(3);
+        assertEquals(Integer.valueOf(12), restored.getOwnerId());
+        assertEquals("Strada Republicii 10", restored.getAddress());
+        assertEquals("+40 268 000 000", restored.getPhone());
+        assertEquals("09:00-22:00", restored.getOperatingHours());
+        assertEquals(45.6427, restored.getLatitude(), 0.0);
+        assertEquals(25.5887, restored.getLongitude(), 0.0);
+        
+        Restaurant restaurant = snapshot.toRestaurant(5);
+        assertEquals("Restaurant 5 — Brașov", restaurant.getName());
+        assertEquals(2.0, restaurant.getDeliveryFee(), 0.0001);
+        assertNull(restaurant.getOwnerId());
+        assertNull(restaurant.getLatitude());
+    }
+    
+    @Test
+    public void rejectsMissingAndForeignFiles() throws IOException {
+        assertNull(CatalogSnapshot.open(new File("does-not-exist.snapshot")));
+        
+        File file = File.createTempFile("catalog", ".snapshot");
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[64]);
+        assertNull(CatalogSnapshot.open(file));
+    }
+    
+    @Test
+    public void truncatedStringsReadAsNull() throws IOException {
+        File file = File.createTempFile("catalog", ".snapshot");
+        file.deleteOnExit();
+        CatalogSnapshot.write(file, RestaurantCatalog.from(generate(10)));
+        
+        // Header and rows intact, string region cut short as by a full disk
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 3);
+        }
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+        assertEquals(10, snapshot.size());
+        
+        // The last row's name is the last string written; shared strings before it still decode
+        assertEquals("Restaurant 0 — Brașov", snapshot.getName(0));
+        assertNull(snapshot.getName(9));
+        assertEquals("Romanian", snapshot.getCuisine(9));
+        assertEquals(9, snapshot.toRestaurant(9).getId());
+    }
+    
+    @Test
+    public void largeSnapshotDecodesSameRowsAsJson() throws IOException {
+        List<Restaurant> restaurants = generate(20_000);
+        Gson gson = new Gson();
+        List<Restaurant> parsed = gson.fromJson(gson.toJson(restaurants), new TypeToken<List<Restaurant>>() {}.getType());
+        File file = File.createTempFile("catalog", ".snapshot");
+        file.deleteOnExit();
+        CatalogSnapshot.write(file, RestaurantCatalog.from(restaurants));
+        
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+        assertEquals(parsed.size(), snapshot.size());
+        for (int row : new int[] {0, 1, 9_999, 19_999}) {
+            Restaurant expected = parsed.get(row);
+            assertEquals(expected.getId(), snapshot.getId(row));
+            assertEquals(expected.getName(), snapshot.getName(row));
+            assertEquals(expected.getDescription(), snapshot.getDescription(row));
+            assertEquals(expected.getLocation(), snapshot.getLocation(row));
+            assertEquals(expected.getPriceRange(), snapshot.getPriceRange(row));
+        }
+    }
+    
+    private static List<Restaurant> generate(int count) {
+        List<Restaurant> restaurants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Restaurant restaurant = new Restaurant(i, "Restaurant " + i + " — Brașov", "Romanian", "Centru");
+            restaurant.setDescription("Mâncare tradițională românească, porții generoase.");
+            restaurant.setPriceRange("$$");
+            restaurant.setRating("4.5");
+            if (i > 0) restaurant.setDeliveryFee(2.0);
+            restaurant.setActive(true);
+            restaurants.add(restaurant);
+        }
+        return restaurants;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.models.Restaurant;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DeliveryIndexTest {
+    
+    // Piața Unirii, Bucharest
+    private static final double LATITUDE = 44.4268;
+    private static final double LONGITUDE = 26.1025;
+    
+    @Test
+    public void returnsRestaurantsCoveringThePointNearestFirst() {
+        DeliveryIndex index = new DeliveryIndex();
+        index.sync(Arrays.asList(
+                restaurant(1, 0.02, 0.0, 5.0),    // ~2.2 km north, delivers 5 km
+                restaurant(2, 0.0, 0.01, 2.0),    // ~0.8 km east, delivers 2 km
+                restaurant(3, 0.09, 0.0, 5.0),    // ~10 km north, too far for its radius
+                restaurant(4, 0.09, 0.0, 12.0)), true);
+        
+        List<DeliveryIndex.Hit> hits = index.deliveringTo(LATITUDE, LONGITUDE);
+        
+        assertEquals(3, hits.size());
+        assertEquals(2, hits.get(0).getRestaurantId());
+        assertEquals(1, hits.get(1).getRestaurantId());
+        assertEquals(4, hits.get(2).getRestaurantId());
+        assertEquals(10.0, hits.get(2).getDistanceKm(), 0.1);
+    }
+    
+    @Test
+    public void updatesIncrementallyAsTheCatalogSyncs() {
+        DeliveryIndex index = new DeliveryIndex();
+        index.sync(Arrays.asList(restaurant(1, 0.0, 0.0, 3.0), restaurant(2, 0.0, 0.0, 3.0)), true);
+        assertEquals(2, index.deliveringTo(LATITUDE, LONGITUDE).size());
+        
+        // Restaurant 1 moves out of range, restaurant 2 stops delivering
+        Restaurant moved = restaurant(1, 0.5, 0.0, 3.0);
+        Restaurant stopped = restaurant(2, 0.0, 0.0, 3.0);
+        stopped.setOffersDelivery(false);
+        index.sync(Arrays.asList(moved, stopped), false);
+        assertTrue(index.deliveringTo(LATITUDE, LONGITUDE).isEmpty());
+        assertEquals(1, index.size());
+        
+        // A full sync drops restaurants missing from the catalog
+        index.sync(Collections.singletonList(restaurant(5, 0.0, 0.0, 3.0)), true);
+        assertEquals(1, index.size());
+        assertEquals(5, index.deliveringTo(LATITUDE, LONGITUDE).get(0).getRestaurantId());
+    }
+    
+    @Test
+    public void gridLookupMatchesScanningEveryRestaurant() {
+        Random random = new Random(32);
+        List<Restaurant> restaurants = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Spread over roughly 200 x 200 km
+            restaurants.add(restaurant(i, (random.nextDouble() - 0.5) * 1.8,
+                    (random.nextDouble() - 0.5) * 2.5, 2.0 + random.nextInt(6)));
+        }
+        DeliveryIndex index = new DeliveryIndex();
+        index.sync(restaurants, true);
+        
+        for (int i = 0; i < 10; i++) {
+            double latitude = LATITUDE + i * 0.07;
+            List<DeliveryIndex.Hit> hits = index.deliveringTo(latitude, LONGITUDE);
+            
+            List<Integer> expected = new ArrayList<>();
+            double cosLatitude = Math.cos(Math.toRadians(latitude));
+            for (Restaurant restaurant : restaurants) {
+                double dy = (restaurant.getLatitude() - latitude) * 111.195;
+                double dx = (restaurant.getLongitude() - LONGITUDE) * 111.195 * cosLatitude;
+                if ((float) Math.sqrt(dx * dx + dy * dy) <= restaurant.getDeliveryRadius()) {
+                    expected.add(restaurant.getId());
+                }
+            }
+            
+            assertFalse(hits.isEmpty());
+            List<Integer> found = new ArrayList<>();
+            for (int h = 0; h < hits.size(); h++) {
+                found.add(hits.get(h).getRestaurantId());
+                if (h > 0) assertTrue(hits.get(h - 1).getDistanceKm() <= hits.get(h).getDistanceKm());
+            }
+            Collections.sort(found);
+            assertEquals(expected, found);
+        }
+    }
+    
+    private static Restaurant restaurant(int id, double dLatitude, double dLongitude, double radiusKm) {
+        Restaurant restaurant = new Restaurant(id, "Restaurant " + id, "Romanian", "Centru");
+        restaurant.setLatitude(LATITUDE + dLatitude);
+        restaurant.setLongitude(LONGITUDE + dLongitude);
+        restaurant.setDeliveryRadius(radiusKm);
+        restaurant.setOffersDelivery(true);
+        return restaurant;
+    }
+}
\ No newline at end of file
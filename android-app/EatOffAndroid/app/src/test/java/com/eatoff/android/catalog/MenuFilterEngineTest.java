@@ -0,0 +1,90 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.models.MenuItem;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MenuFilterEngineTest {
+    
+    @Test
+    public void parsesEnglishAndRomanianAllergens() {
+        assertEquals(Allergens.MILK | Allergens.EGGS, Allergens.parse("Lapte, ouă"));
+        assertEquals(Allergens.TREE_NUTS | Allergens.GLUTEN, Allergens.parse("contains nuts; wheat"));
+        assertEquals(Allergens.PEANUTS, Allergens.parse("Arahide"));
+        assertEquals(Allergens.TREE_NUTS, Allergens.parse("Alune de pădure"));
+        assertEquals(0, Allergens.parse(null));
+        // "Free of" phrasing in either language clears only the allergen it names
+        assertEquals(0, Allergens.parse("Fără gluten"));
+        assertEquals(Allergens.MILK, Allergens.parse("gluten-free, contains milk"));
+        assertEquals(Allergens.EGGS, Allergens.parse("without lactose; eggs"));
+    }
+    
+    @Test
+    public void evaluatesMultiFacetQueriesAcrossWholeMenu() {
+        List<MenuItem> menu = new ArrayList<>();
+        // 130 items so the bitsets span three words
+        for (int i = 0; i < 130; i++) {
+            menu.add(item(i, i % 2 == 0, i % 5 == 0 ? "nuci" : null, i % 4, 300 + i * 5));
+        }
+        MenuFilterEngine engine = new MenuFilterEngine();
+        engine.syncMenu(1, menu);
+        
+        MenuFilterEngine.Query query = new MenuFilterEngine.Query.Builder()
+                .require(MenuFilterEngine.DIET_VEGAN)
+                .exclude(Allergens.NUTS)
+                .maxSpicyLevel(1)
+                .caloriesBelow(600)
+                .build();
+        
+        List<MenuItem> matches = engine.filterMenu(1, query);
+        int expected = 0;
+        for (MenuItem item : menu) {
+            if (item.isVegan() && Allergens.parse(item.getAllergens()) == 0 && item.getSpicyLevel() <= 1
+                    && item.getCalories() < 600) {
+                expected++;
+                assertTrue(matches.contains(item));
+            }
+        }
+        assertEquals(expected, matches.size());
+        assertEquals(expected, engine.countMatches(1, query));
+    }
+    
+    @Test
+    public void findsRestaurantsWithAnyMatchingItem() {
+        MenuFilterEngine engine = new MenuFilterEngine();
+        engine.syncMenu(10, Arrays.asList(item(1, false, "fish", 0, 500), item(2, false, null, 3, 900)));
+        engine.syncMenu(20, Arrays.asList(item(3, true, "nuts", 0, 400), item(4, true, null, 2, 450)));
+        engine.syncMenu(30, Arrays.asList(item(5, true, null, 0, 350)));
+        
+        MenuFilterEngine.Query veganNoNutsMild = new MenuFilterEngine.Query.Builder()
+                .require(MenuFilterEngine.DIET_VEGAN)
+                .exclude(Allergens.NUTS)
+                .maxSpicyLevel(1)
+                .build();
+        assertEquals(Arrays.asList(30), engine.restaurantsMatching(veganNoNutsMild));
+        
+        MenuFilterEngine.Query veganOrGlutenFree = new MenuFilterEngine.Query.Builder()
+                .anyOf(MenuFilterEngine.DIET_VEGAN | MenuFilterEngine.DIET_GLUTEN_FREE)
+                .build();
+        assertEquals(Arrays.asList(20, 30), engine.restaurantsMatching(veganOrGlutenFree));
+        
+        engine.removeMenu(30);
+        assertTrue(engine.restaurantsMatching(veganNoNutsMild).isEmpty());
+    }
+    
+    private static MenuItem item(int id, boolean vegan, String allergens, int spicyLevel, int calories) {
+        MenuItem item = new MenuItem(id, "Item " + id, 20.0, "Main");
+        item.setVegan(vegan);
+        item.setVegetarian(vegan);
+        item.setAvailable(true);
+        item.setAllergens(allergens);
+        item.setSpicyLevel(spicyLevel);
+        item.setCalories(calories);
+        return item;
+    }
+}
\ No newline at end of file
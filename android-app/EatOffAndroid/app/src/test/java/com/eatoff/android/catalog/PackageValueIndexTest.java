@@ -0,0 +1,143 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.api.ApiService;
+import com.eatoff.android.models.Restaurant;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PackageValueIndexTest {
+    
+    @Test
+    public void ranksByPricePerMealAndSavings() {
+        List<ApiService.VoucherPackage> packages = Arrays.asList(
+                voucherPackage(1, 1, 10, 100.0, 125.0),   // 10.00 a meal, 20% off
+                voucherPackage(2, 2, 5, 40.0, 80.0),      // 8.00 a meal, 50% off
+                voucherPackage(3, 3, 20, 180.0, 0.0),     // 9.00 a meal, advertised 10% off
+                voucherPackage(4, 1, 0, 50.0, 60.0));     // no meals, left out
+        PackageValueIndex index = new PackageValueIndex(packages, catalog());
+        
+        assertEquals(3, index.size());
+        int[] cheapest = index.query(PackageValueIndex.Order.PRICE_PER_MEAL, StringDictionary.NO_CODE, StringDictionary.NO_CODE, null, 10);
+        assertArrayEquals(new int[] {2, 3, 1}, packageIds(index, cheapest));
+        assertEquals(800, index.getPricePerMealCents(cheapest[0]));
+        assertEquals(5000, index.getSavingsBasisPoints(cheapest[0]));
+        assertEquals("Bistro 2", index.getRestaurantName(cheapest[0]));
+        
+        int[] savings = index.query(PackageValueIndex.Order.SAVINGS, StringDictionary.NO_CODE, StringDictionary.NO_CODE, null, 2);
+        assertArrayEquals(new int[] {2, 1}, packageIds(index, savings));
+    }
+    
+    @Test
+    public void filtersByCuisineLocationAndRestaurants() {
+        List<ApiService.VoucherPackage> packages = Arrays.asList(
+                voucherPackage(1, 1, 10, 100.0, 125.0),
+                voucherPackage(2, 2, 5, 40.0, 80.0),
+                voucherPackage(3, 3, 20, 180.0, 200.0),
+                voucherPackage(5, 99, 5, 10.0, 20.0));    // restaurant not in the catalog
+        PackageValueIndex index = new PackageValueIndex(packages, catalog());
+        
+        int italian = index.getCuisines().lookup("Italian");
+        int[] rows = index.query(PackageValueIndex.Order.PRICE_PER_MEAL, italian, StringDictionary.NO_CODE, null, 10);
+        assertArrayEquals(new int[] {3, 1}, packageIds(index, rows));
+        
+        int centru = index.getLocations().lookup("Centru");
+        rows = index.query(PackageValueIndex.Order.PRICE_PER_MEAL, italian, centru, null, 10);
+        assertArrayEquals(new int[] {1}, packageIds(index, rows));
+        
+        rows = index.query(PackageValueIndex.Order.PRICE_PER_MEAL, StringDictionary.NO_CODE, StringDictionary.NO_CODE, new int[] {99, 3}, 10);
+        assertArrayEquals(new int[] {5, 3}, packageIds(index, rows));
+        assertNull(index.getCuisine(rows[0]));
+    }
+    
+    @Test
+    public void leavesOutClosedRestaurants() {
+        RestaurantCatalog catalog = catalog();
+        Restaurant closed = new Restaurant(7, "Closed", "Italian", "Centru");
+        closed.setActive(false);
+        catalog.add(closed);
+        
+        PackageValueIndex index = new PackageValueIndex(
+                Arrays.asList(voucherPackage(1, 7, 10, 50.0, 100.0), voucherPackage(2, 1, 10, 100.0, 125.0)), catalog);
+        assertEquals(1, index.size());
+        assertEquals(2, index.getPackage(0).getId());
+    }
+    
+    @Test
+    public void bestDealsMatchFilteringAndSortingByHand() {
+        Random random = new Random(7);
+        List<Restaurant> restaurants = new ArrayList<>();
+        String[] cuisines = {"Romanian", "Italian", "Asian", "Greek"};
+        for (int i = 0; i < 2_000; i++) {
+            Restaurant restaurant = new Restaurant(i, "Restaurant " + i, cuisines[i % cuisines.length], "Sector " + (i % 6));
+            restaurant.setActive(true);
+            restaurants.add(restaurant);
+        }
+        RestaurantCatalog catalog = RestaurantCatalog.from(restaurants);
+        List<ApiService.VoucherPackage> packages = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            int meals = 5 + random.nextInt(20);
+            double price = meals * (20 + random.nextInt(40));
+            packages.add(voucherPackage(i, random.nextInt(2_000), meals, price, price * (1.1 + random.nextDouble())));
+        }
+        PackageValueIndex index = new PackageValueIndex(packages, catalog);
+        
+        int[] rows = index.query(PackageValueIndex.Order.SAVINGS, index.getCuisines().lookup("Asian"),
+                StringDictionary.NO_CODE, null, 20);
+        List<ApiService.VoucherPackage> sorted = sortByHand(packages, catalog, "Asian");
+        assertEquals(20, rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            assertEquals("Asian", index.getCuisine(rows[i]));
+            if (i > 0) assertTrue(index.getSavingsBasisPoints(rows[i - 1]) >= index.getSavingsBasisPoints(rows[i]));
+            // Rounded to basis points, so near ties may swap; the savings at each rank must agree
+            assertEquals(savingsBasisPoints(sorted.get(i)), index.getSavingsBasisPoints(rows[i]));
+        }
+    }
+    
+    private static List<ApiService.VoucherPackage> sortByHand(List<ApiService.VoucherPackage> packages,
+                                                             RestaurantCatalog catalog, String cuisine) {
+        List<ApiService.VoucherPackage> matching = new ArrayList<>();
+        for (ApiService.VoucherPackage voucherPackage : packages) {
+            // Restaurant ids equal catalog rows in this data set
+            if (cuisine.equals(catalog.getCuisine(voucherPackage.getRestaurantId()))) matching.add(voucherPackage);
+        }
+        matching.sort((a, b) -> Double.compare(a.getPrice() / a.getOriginalPrice(), b.getPrice() / b.getOriginalPrice()));
+        return matching;
+    }
+    
+    private static long savingsBasisPoints(ApiService.VoucherPackage voucherPackage) {
+        return Math.round((1 - voucherPackage.getPrice() / voucherPackage.getOriginalPrice()) * 10_000);
+    }
+    
+    private static int[] packageIds(PackageValueIndex index, int[] rows) {
+        int[] ids = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) ids[i] = index.getPackage(rows[i]).getId();
+        return ids;
+    }
+    
+    private static RestaurantCatalog catalog() {
+        List<Restaurant> restaurants = new ArrayList<>();
+        restaurants.add(new Restaurant(1, "Trattoria 1", "Italian", "Centru"));
+        restaurants.add(new Restaurant(2, "Bistro 2", "Romanian", "Centru"));
+        restaurants.add(new Restaurant(3, "Pizzeria 3", "Italian", "Schei"));
+        for (Restaurant restaurant : restaurants) restaurant.setActive(true);
+        return RestaurantCatalog.from(restaurants);
+    }
+    
+    private static ApiService.VoucherPackage voucherPackage(int id, int restaurantId, int meals, double price, double originalPrice) {
+        ApiService.VoucherPackage voucherPackage = new ApiService.VoucherPackage();
+        voucherPackage.setId(id);
+        voucherPackage.setRestaurantId(restaurantId);
+        voucherPackage.setMealCount(meals);
+        voucherPackage.setPrice(price);
+        voucherPackage.setOriginalPrice(originalPrice);
+        voucherPackage.setDiscountPercentage(10);
+        voucherPackage.setActive(true);
+        return voucherPackage;
+    }
+}
\ No newline at end of file
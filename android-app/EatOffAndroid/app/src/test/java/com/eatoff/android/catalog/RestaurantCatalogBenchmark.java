@@ -0,0 +1,79 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.models.Restaurant;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the heap retained by a list of {@link Restaurant} objects with the same data held
+ * in a {@link RestaurantCatalog}. Excluded from the default unit test run; run it with
+ * {@code ./gradlew test -Pbenchmarks}.
+ */
+public class RestaurantCatalogBenchmark {
+    
+    private static final int ROWS = 50_000;
+    private static final String[] CUISINES = {"Italian", "Romanian", "Japanese", "Mexican", "Indian"};
+    private static final String[] LOCATIONS = {"Downtown", "Old Town", "Floreasca", "Cotroceni"};
+    private static final String[] PRICE_RANGES = {"$", "$$", "$$$"};
+    
+    @Test
+    public void catalogRetainsLessHeapThanObjectModel() {
+        long baseline = usedHeap();
+        List<Restaurant> restaurants = generate(ROWS);
+        long objectModelBytes = usedHeap() - baseline;
+        
+        RestaurantCatalog catalog = RestaurantCatalog.from(restaurants);
+        // The catalog keeps the name, description and URL strings, so only the objects around them go
+        restaurants = null;
+        long catalogBytes = usedHeap() - baseline;
+        
+        System.out.println("Object model: " + objectModelBytes / 1024 + " KB, catalog: "
+                + catalogBytes / 1024 + " KB for " + catalog.size() + " rows");
+        assertEquals(ROWS, catalog.size());
+        assertTrue("catalog retains " + catalogBytes + " bytes, object model " + objectModelBytes,
+                catalogBytes < objectModelBytes);
+    }
+    
+    // Collects until the used heap stops shrinking, so both readings see only live objects
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) break;
+            used = now;
+        }
+        return used;
+    }
+    
+    private static List<Restaurant> generate(int count) {
+        List<Restaurant> restaurants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // new String(...) mirrors JSON decoding, which never shares string instances
+            Restaurant restaurant = new Restaurant(i, "Restaurant " + i,
+                    new String(CUISINES[i % CUISINES.length]),
+                    new String(LOCATIONS[i % LOCATIONS.length]));
+            restaurant.setPriceRange(new String(PRICE_RANGES[i % PRICE_RANGES.length]));
+            restaurant.setDescription("Description " + i);
+            restaurant.setImageUrl("https://img.example.com/" + i + ".jpg");
+            restaurant.setRating(String.valueOf((i % 50) / 10.0));
+            restaurant.setDeliveryFee(1.0 + (i % 7));
+            restaurant.setDeliveryRadius(2.0 + (i % 5));
+            restaurant.setMinimumDeliveryOrder(10.0 + (i % 3));
+            restaurant.setActive(i % 4 != 0);
+            restaurant.setOffersDelivery(i % 2 == 0);
+            restaurants.add(restaurant);
+        }
+        return restaurants;
+    }
+}
@@ -0,0 +1,126 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.models.Restaurant;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a large {@link RestaurantCatalog} stores repeated strings once and that its
+ * filter results match the source data. The heap comparison with the object model is
+ * {@link RestaurantCatalogBenchmark}.
+ */
+public class RestaurantCatalogTest {
+    
+    private static final int ROWS = 50_000;
+    private static final String[] CUISINES = {"Italian", "Romanian", "Japanese", "Mexican", "Indian"};
+    private static final String[] LOCATIONS = {"Downtown", "Old Town", "Floreasca", "Cotroceni"};
+    private static final String[] PRICE_RANGES = {"$", "$$", "$$$"};
+    
+    @Test
+    public void repeatedStringsAreStoredOnce() {
+        RestaurantCatalog catalog = RestaurantCatalog.from(generate(ROWS));
+        
+        assertEquals(ROWS, catalog.size());
+        assertEquals(CUISINES.length, catalog.getCuisines().size());
+        assertEquals(LOCATIONS.length, catalog.getLocations().size());
+        assertEquals(PRICE_RANGES.length, catalog.getPriceRanges().size());
+        // Every row with the same cuisine hands out the one dictionary instance
+        assertSame(catalog.getCuisine(0), catalog.getCuisine(CUISINES.length));
+    }
+    
+    @Test
+    public void filterRunsOnPrimitiveColumns() {
+        RestaurantCatalog catalog = RestaurantCatalog.from(generate(ROWS));
+        int italian = catalog.getCuisines().lookup("Italian");
+        
+        int[] rows = catalog.filter(italian, StringDictionary.NO_CODE, StringDictionary.NO_CODE,
+                RestaurantCatalog.FLAG_DELIVERY, 3.0f, Float.NaN);
+        
+        assertTrue(rows.length > 0);
+        for (int row : rows) {
+            assertEquals("Italian", catalog.getCuisine(row));
+            assertTrue(catalog.getRating(row) >= 3.0f);
+            assertTrue((catalog.getFlags(row) & RestaurantCatalog.FLAG_DELIVERY) != 0);
+        }
+    }
+    
+    @Test
+    public void unknownFilterValueMatchesNothing() {
+        RestaurantCatalog catalog = RestaurantCatalog.from(generate(100));
+        int unknown = catalog.getCuisines().lookup("Unknown cuisine");
+        
+        assertEquals(StringDictionary.UNKNOWN_CODE, unknown);
+        assertEquals(0, catalog.filter(unknown, StringDictionary.NO_CODE, StringDictionary.NO_CODE,
+                0, Float.NaN, Float.NaN).length);
+        assertEquals(StringDictionary.NO_CODE, catalog.getCuisines().lookup(null));
+    }
+    
+    @Test
+    public void missingDeliveryFeeCountsAsFree() {
+        List<Restaurant> restaurants = new ArrayList<>();
+        Restaurant free = new Restaurant(1, "Free", "Italian", "Downtown");
+        Restaurant pricey = new Restaurant(2, "Pricey", "Italian", "Downtown");
+        pricey.setDeliveryFee(4.0);
+        restaurants.add(free);
+        restaurants.add(pricey);
+        
+        RestaurantCatalog catalog = RestaurantCatalog.from(restaurants);
+        int[] cheap = catalog.filter(StringDictionary.NO_CODE, StringDictionary.NO_CODE, StringDictionary.NO_CODE,
+                0, Float.NaN, 2.0f);
+        assertEquals(1, cheap.length);
+        assertEquals("Free", catalog.getName(cheap[0]));
+    }
+    
+    @Test
+    public void toRestaurantKeepsEveryField() {
+        Restaurant source = new Restaurant(9, "Caru' cu bere", "Romanian", "Old Town");
+        source.setOwnerId(4);
+        source.setAddress("Strada Stavropoleos 5");
+        source.setPhone("+40 21 313 7560");
+        source.setEmail("office@example.com");
+        source.setOperatingHours("10:00-23:00");
+        source.setLatitude(44.4316);
+        source.setLongitude(26.0987);
+        source.setCreatedAt("2024-01-02T10:00:00Z");
+        source.setUpdatedAt("2024-03-04T10:00:00Z");
+        source.setDeliveryFee(2.5);
+        
+        Restaurant copy = RestaurantCatalog.from(Collections.singletonList(source)).toRestaurant(0);
+        assertEquals(Integer.valueOf(4), copy.getOwnerId());
+        assertEquals("Strada Stavropoleos 5", copy.getAddress());
+        assertEquals("+40 21 313 7560", copy.getPhone());
+        assertEquals("office@example.com", copy.getEmail());
+        assertEquals("10:00-23:00", copy.getOperatingHours());
+        assertEquals(44.4316, copy.getLatitude(), 0.0);
+        assertEquals(26.0987, copy.getLongitude(), 0.0);
+        assertEquals("2024-01-02T10:00:00Z", copy.getCreatedAt());
+        assertEquals("2024-03-04T10:00:00Z", copy.getUpdatedAt());
+        assertEquals(2.5, copy.getDeliveryFee(), 0.0001);
+    }
+    
+    private static List<Restaurant> generate(int count) {
+        List<Restaurant> restaurants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // new String(...) mirrors JSON decoding, which never shares string instances
+            Restaurant restaurant = new Restaurant(i, "Restaurant " + i,
+                    new String(CUISINES[i % CUISINES.length]),
+                    new String(LOCATIONS[i % LOCATIONS.length]));
+            restaurant.setPriceRange(new String(PRICE_RANGES[i % PRICE_RANGES.length]));
+            restaurant.setDescription("Description " + i);
+            restaurant.setImageUrl("https://img.example.com/" + i + ".jpg");
+            restaurant.setRating(String.valueOf((i % 50) / 10.0));
+            restaurant.setDeliveryFee(1.0 + (i % 7));
+            restaurant.setDeliveryRadius(2.0 + (i % 5));
+            restaurant.setMinimumDeliveryOrder(10.0 + (i % 3));
+            restaurant.setActive(i % 4 != 0);
+            restaurant.setOffersDelivery(i % 2 == 0);
+            restaurants.add(restaurant);
+        }
+        return restaurants;
+    }
+}
\ No newline at end of file
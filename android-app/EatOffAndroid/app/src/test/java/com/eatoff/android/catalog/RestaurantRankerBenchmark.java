@@ -0,0 +1,83 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.models.Restaurant;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Times a sort chip change on 20k restaurants: {@link RestaurantRanker#topK} for the visible
+ * window against a full sort of the boxed model. Excluded from the default unit test run;
+ * run it with {@code ./gradlew test -Pbenchmarks}.
+ */
+public class RestaurantRankerBenchmark {
+    
+    private static final int ROWS = 20_000;
+    private static final int VISIBLE = 50;
+    private static final int RUNS = 50;
+    private static final long FRAME_BUDGET_MICROS = 16_000;
+    
+    @Test
+    public void reRankingFitsWellInsideAFrame() {
+        List<Restaurant> restaurants = generate(ROWS);
+        RestaurantRanker ranker = new RestaurantRanker(RestaurantCatalog.from(restaurants));
+        RestaurantRanker.Weights[] chips = {
+                RestaurantRanker.Weights.BY_RATING,
+                RestaurantRanker.Weights.BY_DELIVERY_FEE,
+                RestaurantRanker.Weights.BY_MINIMUM_ORDER,
+                RestaurantRanker.Weights.RECOMMENDED
+        };
+        
+        // Warm up both paths so neither is timed in the interpreter
+        for (int i = 0; i < 200; i++) {
+            ranker.topK(null, chips[i % chips.length], VISIBLE);
+            if (i % 20 == 0) fullSort(restaurants);
+        }
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            ranker.topK(null, chips[i % chips.length], VISIBLE);
+        }
+        long rankerMicros = (System.nanoTime() - start) / 1000 / RUNS;
+        
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            fullSort(restaurants);
+        }
+        long fullSortMicros = (System.nanoTime() - start) / 1000 / RUNS;
+        
+        System.out.println("Re-rank " + ROWS + " restaurants: top-" + VISIBLE + " " + rankerMicros
+                + " us, full boxed sort " + fullSortMicros + " us");
+        assertTrue("top-K took " + rankerMicros + " us", rankerMicros < FRAME_BUDGET_MICROS / 4);
+        assertTrue("top-K " + rankerMicros + " us, full sort " + fullSortMicros + " us",
+                rankerMicros < fullSortMicros);
+    }
+    
+    // What a chip change cost before: parse every rating again and sort the whole list
+    private static List<Restaurant> fullSort(List<Restaurant> restaurants) {
+        List<Restaurant> sorted = new ArrayList<>(restaurants);
+        Collections.sort(sorted, (a, b) -> Double.compare(b.getRatingValue(), a.getRatingValue()));
+        return sorted;
+    }
+    
+    private static List<Restaurant> generate(int count) {
+        Random random = new Random(7);
+        List<Restaurant> restaurants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Restaurant restaurant = new Restaurant(i, "Restaurant " + i, "Romanian", "Centru");
+            restaurant.setRating(String.valueOf(random.nextInt(50) / 10.0));
+            if (random.nextInt(4) != 0) restaurant.setDeliveryFee(random.nextInt(800) / 100.0);
+            restaurant.setMinimumDeliveryOrder((double) random.nextInt(60));
+            restaurant.setOffersDelivery(random.nextBoolean());
+            restaurant.setOffersTakeout(random.nextBoolean());
+            restaurant.setDineInAvailable(random.nextBoolean());
+            restaurants.add(restaurant);
+        }
+        return restaurants;
+    }
+}
@@ -0,0 +1,85 @@
+package com.eatoff.android.catalog;
+
+import com.eatoff.android.models.Restaurant;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RestaurantRankerTest {
+    
+    private static final int ROWS = 20_000;
+    private static final int VISIBLE = 50;
+    
+    @Test
+    public void topKMatchesFullSort() {
+        List<Restaurant> restaurants = generate(ROWS);
+        RestaurantCatalog catalog = RestaurantCatalog.from(restaurants);
+        RestaurantRanker ranker = new RestaurantRanker(catalog);
+        
+        List<Restaurant> sorted = new ArrayList<>(restaurants);
+        Collections.sort(sorted, (a, b) -> Double.compare(b.getRatingValue(), a.getRatingValue()));
+        
+        int[] top = ranker.topK(null, RestaurantRanker.Weights.BY_RATING, VISIBLE);
+        assertEquals(VISIBLE, top.length);
+        for (int i = 0; i < VISIBLE; i++) {
+            assertEquals(sorted.get(i).getRatingValue(), catalog.getRating(top[i]), 0.001);
+        }
+        
+        int[] cheapest = ranker.topK(null, RestaurantRanker.Weights.BY_DELIVERY_FEE, VISIBLE);
+        for (int i = 1; i < cheapest.length; i++) {
+            assertTrue(fee(catalog, cheapest[i - 1]) <= fee(catalog, cheapest[i]));
+        }
+    }
+    
+    @Test
+    public void missingFeeRanksAsFreeAndMissingRatingAsZero() {
+        List<Restaurant> restaurants = new ArrayList<>();
+        Restaurant free = new Restaurant(1, "Free", "Italian", "Downtown");
+        Restaurant cheap = new Restaurant(2, "Cheap", "Italian", "Downtown");
+        cheap.setDeliveryFee(1.5);
+        cheap.setRating("3.5");
+        Restaurant pricey = new Restaurant(3, "Pricey", "Italian", "Downtown");
+        pricey.setDeliveryFee(4.0);
+        pricey.setRating("4.0");
+        restaurants.add(pricey);
+        restaurants.add(free);
+        restaurants.add(cheap);
+        
+        RestaurantCatalog catalog = RestaurantCatalog.from(restaurants);
+        RestaurantRanker ranker = new RestaurantRanker(catalog);
+        int[] byFee = ranker.topK(null, RestaurantRanker.Weights.BY_DELIVERY_FEE, 3);
+        assertEquals(1, catalog.getId(byFee[0]));
+        assertEquals(2, catalog.getId(byFee[1]));
+        assertEquals(3, catalog.getId(byFee[2]));
+        
+        int[] byRating = ranker.topK(null, RestaurantRanker.Weights.BY_RATING, 3);
+        assertEquals(3, catalog.getId(byRating[0]));
+        assertEquals(1, catalog.getId(byRating[2]));
+    }
+    
+    private static float fee(RestaurantCatalog catalog, int row) {
+        float fee = catalog.getDeliveryFee(row);
+        return Float.isNaN(fee) ? 0f : fee;
+    }
+    
+    private static List<Restaurant> generate(int count) {
+        Random random = new Random(7);
+        List<Restaurant> restaurants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Restaurant restaurant = new Restaurant(i, "Restaurant " + i, "Romanian", "Centru");
+            restaurant.setRating(String.valueOf(random.nextInt(50) / 10.0));
+            if (random.nextInt(4) != 0) restaurant.setDeliveryFee(random.nextInt(800) / 100.0);
+            restaurant.setMinimumDeliveryOrder((double) random.nextInt(60));
+            restaurant.setOffersDelivery(random.nextBoolean());
+            restaurant.setOffersTakeout(random.nextBoolean());
+            restaurant.setDineInAvailable(random.nextBoolean());
+            restaurants.add(restaurant);
+        }
+        return restaurants;
+    }
+}
\ No newline at end of file
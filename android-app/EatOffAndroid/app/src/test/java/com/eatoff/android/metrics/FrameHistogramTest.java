@@ -0,0 +1,47 @@
+package com.eatoff.android.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameHistogramTest {
+    
+    private static final long MS = 1_000_000L;
+    private static final long BUDGET_60HZ = 16_666_666L;
+    
+    @Test
+    public void countsSlowAndFrozenFrames() {
+        FrameHistogram histogram = new FrameHistogram();
+        for (int i = 0; i < 97; i++) {
+            histogram.record(6 * MS, BUDGET_60HZ);
+        }
+        histogram.record(20 * MS, BUDGET_60HZ);
+        histogram.record(120 * MS, BUDGET_60HZ);
+        histogram.record(900 * MS, BUDGET_60HZ);
+        
+        assertEquals(100, histogram.getFrames());
+        assertEquals(3, histogram.getSlowFrames());
+        assertEquals(1, histogram.getFrozenFrames());
+        assertEquals(900 * MS, histogram.getMaxNanos());
+        assertEquals(8, histogram.getPercentileMillis(50));
+        assertEquals(250, histogram.getPercentileMillis(99));
+        assertEquals(-1, histogram.getPercentileMillis(100));
+    }
+    
+    @Test
+    public void mergeAndCsvRowAgree() {
+        FrameHistogram a = new FrameHistogram();
+        a.record(10 * MS, BUDGET_60HZ);
+        FrameHistogram b = new FrameHistogram();
+        b.record(30 * MS, BUDGET_60HZ);
+        a.merge(b);
+        
+        String[] header = FrameHistogram.csvHeader().split(",");
+        String[] row = a.toCsvRow("home/RestaurantAdapter").split(",");
+        assertEquals(header.length, row.length);
+        assertEquals("home/RestaurantAdapter", row[0]);
+        assertEquals("2", row[1]);
+        assertEquals("1", row[2]);
+        assertEquals("20.00", row[4]);
+    }
+}
\ No newline at end of file
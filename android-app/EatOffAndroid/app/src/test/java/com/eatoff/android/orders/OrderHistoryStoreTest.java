@@ -0,0 +1,123 @@
+package com.eatoff.android.orders;
+
+import com.eatoff.android.models.Order;
+import com.eatoff.android.models.OrderItem;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderHistoryStoreTest {
+    
+    private File directory;
+    
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("order-history").toFile();
+        directory.deleteOnExit();
+    }
+    
+    @Test
+    public void pagesAreNewestFirstWithPrecomputedSummaries() throws IOException {
+        OrderHistoryStore store = new OrderHistoryStore(directory);
+        assertEquals(120, store.ingest(orders(1, 120, "delivered")));
+        
+        assertEquals(120, store.size());
+        List<OrderSummary> first = store.page(0, 20);
+        assertEquals(120, first.get(0).getId());
+        assertEquals(101, first.get(19).getId());
+        assertEquals(3, first.get(0).getItemCount());
+        assertEquals("Ciorbă, Mici x2", first.get(0).getItemSummary());
+        
+        List<OrderSummary> last = store.page(100, 50);
+        assertEquals(20, last.size());
+        assertEquals(1, last.get(19).getId());
+        assertEquals(120, store.getLatestOrderId());
+    }
+    
+    @Test
+    public void firstPageReadsOnlyTheNewestChunks() throws IOException {
+        new OrderHistoryStore(directory).ingest(orders(1, 2_000, "completed"));
+        
+        OrderHistoryStore reopened = new OrderHistoryStore(directory);
+        List<OrderSummary> page = reopened.page(0, 20);
+        assertEquals(2_000, page.get(0).getId());
+        assertEquals(2_000, reopened.size());
+        assertEquals(1, reopened.loadedChunkCount());
+    }
+    
+    @Test
+    public void syncCursorRevisitsOpenOrdersAndUpdatesReplaceThem() throws IOException {
+        OrderHistoryStore store = new OrderHistoryStore(directory);
+        List<Order> orders = orders(1, 60, "delivered");
+        orders.get(54).setStatus("preparing");
+        store.ingest(orders);
+        assertEquals(54, store.getSyncCursor());
+        
+        // The server returns the open order again, now delivered, followed by a new one
+        List<Order> update = orders(55, 55, "delivered");
+        update.addAll(orders(61, 61, "pending"));
+        assertEquals(1, store.ingest(update));
+        
+        OrderHistoryStore reopened = new OrderHistoryStore(directory);
+        assertEquals(61, reopened.size());
+        assertEquals("Delivered", reopened.page(6, 1).get(0).getStatusText());
+        assertEquals(60, reopened.getSyncCursor());
+    }
+    
+    @Test
+    public void backfilledOrderIsInsertedInIdOrder() throws IOException {
+        OrderHistoryStore store = new OrderHistoryStore(directory);
+        List<Order> orders = orders(1, 101, "delivered");
+        orders.remove(9);
+        store.ingest(orders);
+        
+        // Order 10 shows up late; it lands in the first chunk and pushes the rest along
+        assertEquals(1, store.ingest(orders(10, 10, "delivered")));
+        
+        OrderHistoryStore reopened = new OrderHistoryStore(directory);
+        assertEquals(101, reopened.size());
+        List<OrderSummary> all = reopened.page(0, 101);
+        for (int position = 0; position < all.size(); position++) {
+            assertEquals(101 - position, all.get(position).getId());
+        }
+    }
+    
+    @Test
+    public void corruptChunkEmptiesTheStoreForAFullResync() throws IOException {
+        new OrderHistoryStore(directory).ingest(orders(1, 75, "delivered"));
+        Files.write(new File(directory, "orders_0.json").toPath(), "not json".getBytes());
+        
+        OrderHistoryStore reopened = new OrderHistoryStore(directory);
+        // The newest chunk is intact; reaching the damaged one drops the whole history
+        assertEquals(10, reopened.page(0, 10).size());
+        assertEquals(Collections.emptyList(), reopened.page(40, 10));
+        assertEquals(0, reopened.size());
+        assertEquals(0, reopened.getSyncCursor());
+        assertEquals(75, reopened.ingest(orders(1, 75, "delivered")));
+    }
+    
+    private static List<Order> orders(int fromId, int toId, String status) {
+        List<Order> orders = new ArrayList<>();
+        for (int id = fromId; id <= toId; id++) {
+            Order order = new Order(id, 7, 3, "EO-" + id);
+            order.setStatus(status);
+            order.setTotalAmount(42.5);
+            OrderItem soup = new OrderItem(1, 1, 12.5);
+            soup.setItemName("Ciorbă");
+            OrderItem mici = new OrderItem(2, 2, 15.0);
+            mici.setItemName("Mici");
+            order.setItems(Arrays.asList(soup, mici));
+            orders.add(order);
+        }
+        return orders;
+    }
+}
\ No newline at end of file
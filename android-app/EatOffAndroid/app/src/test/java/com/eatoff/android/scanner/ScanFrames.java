@@ -0,0 +1,98 @@
+package com.eatoff.android.scanner;
+
+import com.eatoff.android.vouchers.VoucherToken;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Synthetic camera frames and signed voucher tokens, shared by {@link ScanPipelineTest} and
+ * {@link ScanPipelineBenchmark}.
+ */
+final class ScanFrames {
+    
+    static final int WIDTH = 1280;
+    static final int HEIGHT = 720;
+    
+    private ScanFrames() {
+    }
+    
+    // A signed voucher token, the payload a customer's QR code carries
+    static String token(KeyPair keyPair, int voucherId, int restaurantId, long nowMs) throws GeneralSecurityException {
+        String claims = "{\"v\":" + voucherId + ",\"r\":" + restaurantId + ",\"c\":7,\"m\":10,\"e\":"
+                + (nowMs / 1000 + 86_400) + ",\"k\":\"k1\"}";
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String signedPart = VoucherToken.PREFIX + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+        
+        Signature signature = Signature.getInstance("SHA256withECDSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(signedPart.getBytes(StandardCharsets.US_ASCII));
+        return signedPart + "." + encoder.encodeToString(signature.sign());
+    }
+    
+    // A gray preview frame with the code drawn at the center and uniform sensor noise on top
+    static byte[] frame(String payload, int codeSide, int noise, long seed) throws WriterException {
+        BitMatrix matrix = new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, codeSide, codeSide,
+                Collections.singletonMap(EncodeHintType.MARGIN, 2));
+        byte[] frame = new byte[WIDTH * HEIGHT];
+        Arrays.fill(frame, (byte) 150);
+        int left = (WIDTH - matrix.getWidth()) / 2;
+        int top = (HEIGHT - matrix.getHeight()) / 2;
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                frame[(top + y) * WIDTH + left + x] = (byte) (matrix.get(x, y) ? 30 : 220);
+            }
+        }
+        
+        Random random = new Random(seed);
+        for (int i = 0; i < frame.length; i++) {
+            int value = (frame[i] & 0xFF) + random.nextInt(2 * noise + 1) - noise;
+            frame[i] = (byte) Math.max(0, Math.min(255, value));
+        }
+        return frame;
+    }
+    
+    // The frame as an RGB image turned by the given angle, resampled like a camera would
+    static BufferedImage photographed(byte[] frame, int degrees) {
+        BufferedImage gray = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        gray.getRaster().setDataElements(0, 0, WIDTH, HEIGHT, frame);
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(150, 150, 150));
+        graphics.fillRect(0, 0, WIDTH, HEIGHT);
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.rotate(Math.toRadians(degrees), WIDTH / 2.0, HEIGHT / 2.0);
+        graphics.drawImage(gray, 0, 0, null);
+        graphics.dispose();
+        return image;
+    }
+    
+    static byte[] luminance(BufferedImage image) {
+        byte[] luminance = new byte[image.getWidth() * image.getHeight()];
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int rgb = image.getRGB(x, y);
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                luminance[y * image.getWidth() + x] = (byte) ((r * 77 + g * 150 + b * 29) >> 8);
+            }
+        }
+        return luminance;
+    }
+}
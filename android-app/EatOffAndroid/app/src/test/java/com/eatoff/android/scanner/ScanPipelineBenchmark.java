@@ -0,0 +1,76 @@
+package com.eatoff.android.scanner;
+
+import com.eatoff.android.vouchers.OfflineVoucherValidator;
+import com.eatoff.android.vouchers.RedemptionQueue;
+import com.eatoff.android.vouchers.RevocationList;
+import com.eatoff.android.vouchers.VoucherTokenVerifier;
+import com.google.zxing.WriterException;
+import org.junit.Test;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Decode rate and offer-to-result latency of {@link ScanPipeline} over a corpus of turned,
+ * noisy camera frames. Excluded from the default unit test run; run it with
+ * {@code ./gradlew test -Pbenchmarks}.
+ */
+public class ScanPipelineBenchmark {
+    
+    private static final int RESTAURANT_ID = 3;
+    private static final int CORPUS_FRAMES = 24;
+    private static final int PASSES = 5;
+    private static final Executor DIRECT = Runnable::run;
+    // One preview frame at 30 fps; a slower decode makes the pipeline drop the frames behind it
+    private static final double FRAME_INTERVAL_MS = 33;
+    
+    @Test
+    public void decodesTheCorpusWithinAFrameInterval() throws GeneralSecurityException, WriterException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = generator.generateKeyPair();
+        VoucherTokenVerifier verifier = new VoucherTokenVerifier();
+        verifier.setKeys(Collections.singletonMap("k1",
+                Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())));
+        OfflineVoucherValidator validator = new OfflineVoucherValidator(verifier, new RevocationList(), new RedemptionQueue());
+        
+        long[] now = {1_760_000_000_000L};
+        Random random = new Random(5);
+        List<byte[]> corpus = new ArrayList<>();
+        for (int i = 0; i < CORPUS_FRAMES; i++) {
+            String payload = ScanFrames.token(keyPair, 4000 + i, RESTAURANT_ID, now[0]);
+            byte[] frame = ScanFrames.frame(payload, 260 + random.nextInt(160), 12, i);
+            corpus.add(ScanFrames.luminance(ScanFrames.photographed(frame, random.nextInt(21) - 10)));
+        }
+        
+        // The first pass loads ZXing and warms the decoder up; only the later ones are measured
+        replay(new ScanPipeline(validator, RESTAURANT_ID, DIRECT, DIRECT, () -> now[0], result -> { }), corpus, now);
+        ScanPipeline pipeline = new ScanPipeline(validator, RESTAURANT_ID, DIRECT, DIRECT, () -> now[0], result -> { });
+        for (int pass = 0; pass < PASSES; pass++) {
+            replay(pipeline, corpus, now);
+        }
+        
+        ScanStats stats = pipeline.getStats();
+        System.out.println("Scan " + CORPUS_FRAMES * PASSES + " frames: " + stats);
+        assertTrue(stats.toString(), stats.getDecodeRate() >= 0.95);
+        assertTrue(stats.toString(), stats.getAverageLatencyMillis() < FRAME_INTERVAL_MS);
+    }
+    
+    // Frames a dedup window apart, so every one is decoded and reported
+    private static void replay(ScanPipeline pipeline, List<byte[]> corpus, long[] now) {
+        for (byte[] frame : corpus) {
+            pipeline.offer(frame, ScanFrames.WIDTH, ScanFrames.HEIGHT, ScanFrames.WIDTH);
+            now[0] += ScanPipeline.DEDUP_WINDOW_MS;
+        }
+    }
+}
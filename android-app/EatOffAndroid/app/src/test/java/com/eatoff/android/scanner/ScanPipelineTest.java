@@ -0,0 +1,187 @@
+package com.eatoff.android.scanner;
+
+import com.eatoff.android.vouchers.OfflineVoucherValidator;
+import com.eatoff.android.vouchers.RedemptionQueue;
+import com.eatoff.android.vouchers.RevocationList;
+import com.eatoff.android.vouchers.VoucherTokenVerifier;
+import com.google.zxing.WriterException;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class ScanPipelineTest {
+    
+    private static final int RESTAURANT_ID = 3;
+    private static final int FRAME_WIDTH = ScanFrames.WIDTH;
+    private static final int FRAME_HEIGHT = ScanFrames.HEIGHT;
+    private static final Executor DIRECT = Runnable::run;
+    private static final int CORPUS_FRAMES = 12;
+    
+    private long now = 1_760_000_000_000L;
+    private KeyPair keyPair;
+    private OfflineVoucherValidator validator;
+    
+    @Before
+    public void setUp() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        keyPair = generator.generateKeyPair();
+        
+        VoucherTokenVerifier verifier = new VoucherTokenVerifier();
+        verifier.setKeys(Collections.singletonMap("k1",
+                Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())));
+        validator = new OfflineVoucherValidator(verifier, new RevocationList(), new RedemptionQueue());
+    }
+    
+    @Test
+    public void decodesValidatesAndDeduplicates() throws WriterException, GeneralSecurityException {
+        List<ScanPipeline.ScanResult> results = new ArrayList<>();
+        ScanPipeline pipeline = new ScanPipeline(validator, RESTAURANT_ID, DIRECT, DIRECT, () -> now, results::add);
+        
+        String token = token(1001);
+        byte[] first = ScanFrames.frame(token, 420, 0, 1);
+        assertTrue(pipeline.offer(first, FRAME_WIDTH, FRAME_HEIGHT, FRAME_WIDTH));
+        assertEquals(1, results.size());
+        assertEquals(token, results.get(0).getPayload());
+        assertEquals(OfflineVoucherValidator.Status.VALID, results.get(0).getValidation().getStatus());
+        assertEquals(1001, results.get(0).getValidation().getToken().getVoucherId());
+        
+        // The same code still in view is suppressed, another code goes through
+        now += 500;
+        pipeline.offer(first, FRAME_WIDTH, FRAME_HEIGHT, FRAME_WIDTH);
+        pipeline.offer(ScanFrames.frame(token(1002), 420, 0, 2), FRAME_WIDTH, FRAME_HEIGHT, FRAME_WIDTH);
+        pipeline.offer(ScanFrames.frame("EO-V-9999", 420, 0, 3), FRAME_WIDTH, FRAME_HEIGHT, FRAME_WIDTH);
+        assertEquals(3, results.size());
+        assertEquals(OfflineVoucherValidator.Status.MALFORMED, results.get(2).getValidation().getStatus());
+        assertEquals(1, pipeline.getStats().getDuplicates());
+        
+        // Switching between two vouchers inside the window does not let either through again
+        now += 500;
+        pipeline.offer(first, FRAME_WIDTH, FRAME_HEIGHT, FRAME_WIDTH);
+        assertEquals(3, results.size());
+        assertEquals(2, pipeline.getStats().getDuplicates());
+        
+        // Once the window has passed a fresh scan of the first code counts again
+        now += ScanPipeline.DEDUP_WINDOW_MS;
+        pipeline.offer(first, FRAME_WIDTH, FRAME_HEIGHT, FRAME_WIDTH);
+        assertEquals(4, results.size());
+    }
+    
+    @Test
+    public void framesOfferedDuringADecodeAreDropped() throws WriterException, GeneralSecurityException {
+        List<Runnable> pending = new ArrayList<>();
+        List<ScanPipeline.ScanResult> results = new ArrayList<>();
+        ScanPipeline pipeline = new ScanPipeline(validator, RESTAURANT_ID, pending::add, DIRECT, () -> now, results::add);
+        byte[] frame = ScanFrames.frame(token(1001), 420, 0, 1);
+        
+        assertTrue(pipeline.offer(frame, FRAME_WIDTH, FRAME_HEIGHT, FRAME_WIDTH));
+        assertFalse(pipeline.offer(frame, FRAME_WIDTH, FRAME_HEIGHT, FRAME_WIDTH));
+        assertFalse(pipeline.offer(frame, FRAME_WIDTH, FRAME_HEIGHT, FRAME_WIDTH));
+        pending.remove(0).run();
+        assertTrue(pipeline.offer(frame, FRAME_WIDTH, FRAME_HEIGHT, FRAME_WIDTH));
+        
+        assertEquals(4, pipeline.getStats().getFramesOffered());
+        assertEquals(2, pipeline.getStats().getFramesDropped());
+        assertEquals(1, results.size());
+    }
+    
+    @Test
+    public void regionDownscaleAveragesBlocks() {
+        byte[] frame = new byte[8 * 4];
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (byte) ((i % 8) * 30);
+        }
+        int roiSide = LuminanceRoi.roiSide(8, 4, 1f);
+        assertEquals(4, roiSide);
+        byte[] out = new byte[4];
+        assertEquals(2, LuminanceRoi.downscale(frame, 8, 4, 8, roiSide, 2, out));
+        // Columns 2..5 of the frame; each output pixel averages two adjacent columns
+        assertEquals(75, out[0] & 0xFF);
+        assertEquals(135, out[1] & 0xFF);
+        assertEquals(3, LuminanceRoi.factorFor(1000, 360));
+    }
+    
+    @Test
+    public void decodesCodesAcrossSizesAndNoise() throws WriterException, GeneralSecurityException {
+        List<String> payloads = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            payloads.add(token(2000 + i));
+        }
+        List<ScanPipeline.ScanResult> results = new ArrayList<>();
+        ScanPipeline pipeline = new ScanPipeline(validator, RESTAURANT_ID, DIRECT, DIRECT, () -> now, results::add);
+        
+        // Signed tokens make dense codes, so these are phone screens held close, at varying noise levels
+        Random random = new Random(11);
+        for (int i = 0; i < payloads.size(); i++) {
+            pipeline.offer(ScanFrames.frame(payloads.get(i), 380 + random.nextInt(90), 8 + random.nextInt(24), i),
+                    FRAME_WIDTH, FRAME_HEIGHT, FRAME_WIDTH);
+        }
+        
+        assertTrue(pipeline.getStats().toString(), pipeline.getStats().getDecodeRate() >= 0.95);
+        for (ScanPipeline.ScanResult result : results) {
+            assertTrue(result.getValidation().isValid());
+        }
+    }
+    
+    @Test
+    public void replaysFrameCorpusFromPngs() throws IOException, WriterException, GeneralSecurityException {
+        File corpus = Files.createTempDirectory("scanner-frames").toFile();
+        corpus.deleteOnExit();
+        List<String> payloads = new ArrayList<>();
+        Random random = new Random(5);
+        for (int i = 0; i < CORPUS_FRAMES; i++) {
+            String payload = token(3000 + i);
+            payloads.add(payload);
+            // Slightly turned codes, the way staff hold a phone up to the camera
+            File file = new File(corpus, String.format(Locale.US, "frame_%03d.png", i));
+            byte[] frame = ScanFrames.frame(payload, 260 + random.nextInt(160), 12, i);
+            ImageIO.write(ScanFrames.photographed(frame, random.nextInt(21) - 10), "png", file);
+            file.deleteOnExit();
+        }
+        
+        File[] files = corpus.listFiles((dir, name) -> name.endsWith(".png"));
+        assertNotNull(files);
+        assertEquals(CORPUS_FRAMES, files.length);
+        Arrays.sort(files);
+        
+        List<ScanPipeline.ScanResult> results = new ArrayList<>();
+        ScanPipeline pipeline = new ScanPipeline(validator, RESTAURANT_ID, DIRECT, DIRECT, () -> now, results::add);
+        for (File file : files) {
+            BufferedImage image = ImageIO.read(file);
+            pipeline.offer(ScanFrames.luminance(image), image.getWidth(), image.getHeight(), image.getWidth());
+            now += 33;
+        }
+        
+        ScanStats stats = pipeline.getStats();
+        assertEquals(CORPUS_FRAMES, stats.getDecoded());
+        assertEquals(CORPUS_FRAMES, stats.getDecodeAttempts());
+        for (int i = 0; i < CORPUS_FRAMES; i++) {
+            assertEquals(payloads.get(i), results.get(i).getPayload());
+            assertTrue(results.get(i).getValidation().isValid());
+        }
+    }
+    
+    // A signed voucher token, the payload a customer's QR code carries
+    private String token(int voucherId) throws GeneralSecurityException {
+        return ScanFrames.token(keyPair, voucherId, RESTAURANT_ID, now);
+    }
+}
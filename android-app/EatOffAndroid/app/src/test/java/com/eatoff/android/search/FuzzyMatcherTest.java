@@ -0,0 +1,106 @@
+package com.eatoff.android.search;
+
+import com.eatoff.android.models.MenuItem;
+import com.eatoff.android.models.Restaurant;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FuzzyMatcherTest {
+    
+    private static final String[] SYLLABLES = {"ca", "sa", "mi", "ci", "or", "ba", "to", "ri", "na", "le",
+            "pi", "za", "bu", "ra", "te", "lu", "ma", "do", "ve", "ni"};
+    
+    @Test
+    public void toleratesTyposAndRanksByDistanceThenRating() {
+        Restaurant napoli = restaurant(1, "Pizzeria Napoli", "4.1");
+        Restaurant napoliBest = restaurant(2, "Napoli Express", "4.9");
+        Restaurant sushi = restaurant(3, "Sushi Bar", "4.5");
+        MenuItem sarmale = new MenuItem(10, "Sarmale cu mămăligă", 32.0, "Main");
+        sarmale.setRestaurantId(3);
+        
+        FuzzyMatcher matcher = new FuzzyMatcher.Builder()
+                .addRestaurant(napoli)
+                .addRestaurant(napoliBest)
+                .addRestaurant(sushi)
+                .addMenuItem(sarmale, 4.5)
+                .build();
+        
+        List<FuzzyMatcher.Match> matches = matcher.search("napolli", 10);
+        assertEquals(2, matches.size());
+        // Same distance, so the better rated restaurant comes first
+        assertEquals(2, matches.get(0).getId());
+        assertEquals(1, matches.get(0).getDistance());
+        
+        assertEquals(3, matcher.search("suhsi", 10).get(0).getId());
+        
+        FuzzyMatcher.Match dish = matcher.search("sarmalle mamaliga", 10).get(0);
+        assertEquals(FuzzyMatcher.KIND_MENU_ITEM, dish.getKind());
+        assertEquals(3, dish.getRestaurantId());
+        
+        assertTrue(matcher.search("bar", 10).size() == 1);
+        assertTrue(matcher.search("xyzzy", 10).isEmpty());
+    }
+    
+    @Test
+    public void findsEveryTypoOnFiftyThousandNames() {
+        Random random = new Random(42);
+        FuzzyMatcher.Builder builder = new FuzzyMatcher.Builder();
+        String[] corpus = new String[50_000];
+        for (int i = 0; i < corpus.length; i++) {
+            corpus[i] = word(random) + " " + word(random);
+            if (i % 2 == 0) {
+                builder.addRestaurant(restaurant(i, corpus[i], String.valueOf(random.nextInt(50) / 10.0)));
+            } else {
+                MenuItem item = new MenuItem(i, corpus[i], 20.0, "Main");
+                item.setRestaurantId(i - 1);
+                builder.addMenuItem(item, 4.0);
+            }
+        }
+        FuzzyMatcher matcher = builder.build();
+        assertEquals(corpus.length, matcher.size());
+        
+        String[] queries = new String[50];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = typo(corpus[random.nextInt(corpus.length)], random);
+        }
+        
+        // Every query is one transposition away from an indexed name, two edits at most, so it must still come back
+        for (String query : queries) {
+            List<FuzzyMatcher.Match> matches = matcher.search(query, 20);
+            assertFalse(query, matches.isEmpty());
+            assertTrue(query, matches.get(0).getDistance() <= 2);
+        }
+    }
+    
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+    
+    // Swaps two adjacent letters in the longer word, a typical fat-finger typo
+    private static String typo(String name, Random random) {
+        String[] words = name.split(" ");
+        int w = words[0].length() >= words[1].length() ? 0 : 1;
+        char[] letters = words[w].toCharArray();
+        int i = 1 + random.nextInt(letters.length - 2);
+        char swap = letters[i];
+        letters[i] = letters[i + 1];
+        letters[i + 1] = swap;
+        words[w] = new String(letters);
+        return words[0] + " " + words[1];
+    }
+    
+    private static Restaurant restaurant(int id, String name, String rating) {
+        Restaurant restaurant = new Restaurant(id, name, "Romanian", "Centru");
+        restaurant.setRating(rating);
+        return restaurant;
+    }
+}
\ No newline at end of file
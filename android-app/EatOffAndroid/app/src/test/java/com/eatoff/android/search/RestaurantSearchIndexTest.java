@@ -0,0 +1,150 @@
+package com.eatoff.android.search;
+
+import com.eatoff.android.models.MenuItem;
+import com.eatoff.android.models.Restaurant;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RestaurantSearchIndexTest {
+    
+    @Test
+    public void foldsRomanianDiacritics() {
+        assertEquals("ciorba de burta", TextNormalizer.fold("Ciorbă de Burtă"));
+        assertEquals("mamaliga cu branza", TextNormalizer.fold("Mămăligă cu brânză"));
+        // Comma-below and legacy cedilla forms fold to the same letters
+        assertEquals("sarmale tuica", TextNormalizer.fold("Şarmale Ţuică"));
+        assertEquals("sarmale tuica", TextNormalizer.fold("Șarmale Țuică"));
+        assertEquals(Arrays.asList("casa", "doina", "2"), TextNormalizer.tokenize("Casa-Doina #2"));
+    }
+    
+    @Test
+    public void matchesPrefixesAcrossFields() {
+        RestaurantSearchIndex index = new RestaurantSearchIndex();
+        index.sync(Arrays.asList(
+                restaurant(1, "Caru' cu Bere", "Romanian", "Centrul Vechi", "Mici și ciorbă", "4.6"),
+                restaurant(2, "Pizza Napoli", "Italian", "Floreasca", "Wood-fired pizza", "4.2"),
+                restaurant(3, "Bistro Știrbei", "Romanian", "Cotroceni", "Sarmale", "4.8")), true);
+        
+        assertTrue(index.isComplete());
+        assertEquals(1, index.search("ciorb", null, null, null, 10).get(0).getId());
+        assertEquals(3, index.search("stirbei", null, null, null, 10).get(0).getId());
+        assertEquals(2, index.search("piz flo", null, null, null, 10).get(0).getId());
+        assertTrue(index.search("pizza cotroceni", null, null, null, 10).isEmpty());
+        
+        // Both Romanian restaurants match, the higher rated one first
+        List<Restaurant> romanian = index.search("roman", null, null, null, 10);
+        assertEquals(2, romanian.size());
+        assertEquals(3, romanian.get(0).getId());
+        
+        assertEquals(1, index.search("", "romanian", "Centrul Vechi", null, 10).size());
+    }
+    
+    @Test
+    public void syncReplacesChangedAndDropsMissingRestaurants() {
+        RestaurantSearchIndex index = new RestaurantSearchIndex();
+        index.sync(Arrays.asList(
+                restaurant(1, "Old Name", "Greek", "Centru", null, "4.0"),
+                restaurant(2, "Gone Soon", "Greek", "Centru", null, "4.0")), false);
+        assertFalse(index.isComplete());
+        
+        index.sync(Arrays.asList(restaurant(1, "New Name", "Greek", "Centru", null, "4.0")), true);
+        
+        assertEquals(1, index.size());
+        assertTrue(index.search("old", null, null, null, 10).isEmpty());
+        assertTrue(index.search("gone", null, null, null, 10).isEmpty());
+        assertEquals(1, index.search("new", null, null, null, 10).size());
+    }
+    
+    @Test
+    public void typeAheadOverLargeCatalogMatchesEveryPrefix() {
+        String[] words = {"Bistro", "Casa", "Trattoria", "Grill", "Sushi", "Taverna", "Bucătăria", "Hanul"};
+        String[] cuisines = {"Romanian", "Italian", "Japanese", "Greek", "Mexican"};
+        List<Restaurant> restaurants = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            restaurants.add(restaurant(i, words[i % words.length] + " " + i, cuisines[i % cuisines.length],
+                    "Sector " + (i % 6), "Local favourite number " + i, String.valueOf((i % 50) / 10.0)));
+        }
+        RestaurantSearchIndex index = new RestaurantSearchIndex();
+        index.sync(restaurants, true);
+        
+        // Each keystroke narrows the same result set
+        String[] keystrokes = {"b", "bu", "buc", "bucat"};
+        for (String query : keystrokes) {
+            List<Restaurant> results = index.search(query, null, null, null, 50);
+            assertEquals(50, results.size());
+            for (Restaurant restaurant : results) {
+                assertTrue(TextNormalizer.fold(restaurant.getName() + " " + restaurant.getCuisine()
+                        + " " + restaurant.getLocation() + " " + restaurant.getDescription()).contains(query));
+            }
+        }
+        
+        List<Restaurant> sushi = index.search("sushi jap", null, null, null, 1_000);
+        // Sushi names fall on i % 8 == 4 and Japanese on i % 5 == 2, so every 40th restaurant
+        assertEquals(125, sushi.size());
+        for (Restaurant restaurant : sushi) {
+            assertTrue(restaurant.getName().startsWith("Sushi"));
+            assertEquals("Japanese", restaurant.getCuisine());
+        }
+    }
+    
+    @Test
+    public void fuzzyFallbackAppliesTheSameFilters() {
+        RestaurantSearchIndex index = new RestaurantSearchIndex();
+        index.sync(Arrays.asList(
+                restaurant(1, "Pizzeria Napoli", "Italian", "Floreasca", null, "4.9"),
+                restaurant(2, "Napoli Express", "Italian", "Cotroceni", null, "4.1")), true);
+        RestaurantSearch search = new RestaurantSearch(index, null);
+        
+        List<Restaurant> results = new ArrayList<>();
+        search.search("napolli", null, "Cotroceni", null, new RestaurantSearch.SearchCallback() {
+            @Override
+            public void onResults(List<Restaurant> restaurants, boolean fromLocalIndex) {
+                assertTrue(fromLocalIndex);
+                results.addAll(restaurants);
+            }
+            
+            @Override
+            public void onError(String message) {
+                fail(message);
+            }
+        });
+        
+        assertEquals(1, results.size());
+        assertEquals(2, results.get(0).getId());
+    }
+    
+    @Test
+    public void fuzzySearchCoversSyncedMenus() {
+        RestaurantSearchIndex index = new RestaurantSearchIndex();
+        index.sync(Arrays.asList(
+                restaurant(1, "Caru' cu Bere", "Romanian", "Centrul Vechi", null, "4.6"),
+                restaurant(2, "Pizza Napoli", "Italian", "Floreasca", null, "4.2")), true);
+        MenuItem sarmale = new MenuItem(10, "Sarmale cu mămăligă", 32.0, "Main");
+        sarmale.setRestaurantId(1);
+        
+        assertTrue(index.fuzzySearch("sarmalle", 10).isEmpty());
+        index.syncMenu(1, Arrays.asList(sarmale));
+        
+        List<FuzzyMatcher.Match> matches = index.fuzzySearch("sarmalle", 10);
+        assertEquals(1, matches.size());
+        assertEquals(FuzzyMatcher.KIND_MENU_ITEM, matches.get(0).getKind());
+        assertEquals(1, matches.get(0).getRestaurantId());
+        
+        // Dropping the restaurant drops its dishes with it
+        index.sync(Arrays.asList(restaurant(2, "Pizza Napoli", "Italian", "Floreasca", null, "4.2")), true);
+        assertTrue(index.fuzzySearch("sarmalle", 10).isEmpty());
+    }
+    
+    private static Restaurant restaurant(int id, String name, String cuisine, String location,
+                                         String description, String rating) {
+        Restaurant restaurant = new Restaurant(id, name, cuisine, location);
+        restaurant.setDescription(description);
+        restaurant.setRating(rating);
+        return restaurant;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.eatoff.android.storage;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class KeyValueStoreTest {
+    
+    private static final Executor DIRECT = Runnable::run;
+    
+    @Test
+    public void valuesSurviveReopen() throws IOException {
+        File file = tempFile();
+        KeyValueStore store = KeyValueStore.open(file, DIRECT);
+        store.edit()
+                .putString("user_data", "{\"id\":7,\"firstName\":\"Ana\"}")
+                .putBoolean("is_logged_in", true)
+                .putLong("orders_cursor", 1_700_000_000_000L)
+                .apply();
+        store.edit().remove("orders_cursor").putString("auth_token", "abc").apply();
+        
+        KeyValueStore reopened = KeyValueStore.open(file, DIRECT);
+        assertEquals("{\"id\":7,\"firstName\":\"Ana\"}", reopened.getString("user_data", null));
+        assertTrue(reopened.getBoolean("is_logged_in", false));
+        assertEquals(-1L, reopened.getLong("orders_cursor", -1L));
+        assertEquals("abc", reopened.getString("auth_token", null));
+        
+        reopened.edit().clear().putString("auth_token", "def").commit();
+        KeyValueStore cleared = KeyValueStore.open(file, DIRECT);
+        assertFalse(cleared.contains("user_data"));
+        assertEquals("def", cleared.getString("auth_token", null));
+    }
+    
+    @Test
+    public void tornTailLosesOnlyTheLastEdit() throws IOException {
+        File file = tempFile();
+        KeyValueStore store = KeyValueStore.open(file, DIRECT);
+        store.edit().putString("a", "1").apply();
+        long goodLength = file.length();
+        store.edit().putString("b", "2").putString("c", "3").apply();
+        
+        // Cut the second record in half, as a crash mid-write would
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(goodLength + (file.length() - goodLength) / 2);
+        }
+        
+        KeyValueStore reopened = KeyValueStore.open(file, DIRECT);
+        assertEquals("1", reopened.getString("a", null));
+        assertFalse(reopened.contains("b"));
+        assertFalse(reopened.contains("c"));
+        assertEquals(goodLength, file.length());
+        
+        reopened.edit().putString("d", "4").apply();
+        assertEquals("4", KeyValueStore.open(file, DIRECT).getString("d", null));
+    }
+    
+    @Test
+    public void corruptLengthIsTruncatedLikeABadChecksum() throws IOException {
+        File file = tempFile();
+        KeyValueStore store = KeyValueStore.open(file, DIRECT);
+        store.edit().putString("a", "1").apply();
+        long goodLength = file.length();
+        store.edit().putString("b", "2").apply();
+        
+        // A huge length must not be allocated; a negative one must not be trusted either
+        for (int length : new int[] {Integer.MAX_VALUE, -5}) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(goodLength);
+                raf.seek(goodLength);
+                raf.writeInt(length);
+                raf.write(new byte[32]);
+            }
+            
+            KeyValueStore reopened = KeyValueStore.open(file, DIRECT);
+            assertEquals("1", reopened.getString("a", null));
+            assertFalse(reopened.contains("b"));
+            assertEquals(goodLength, file.length());
+        }
+    }
+    
+    @Test
+    public void compactionBoundsTheLogAndKeepsLiveValues() throws IOException {
+        File file = tempFile();
+        KeyValueStore store = KeyValueStore.open(file, DIRECT);
+        for (int i = 0; i < 5_000; i++) {
+            store.edit().putLong("sync_watermark", i).putString("cursor", "page-" + i).apply();
+        }
+        
+        assertTrue(file.length() < 64 * 1024);
+        
+        KeyValueStore reopened = KeyValueStore.open(file, DIRECT);
+        assertEquals(4_999L, reopened.getLong("sync_watermark", -1));
+        assertEquals("page-4999", reopened.getString("cursor", null));
+    }
+    
+    @Test
+    public void valuesOver64KbSurviveReopenAndCompaction() throws IOException {
+        File file = tempFile();
+        StringBuilder json = new StringBuilder();
+        while (json.length() < 200_000) {
+            json.append("{\"name\":\"Ciorbă de burtă\"},");
+        }
+        String large = json.toString();
+        
+        KeyValueStore store = KeyValueStore.open(file, DIRECT);
+        store.edit().putString("customer_json", large).apply();
+        assertEquals(large, KeyValueStore.open(file, DIRECT).getString("customer_json", null));
+        
+        // The record alone is past the compaction threshold, so the next edit rewrites the log
+        store.edit().putLong("sync_watermark", 7).apply();
+        KeyValueStore reopened = KeyValueStore.open(file, DIRECT);
+        assertEquals(large, reopened.getString("customer_json", null));
+        assertEquals(7L, reopened.getLong("sync_watermark", -1));
+    }
+    
+    @Test
+    public void foreignFileStartsEmpty() throws IOException {
+        File file = tempFile();
+        Files.write(file.toPath(), "<map></map>".getBytes("UTF-8"));
+        
+        KeyValueStore store = KeyValueStore.open(file, DIRECT);
+        assertFalse(store.contains("user_data"));
+        store.edit().putBoolean("migrated", true).apply();
+        assertTrue(KeyValueStore.open(file, DIRECT).getBoolean("migrated", false));
+    }
+    
+    private static File tempFile() throws IOException {
+        File file = File.createTempFile("store", ".kv");
+        file.delete();
+        file.deleteOnExit();
+        return file;
+    }
+}
\ No newline at end of file
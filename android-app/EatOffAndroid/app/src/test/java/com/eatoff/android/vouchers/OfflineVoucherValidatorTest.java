@@ -0,0 +1,132 @@
+package com.eatoff.android.vouchers;
+
+import com.eatoff.android.models.VoucherRedemption;
+import com.google.gson.Gson;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class OfflineVoucherValidatorTest {
+    
+    private static final long NOW_MS = 1_760_000_000_000L;
+    private static final long EXPIRES_AT_S = NOW_MS / 1000 + 86_400;
+    private static final int RESTAURANT_ID = 4;
+    
+    private KeyPair keyPair;
+    private RevocationList revocations;
+    private RedemptionQueue redemptions;
+    private OfflineVoucherValidator validator;
+    
+    @Before
+    public void setUp() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        keyPair = generator.generateKeyPair();
+        
+        VoucherTokenVerifier verifier = new VoucherTokenVerifier();
+        verifier.setKeys(Collections.singletonMap("k1",
+                Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())));
+        revocations = new RevocationList();
+        redemptions = new RedemptionQueue();
+        validator = new OfflineVoucherValidator(verifier, revocations, redemptions);
+    }
+    
+    @Test
+    public void acceptsSignedTokenAndRejectsTampering() throws GeneralSecurityException {
+        String token = sign(10, RESTAURANT_ID, 5, EXPIRES_AT_S, "k1");
+        OfflineVoucherValidator.Result result = validator.validate(token, RESTAURANT_ID, NOW_MS);
+        assertEquals(OfflineVoucherValidator.Status.VALID, result.getStatus());
+        assertEquals(5, result.getRemainingMeals());
+        assertEquals(10, result.getToken().getVoucherId());
+        
+        // Same signature over claims granting more meals
+        String forged = signedPartOf(sign(10, RESTAURANT_ID, 50, EXPIRES_AT_S, "k1")) + token.substring(token.lastIndexOf('.'));
+        assertEquals(OfflineVoucherValidator.Status.BAD_SIGNATURE, validator.validate(forged, RESTAURANT_ID, NOW_MS).getStatus());
+        assertEquals(OfflineVoucherValidator.Status.UNKNOWN_KEY,
+                validator.validate(sign(10, RESTAURANT_ID, 5, EXPIRES_AT_S, "k2"), RESTAURANT_ID, NOW_MS).getStatus());
+        assertEquals(OfflineVoucherValidator.Status.MALFORMED, validator.validate("voucher-10", RESTAURANT_ID, NOW_MS).getStatus());
+    }
+    
+    @Test
+    public void checksRestaurantExpiryAndRevocations() throws GeneralSecurityException {
+        String token = sign(11, RESTAURANT_ID, 5, EXPIRES_AT_S, "k1");
+        assertEquals(OfflineVoucherValidator.Status.OTHER_RESTAURANT, validator.validate(token, 9, NOW_MS).getStatus());
+        assertEquals(OfflineVoucherValidator.Status.EXPIRED,
+                validator.validate(token, RESTAURANT_ID, EXPIRES_AT_S * 1000).getStatus());
+        
+        Map<Integer, Integer> used = new HashMap<>();
+        used.put(11, 3);
+        revocations.apply(1, Collections.<Integer>emptyList(), used);
+        assertEquals(2, validator.validate(token, RESTAURANT_ID, NOW_MS).getRemainingMeals());
+        
+        used.put(11, 5);
+        revocations.apply(2, null, used);
+        assertEquals(OfflineVoucherValidator.Status.USED_UP, validator.validate(token, RESTAURANT_ID, NOW_MS).getStatus());
+        
+        revocations.apply(3, Collections.singletonList(11), null);
+        assertEquals(OfflineVoucherValidator.Status.REVOKED, validator.validate(token, RESTAURANT_ID, NOW_MS).getStatus());
+        
+        // A stale delta does not roll the list back
+        revocations.apply(2, null, Collections.singletonMap(11, 0));
+        assertEquals(3, revocations.getVersion());
+        assertEquals(5, revocations.getUsedMeals(11));
+    }
+    
+    @Test
+    public void queuedRedemptionsCountAgainstRemainingMeals() throws GeneralSecurityException {
+        String token = sign(12, RESTAURANT_ID, 3, EXPIRES_AT_S, "k1");
+        assertEquals(1, validator.redeem(token, RESTAURANT_ID, 2, NOW_MS).getRemainingMeals());
+        assertEquals(OfflineVoucherValidator.Status.USED_UP, validator.redeem(token, RESTAURANT_ID, 2, NOW_MS).getStatus());
+        assertEquals(0, validator.redeem(token, RESTAURANT_ID, 1, NOW_MS).getRemainingMeals());
+        assertEquals(2, redemptions.size());
+        
+        // The queue survives a restart with its pending meals intact
+        Gson gson = new Gson();
+        RedemptionQueue restored = gson.fromJson(gson.toJson(redemptions), RedemptionQueue.class);
+        assertEquals(3, restored.getPendingMeals(12));
+        
+        VoucherRedemption first = restored.snapshot().get(0);
+        VoucherRedemption second = restored.snapshot().get(1);
+        restored.settle(Collections.singletonList(first.getId()), Collections.<String>emptyList());
+        assertEquals(1, restored.size());
+        assertEquals(1, restored.getPendingMeals(12));
+        
+        // A rejected redemption frees its meals but stays listed for staff
+        restored.settle(Collections.<String>emptyList(), Collections.singletonList(second.getId()));
+        assertEquals(0, restored.size());
+        assertEquals(0, restored.getPendingMeals(12));
+        assertEquals(second.getId(), restored.getRejected().get(0).getId());
+        RedemptionQueue reloaded = gson.fromJson(gson.toJson(restored), RedemptionQueue.class);
+        assertEquals(1, reloaded.getRejected().size());
+        reloaded.clearRejected();
+        assertTrue(reloaded.getRejected().isEmpty());
+    }
+    
+    private static String signedPartOf(String token) {
+        return token.substring(0, token.lastIndexOf('.'));
+    }
+    
+    private String sign(int voucherId, int restaurantId, int meals, long expiresAt, String keyId) throws GeneralSecurityException {
+        String claims = "{\"v\":" + voucherId + ",\"r\":" + restaurantId + ",\"c\":1,\"m\":" + meals
+                + ",\"e\":" + expiresAt + ",\"k\":\"" + keyId + "\"}";
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String signedPart = VoucherToken.PREFIX + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+        
+        Signature signature = Signature.getInstance("SHA256withECDSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(signedPart.getBytes(StandardCharsets.US_ASCII));
+        return signedPart + "." + encoder.encodeToString(signature.sign());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.eatoff.android.vouchers;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.FormatException;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.RGBLuminanceSource;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class QrCodeRendererTest {
+    
+    // Roughly 70% of a 1080 px wide phone
+    private static final int SIZE_PX = 756;
+    
+    @Test
+    public void renderedPixelsDecodeToThePayload()
+            throws WriterException, NotFoundException, ChecksumException, FormatException {
+        String payload = "v1.k1.eyJ2IjoxMDAxLCJjIjo3LCJyIjozLCJtIjoxMCwiZSI6MTc2MDAwMDAwMH0.MEUCIQDx-ăîș";
+        BitMatrix matrix = QrCodeRenderer.encodeMatrix(payload);
+        int scale = QrCodeRenderer.moduleScale(matrix.getWidth(), SIZE_PX);
+        int side = matrix.getWidth() * scale;
+        
+        // Whole-pixel scaling never overshoots the requested size
+        assertTrue(scale > 1);
+        assertTrue(side <= SIZE_PX);
+        
+        int[] pixels = QrCodeRenderer.toPixels(matrix, SIZE_PX);
+        assertEquals(side * side, pixels.length);
+        BinaryBitmap image = new BinaryBitmap(new HybridBinarizer(new RGBLuminanceSource(side, side, pixels)));
+        assertEquals(payload, new QRCodeReader().decode(image).getText());
+    }
+    
+    @Test
+    public void cacheKeyDependsOnPayloadAndSize() {
+        String key = QrCodeRenderer.cacheKey("voucher-1", SIZE_PX);
+        assertEquals(key, QrCodeRenderer.cacheKey("voucher-1", SIZE_PX));
+        assertNotEquals(key, QrCodeRenderer.cacheKey("voucher-2", SIZE_PX));
+        assertNotEquals(key, QrCodeRenderer.cacheKey("voucher-1", SIZE_PX / 2));
+        
+        // Used as a file name: hex digest, size and extension only
+        assertTrue(key, key.matches("[0-9a-f]{64}_" + SIZE_PX + "\\.png"));
+    }
+    
+    @Test
+    public void pruneKeepsOnlyCodesOfActiveVouchers() throws IOException {
+        File directory = Files.createTempDirectory("qr_codes").toFile();
+        String active = QrCodeRenderer.cacheKey("active", SIZE_PX);
+        String used = QrCodeRenderer.cacheKey("fully-used", SIZE_PX);
+        for (String name : new String[] {active, used, used + ".tmp"}) {
+            assertTrue(new File(directory, name).createNewFile());
+        }
+        
+        QrCodeRenderer.prune(directory, Collections.singleton(active));
+        assertArrayEquals(new String[] {active}, directory.list());
+        
+        QrCodeRenderer.prune(directory, Collections.emptySet());
+        assertEquals(0, directory.list().length);
+        assertTrue(directory.delete());
+    }
+}